@@ -16,32 +16,60 @@
  */
 package be.uantwerpen.adrem.bigfim;
 
-import static be.uantwerpen.adrem.bigfim.Tools.convertLineToSet;
-import static be.uantwerpen.adrem.bigfim.Tools.getSingletonsFromCountTrie;
-import static be.uantwerpen.adrem.bigfim.Tools.readCountTrieFromItemSetsFile;
-import static be.uantwerpen.adrem.util.FIMOptions.DELIMITER_KEY;
+import static be.uantwerpen.adrem.hadoop.util.Tools.createPath;
+import static be.uantwerpen.adrem.hadoop.util.Tools.getJobAbsoluteOutputDir;
+import static be.uantwerpen.adrem.hadoop.util.Tools.getMapperHeapBudget;
+import static be.uantwerpen.adrem.util.FIMOptions.COUNT_ENGINE_KEY;
+import static be.uantwerpen.adrem.util.FIMOptions.DHP_BUCKETS_KEY;
+import static be.uantwerpen.adrem.util.FIMOptions.MAPPER_THREADS_KEY;
+import static be.uantwerpen.adrem.util.FIMOptions.MIN_SUP_KEY;
+import static be.uantwerpen.adrem.util.FIMOptions.TRIM_TRANSACTIONS_KEY;
+import static com.google.common.collect.Lists.newArrayList;
 import static org.apache.hadoop.filecache.DistributedCache.getLocalCacheFiles;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.VIntWritable;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.InputFormat;
+import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
+import org.apache.hadoop.util.ReflectionUtils;
 
+import be.uantwerpen.adrem.hadoop.util.CountMinSketch;
+import be.uantwerpen.adrem.hadoop.util.ReplicatedSplitInputFormat.ReplicatedSplit;
+import be.uantwerpen.adrem.hadoop.util.TransactionWritable;
+import be.uantwerpen.adrem.util.ItemRecoding;
 import be.uantwerpen.adrem.util.ItemSetTrie;
 import be.uantwerpen.adrem.util.ItemSetTrie.SupportCountItemsetTrie;
 
+import com.google.common.base.Joiner;
+import com.google.common.primitives.Ints;
+
 /**
  * Mapper class for Apriori phase of BigFIM. Each mapper receives a sub part (horizontal cut) of the dataset and
  * combines a list of base itemsets in candidates of length+1 for its sub database. The latter are counted in the map
  * function. If no base itemsets are specified, all singletons are counted. The size of the sub part is depending on the
  * number of mappers and the size of the original dataset.
  * 
+ * From the second phase on, the mapper receives the candidate files of all trie groups of the phase. It counts as many
+ * of them in one scan of its sub database as fit in its heap budget and scans the sub database again for the others.
+ * In candidate distribution mode, every sub database is given to a number of mappers and each of them only counts its
+ * own partition of the candidates.
+ * 
+ * When the driver ships a recoding of the frequent items, the candidates and transactions are counted on the dense ids
+ * of their items, which are translated back to the items when the supports are written.
+ * 
  * <pre>
  * {@code
  * Original Input Per Mapper:
@@ -127,38 +155,326 @@ import be.uantwerpen.adrem.util.ItemSetTrie.SupportCountItemsetTrie;
  * }
  * </pre>
  */
-public class AprioriPhaseMapper extends Mapper<LongWritable,Text,Text,Text> {
+public class AprioriPhaseMapper extends Mapper<Object,Writable,Text,Text> {
+  
+  public static final String TrieEngine = "trie";
+  public static final String SortedEngine = "sorted";
+  public static final String PrefixTreeEngine = "prefixtree";
+  public static final String BitmapEngine = "bitmap";
   
+  public static final String TrimmedOutput = "transactions";
+  public static final String TrimmedDir = "tr";
+  
+  private Configuration conf;
   private Set<Integer> singletons;
+  private String recodingFile;
+  private ItemRecoding recoding;
   private ItemSetTrie countTrie;
   
   private int phase = 1;
-  private String delimiter;
+  private final TransactionTokenizer tokenizer = new TransactionTokenizer();
+  
+  private int[] dhpCounts;
+  
+  private CountMinSketch sketch;
+  private int minSup;
+  
+  private List<List<String>> passes = newArrayList();
+  private int partition = 0;
+  private int numberOfPartitions = 1;
+  private CandidateCounter counter;
+  private ItemSetTrie lookaheadTrie;
+  private CandidateCounter lookaheadCounter;
+  private FlatCandidateTrie candidateTrie;
+  private FlatCandidateTrie lookaheadCandidateTrie;
+  private String countEngine = TrieEngine;
+  private int numberOfThreads = 1;
+  
+  private MultipleOutputs<Text,Text> mos;
+  private String trimmedOutputPath;
+  private BitSet trimItems;
+  private int trimLevel;
+  private final TransactionWritable trimmed = new TransactionWritable();
+  private final VIntWritable tid = new VIntWritable();
+  private int lineNumber = 0;
   
   @Override
   public void setup(Context context) throws IOException {
-    Configuration conf = context.getConfiguration();
-    delimiter = conf.get(DELIMITER_KEY, " ");
+    conf = context.getConfiguration();
     
     Path[] localCacheFiles = getLocalCacheFiles(conf);
     countTrie = new ItemSetTrie.SupportCountItemsetTrie(-1);
     if (localCacheFiles != null) {
       String filename = localCacheFiles[0].toString();
-      phase = readCountTrieFromItemSetsFile(filename, countTrie) + 1;
-      singletons = getSingletonsFromCountTrie(countTrie);
+      if (CountMinSketch.isSketchFile(filename)) {
+        sketch = CountMinSketch.read(conf, localCacheFiles[0]);
+        minSup = conf.getInt(MIN_SUP_KEY, 1);
+      } else {
+        List<String> filenames = newArrayList();
+        for (Path localCacheFile : localCacheFiles) {
+          if (ItemRecoding.isRecodingFile(localCacheFile.toString())) {
+            recodingFile = localCacheFile.toString();
+          } else {
+            filenames.add(localCacheFile.toString());
+          }
+        }
+        InputSplit split = context.getInputSplit();
+        if (split instanceof ReplicatedSplit) {
+          partition = ((ReplicatedSplit) split).getReplica();
+          numberOfPartitions = ((ReplicatedSplit) split).getReplicas();
+        }
+        // a mapper only loads its own partition of every file
+        passes = getPasses(filenames, getMapperHeapBudget(conf) * numberOfPartitions);
+        loadCandidates(passes.get(0));
+      }
+    }
+    
+    countEngine = conf.get(COUNT_ENGINE_KEY, TrieEngine);
+    numberOfThreads = conf.getInt(MAPPER_THREADS_KEY, 1);
+    
+    int numberOfBuckets = conf.getInt(DHP_BUCKETS_KEY, 0);
+    if (phase == 1 && numberOfBuckets > 0) {
+      dhpCounts = new int[numberOfBuckets];
+    }
+    
+    if (conf.getBoolean(TRIM_TRANSACTIONS_KEY, false) && recoding != null) {
+      setupTrimming(context);
     }
   }
   
+  /**
+   * Prepares writing the transactions for the next phase. Only the items of the deepest candidates counted in this
+   * phase are kept: every candidate of the next phase has all its subsets of this level frequent, so its items occur
+   * in these candidates. A transaction is written only if it keeps more items than the length of these candidates. If
+   * the candidates are divided over multiple passes, only the transactions that are too short are dropped.
+   */
+  private void setupTrimming(Context context) {
+    boolean lookahead = lookaheadTrie != null || lookaheadCandidateTrie != null;
+    trimLevel = lookahead ? phase + 1 : phase;
+    if (passes.size() == 1) {
+      trimItems = new BitSet(recoding.size());
+      if (countTrie != null) {
+        collectItems(lookaheadTrie == null ? countTrie : lookaheadTrie, trimItems);
+      } else {
+        collectItems(lookaheadCandidateTrie == null ? candidateTrie : lookaheadCandidateTrie, trimItems);
+      }
+    }
+    trimmedOutputPath = createPath(getJobAbsoluteOutputDir(context), TrimmedDir + (trimLevel + 1), TrimmedOutput);
+    mos = new MultipleOutputs<Text,Text>(context);
+  }
+  
+  private static void collectItems(ItemSetTrie trie, BitSet items) {
+    for (ItemSetTrie child : trie.children.values()) {
+      items.set(child.id);
+      collectItems(child, items);
+    }
+  }
+  
+  private static void collectItems(FlatCandidateTrie trie, BitSet items) {
+    for (int ix = 0; ix < trie.childrenEnd(trie.numberOfNodes() - 1); ix++) {
+      items.set(trie.itemAt(ix));
+    }
+  }
+  
+  /**
+   * Runs the mapper once for every pass. The first pass reads the records from the context, every next pass reads the
+   * split again with a new record reader.
+   */
   @Override
-  public void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
-    String line = value.toString();
-    List<Integer> items = convertLineToSet(line, phase == 1, singletons, delimiter);
-    incrementSubSets(items);
+  public void run(Context context) throws IOException, InterruptedException {
+    setup(context);
+    while (context.nextKeyValue()) {
+      map(context.getCurrentKey(), context.getCurrentValue(), context);
+    }
+    cleanup(context);
+    if (mos != null) {
+      mos.close();
+      mos = null;
+    }
+    for (int pass = 1; pass < passes.size(); pass++) {
+      loadCandidates(passes.get(pass));
+      RecordReader<Object,Writable> reader = reopenSplit(context);
+      try {
+        while (reader.nextKeyValue()) {
+          map(reader.getCurrentKey(), reader.getCurrentValue(), context);
+        }
+      } finally {
+        reader.close();
+      }
+      cleanup(context);
+    }
+  }
+  
+  @Override
+  public void map(Object key, Writable value, Context context) throws IOException, InterruptedException {
+    int length;
+    int[] items;
+    int transactionId;
+    if (value instanceof TransactionWritable) {
+      transactionId = ((VIntWritable) key).get();
+      length = ((TransactionWritable) value).getLength();
+      items = ((TransactionWritable) value).getItems();
+    } else {
+      transactionId = lineNumber++;
+      length = tokenize((Text) value);
+      items = tokenizer.getItems();
+    }
+    if (mos != null) {
+      writeTrimmed(transactionId, items, length);
+    }
+    if (sketch != null) {
+      length = removeInfrequentFromSketch(items, length);
+    }
+    incrementSubSets(items, length);
+    if (dhpCounts != null) {
+      DhpBuckets.countPairs(items, length, dhpCounts);
+    }
   }
   
   @Override
   public void cleanup(Context context) throws IOException, InterruptedException {
-    recReport(context, new StringBuilder(), countTrie);
+    if (counter != null) {
+      counter.finish();
+    }
+    if (countTrie != null) {
+      report(context, countTrie);
+    } else {
+      report(context, candidateTrie);
+    }
+    if (lookaheadCounter != null) {
+      lookaheadCounter.finish();
+      if (lookaheadTrie != null) {
+        report(context, lookaheadTrie);
+      } else {
+        report(context, lookaheadCandidateTrie);
+      }
+    }
+    if (dhpCounts != null) {
+      reportBuckets(context);
+    }
+  }
+  
+  /**
+   * Divides the candidate files over passes over the split, such that the candidates of a pass fit in the heap budget.
+   * The candidates are counted with the arrays of the files, so their size follows from the file size and the number
+   * of supports. A file that does not fit on its own gets a pass of its own.
+   * 
+   * @param filenames
+   *          the names of the local candidate files
+   * @param heapBudget
+   *          number of bytes available for the candidates
+   * @return the names of the candidate files per pass
+   * @throws IOException
+   */
+  static List<List<String>> getPasses(List<String> filenames, long heapBudget) throws IOException {
+    List<List<String>> passes = newArrayList();
+    List<String> pass = newArrayList();
+    long passSize = 0;
+    for (String filename : filenames) {
+      long size = CandidateTrieFile.estimateSize(filename);
+      if (!pass.isEmpty() && passSize + size > heapBudget) {
+        passes.add(pass);
+        pass = newArrayList();
+        passSize = 0;
+      }
+      pass.add(filename);
+      passSize += size;
+    }
+    passes.add(pass);
+    return passes;
+  }
+  
+  /**
+   * Replaces the candidates by the candidates of the given files.
+   */
+  private void loadCandidates(List<String> filenames) throws IOException {
+    Candidates candidates = Candidates.get(conf, filenames, recodingFile, false, partition, numberOfPartitions);
+    countTrie = candidates.countTrie;
+    lookaheadTrie = candidates.lookaheadTrie;
+    candidateTrie = candidates.candidateTrie;
+    lookaheadCandidateTrie = candidates.lookaheadCandidateTrie;
+    singletons = candidates.singletons;
+    recoding = candidates.recoding;
+    phase = candidates.phase;
+    counter = null;
+    lookaheadCounter = null;
+  }
+  
+  @SuppressWarnings("unchecked")
+  private static RecordReader<Object,Writable> reopenSplit(Context context) throws IOException, InterruptedException {
+    try {
+      InputFormat<Object,Writable> inputFormat = (InputFormat<Object,Writable>) ReflectionUtils
+          .newInstance(context.getInputFormatClass(), context.getConfiguration());
+      RecordReader<Object,Writable> reader = inputFormat.createRecordReader(context.getInputSplit(), context);
+      reader.initialize(context.getInputSplit(), context);
+      return reader;
+    } catch (ClassNotFoundException e) {
+      throw new IOException(e);
+    }
+  }
+  
+  private int tokenize(Text value) {
+    if (recoding != null) {
+      return tokenizer.tokenize(value, recoding);
+    }
+    return tokenizer.tokenize(value, phase == 1 ? null : singletons);
+  }
+  
+  /**
+   * Writes the items of a transaction that can occur in a candidate of the next phase, keyed by the tid of the
+   * transaction in the chunk, such that the prefix groups computed from trimmed transactions have the same tids.
+   */
+  private void writeTrimmed(int transactionId, int[] items, int length) throws IOException, InterruptedException {
+    if (length <= trimLevel) {
+      return;
+    }
+    int[] trimmedItems = Arrays.copyOf(items, length);
+    int trimmedLength = length;
+    if (trimItems != null) {
+      trimmedLength = 0;
+      for (int i = 0; i < length; i++) {
+        if (trimItems.get(items[i])) {
+          trimmedItems[trimmedLength++] = items[i];
+        }
+      }
+    }
+    if (trimmedLength > trimLevel) {
+      tid.set(transactionId);
+      trimmed.set(trimmedItems, trimmedLength);
+      mos.write(TrimmedOutput, tid, trimmed, trimmedOutputPath);
+    }
+  }
+  
+  /**
+   * Removes the items from a transaction whose estimated support is below minimum support.
+   * 
+   * @return the number of items left
+   */
+  private int removeInfrequentFromSketch(int[] items, int length) {
+    int frequentLength = 0;
+    for (int i = 0; i < length; i++) {
+      if (sketch.estimate(items[i]) >= minSup) {
+        items[frequentLength++] = items[i];
+      }
+    }
+    return frequentLength;
+  }
+  
+  private void reportBuckets(Context context) throws IOException, InterruptedException {
+    Text key = new Text(DhpBuckets.Key);
+    for (int bucket = 0; bucket < dhpCounts.length; bucket++) {
+      if (dhpCounts[bucket] != 0) {
+        context.write(key, new Text(bucket + " " + dhpCounts[bucket]));
+      }
+    }
+  }
+  
+  private void report(Context context, ItemSetTrie trie) throws IOException, InterruptedException {
+    if (recoding == null) {
+      recReport(context, new StringBuilder(), trie);
+    } else {
+      recReportRecoded(context, new int[phase + 1], 0, trie);
+    }
   }
   
   private void recReport(Context context, StringBuilder builder, ItemSetTrie trie)
@@ -181,32 +497,100 @@ public class AprioriPhaseMapper extends Mapper<LongWritable,Text,Text,Text> {
     }
   }
   
-  private void incrementSubSets(List<Integer> items) {
-    if (items.size() < phase) {
+  /**
+   * Reports the supports of recoded candidates. The ids are translated back to items and the prefix and extension are
+   * taken from the items in their own order.
+   */
+  private void recReportRecoded(Context context, int[] itemset, int depth, ItemSetTrie trie)
+      throws IOException, InterruptedException {
+    for (ItemSetTrie recTrie : trie.children.values()) {
+      itemset[depth] = recTrie.id;
+      if (!recTrie.children.isEmpty()) {
+        recReportRecoded(context, itemset, depth + 1, recTrie);
+        continue;
+      }
+      int support = ((SupportCountItemsetTrie) recTrie).support;
+      if (support != 0) {
+        writeRecoded(context, itemset, depth, support);
+      }
+    }
+  }
+  
+  /**
+   * Reports the supports of the candidates read from candidate trie files, which are always recoded.
+   */
+  private void report(Context context, FlatCandidateTrie trie) throws IOException, InterruptedException {
+    recReportRecoded(context, new int[trie.getLeafDepth()], 0, trie, 0);
+  }
+  
+  private void recReportRecoded(Context context, int[] itemset, int depth, FlatCandidateTrie trie, int node)
+      throws IOException, InterruptedException {
+    for (int ix = trie.childrenBegin(node); ix < trie.childrenEnd(node); ix++) {
+      itemset[depth] = trie.itemAt(ix);
+      int target = trie.targetAt(ix);
+      if (target >= 0) {
+        recReportRecoded(context, itemset, depth + 1, trie, target);
+        continue;
+      }
+      int support = trie.getSupport(~target);
+      if (support != 0) {
+        writeRecoded(context, itemset, depth, support);
+      }
+    }
+  }
+  
+  private void writeRecoded(Context context, int[] itemset, int depth, int support)
+      throws IOException, InterruptedException {
+    int[] items = recoding.toItems(itemset, depth + 1);
+    Text key = new Text(Joiner.on(' ').join(Ints.asList(items).subList(0, depth)));
+    Text value = new Text(items[depth] + " " + support);
+    context.write(key, value);
+  }
+  
+  private void incrementSubSets(int[] items, int length) throws IOException, InterruptedException {
+    if (length < phase) {
       return;
     }
     
     if (phase == 1) {
-      for (int i = 0; i < items.size(); i++) {
-        ItemSetTrie recTrie = countTrie.getChild(items.get(i));
+      for (int i = 0; i < length; i++) {
+        ItemSetTrie recTrie = countTrie.getChild(items[i]);
         recTrie.addTid(1);
       }
       return;
     }
     
-    doRecursiveCount(items, 0, countTrie);
-  }
-  
-  private void doRecursiveCount(List<Integer> items, int ix, ItemSetTrie trie) {
-    for (int i = ix; i < items.size(); i++) {
-      ItemSetTrie recTrie = trie.children.get(items.get(i));
-      if (recTrie != null) {
-        if (recTrie.children.isEmpty()) {
-          recTrie.addTid(1);
-        } else {
-          doRecursiveCount(items, i + 1, recTrie);
+    if (counter == null) {
+      if (candidateTrie == null) {
+        candidateTrie = new FlatCandidateTrie(countTrie);
+        if (lookaheadTrie != null) {
+          lookaheadCandidateTrie = new FlatCandidateTrie(lookaheadTrie);
         }
       }
+      counter = createCounter(candidateTrie);
+      if (lookaheadCandidateTrie != null) {
+        lookaheadCounter = createCounter(lookaheadCandidateTrie);
+      }
+    }
+    counter.add(items, length);
+    if (lookaheadCounter != null) {
+      lookaheadCounter.add(items, length);
+    }
+  }
+  
+  private CandidateCounter createCounter(FlatCandidateTrie candidates) {
+    if (countEngine.equals(SortedEngine)) {
+      return new SortedCandidateCounter(candidates);
+    }
+    if (countEngine.equals(PrefixTreeEngine)) {
+      return new PrefixTreeCandidateCounter(candidates);
+    }
+    if (countEngine.equals(BitmapEngine)) {
+      return new BitmapCandidateCounter(candidates);
+    }
+    if (numberOfThreads > 1) {
+      return new ParallelCandidateCounter(candidates, numberOfThreads);
     }
+    return new TrieCandidateCounter(candidates);
   }
 }
\ No newline at end of file
@@ -16,6 +16,7 @@
  */
 package be.uantwerpen.adrem.bigfim;
 
+import static be.uantwerpen.adrem.bigfim.Tools.ItemDelimiter;
 import static be.uantwerpen.adrem.disteclat.DistEclatDriver.OShortFIs;
 import static be.uantwerpen.adrem.eclat.util.TrieDumper.CLOSESUP;
 import static be.uantwerpen.adrem.eclat.util.TrieDumper.OPENSUP;
@@ -23,6 +24,7 @@ import static be.uantwerpen.adrem.eclat.util.TrieDumper.SEPARATOR;
 import static be.uantwerpen.adrem.eclat.util.TrieDumper.SYMBOL;
 import static be.uantwerpen.adrem.hadoop.util.Tools.createPath;
 import static be.uantwerpen.adrem.hadoop.util.Tools.getJobAbsoluteOutputDir;
+import static be.uantwerpen.adrem.hadoop.util.Tools.getMapperHeapBudget;
 import static be.uantwerpen.adrem.util.FIMOptions.MIN_SUP_KEY;
 import static com.google.common.collect.Maps.newHashMap;
 import static com.google.common.collect.Sets.newHashSet;
@@ -31,6 +33,7 @@ import static java.lang.Math.max;
 import static java.lang.String.valueOf;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -97,8 +100,28 @@ import be.uantwerpen.adrem.hadoop.util.Tools.NameStartsWithFilter;
  * "1 2"          "4"
  * "1 3"          "1"
  * "2 3"          "2"
+ * 
+ * 
+ * 
+ * DHP Buckets, MinSup=2:
+ * ======================
+ * 
+ * Input:
+ * Text           Iterable<Text>
+ * (Key)          (<Bucket + Count in sub databases>)
+ * "#"            <"4 1", "7 1", "4 2", "9 1">
+ * 
+ * Output:
+ * Text           Writable
+ * (Bucket)       (Total count)             | Written to dhp1
+ * "4"            "3"
  * }
  * </pre>
+ * 
+ * The prefixes arrive in descending order (see {@link PrefixComparator}), so the prefix groups holding the subsets of
+ * the candidates of a prefix group are reduced before it. The reducer keeps the frequent extensions of its prefix
+ * groups as sorted arrays and estimates the size of a prefix group from the candidates that survive pruning, while it
+ * writes the trie groups.
  */
 public class AprioriPhaseReducer extends Reducer<Text,Text,Text,Writable> {
   
@@ -106,17 +129,45 @@ public class AprioriPhaseReducer extends Reducer<Text,Text,Text,Writable> {
   public static final String COUNTER_NRPREFIXGROUPS = "NumberOfPrefixGroups";
   public static final String COUNTER_NRLARGEPREFIXGROUPS = "NumberOfLargePrefixGroups";
   
-  public static final int MAXCANDIDATESSIZE = 10000;
+  /**
+   * First free trie group and fis index, determined by the driver before the job. With multiple reducers, reducer r
+   * uses the indices first + r, first + r + N, ... such that the indices are unique over all reducers.
+   */
+  public static final String TRIE_GROUP_INDEX_KEY = "trie_group_index";
+  public static final String FIS_INDEX_KEY = "fis_index";
+  
+  /**
+   * Set if the mappers also count the candidates of the next level. The results of that level are recognized by their
+   * prefix of phase items and written to the trie groups and fis files of the next phase. The large prefix group
+   * counter then refers to the next level.
+   */
+  public static final String LOOKAHEAD_KEY = "lookahead";
+  
+  private static final int[] NoExtensions = new int[0];
   
   private final Map<String,MutableInt> map = newHashMap();
+  private final Map<String,MutableInt> lookaheadMap = newHashMap();
+  
+  private final Map<String,int[]> frequents = newHashMap();
+  private final Map<String,int[]> lookaheadFrequents = newHashMap();
+  private final PrefixPartitioner partitioner = new PrefixPartitioner();
   
-  private int currTrieGroupSize = 0;
+  private long currTrieGroupSize = 0;
+  private long heapBudget = Long.MAX_VALUE;
   
   private int minSup;
   
   private String baseDir;
   private int tgIndex;
   private int fisIndex;
+  private int reducer = 0;
+  private int numberOfReducers = 1;
+  
+  private boolean lookahead = false;
+  private String lookaheadPhase;
+  private int lookaheadTgIndex;
+  private long lookaheadTrieGroupSize = 0;
+  private String lookaheadOutputPathFis;
   
   private MultipleOutputs<Text,Writable> mos;
   private String aprioriPhase;
@@ -127,12 +178,23 @@ public class AprioriPhaseReducer extends Reducer<Text,Text,Text,Writable> {
     Configuration conf = context.getConfiguration();
     
     minSup = conf.getInt(MIN_SUP_KEY, 1);
+    heapBudget = getMapperHeapBudget(conf);
     
     getBaseDirs(context);
-    tgIndex = getLargestIndex(conf, new Path(createPath(baseDir, "tg" + aprioriPhase)), "trieGroup", 1) + 1;
-    fisIndex = getLargestIndex(conf, new Path(createPath(baseDir, OShortFIs)), "fis-" + aprioriPhase, 2) + 1;
+    reducer = context.getTaskAttemptID().getTaskID().getId();
+    numberOfReducers = context.getNumReduceTasks();
+    tgIndex = conf.getInt(TRIE_GROUP_INDEX_KEY, getFirstTrieGroupIndex(conf, baseDir, aprioriPhase)) + reducer;
+    fisIndex = conf.getInt(FIS_INDEX_KEY, getFirstFisIndex(conf, baseDir, aprioriPhase)) + reducer;
     baseOutputPathFis = createPath(baseDir, OShortFIs, "fis-" + aprioriPhase + "-" + fisIndex);
     
+    lookahead = conf.getBoolean(LOOKAHEAD_KEY, false);
+    if (lookahead) {
+      // a lookahead job is the only job of its phase, so the next phase has no trie groups or fis files yet
+      lookaheadPhase = valueOf(parseInt(aprioriPhase) + 1);
+      lookaheadTgIndex = reducer;
+      lookaheadOutputPathFis = createPath(baseDir, OShortFIs, "fis-" + lookaheadPhase + "-" + reducer);
+    }
+    
     mos = new MultipleOutputs<Text,Writable>(context);
   }
   
@@ -146,12 +208,32 @@ public class AprioriPhaseReducer extends Reducer<Text,Text,Text,Writable> {
     }
     
     String prefix = key.toString();
+    if (prefix.equals(DhpBuckets.Key)) {
+      writeDhpBuckets(supports);
+      return;
+    }
     
-    writeShortFis(prefix, supports);
-    if (!supports.isEmpty()) {
-      writeTrieGroup(prefix, supports);
-      updatePGInfo(prefix, supports);
+    if (lookahead && isLookaheadPrefix(prefix)) {
+      writeShortFis(prefix, supports, lookaheadOutputPathFis);
+      long size = estimateTrieSize(prefix, addFrequents(prefix, supports, lookaheadFrequents), lookaheadFrequents);
+      writeTrieGroup(prefix, supports,
+          createPath(baseDir, "tg" + lookaheadPhase, "trieGroup-" + getLookaheadOutputDirIx(size)));
+      updatePGInfo(prefix, supports, lookaheadMap);
+      return;
     }
+    
+    writeShortFis(prefix, supports, baseOutputPathFis);
+    if (prefix.isEmpty()) {
+      writeTrieGroup(prefix, supports, createPath(baseDir, "tg" + aprioriPhase, "trieGroup-0"));
+    } else {
+      long size = estimateTrieSize(prefix, addFrequents(prefix, supports, frequents), frequents);
+      writeTrieGroup(prefix, supports, createPath(baseDir, "tg" + aprioriPhase, "trieGroup-" + getOutputDirIx(size)));
+    }
+    updatePGInfo(prefix, supports, map);
+  }
+  
+  private boolean isLookaheadPrefix(String prefix) {
+    return prefix.split(" ").length == parseInt(aprioriPhase);
   }
   
   @Override
@@ -176,7 +258,37 @@ public class AprioriPhaseReducer extends Reducer<Text,Text,Text,Writable> {
     }
   }
   
-  private int getLargestIndex(Configuration conf, Path path, String prefix, int index) {
+  /**
+   * Gets the first index that is not used by the trie groups of a phase.
+   * 
+   * @param conf
+   *          hadoop configuration object
+   * @param baseDir
+   *          the output directory of the run
+   * @param phase
+   *          the Apriori phase
+   * @return the first free trie group index
+   */
+  public static int getFirstTrieGroupIndex(Configuration conf, String baseDir, String phase) {
+    return getLargestIndex(conf, new Path(createPath(baseDir, "tg" + phase)), "trieGroup", 1) + 1;
+  }
+  
+  /**
+   * Gets the first index that is not used by the short frequent itemset files of a phase.
+   * 
+   * @param conf
+   *          hadoop configuration object
+   * @param baseDir
+   *          the output directory of the run
+   * @param phase
+   *          the Apriori phase
+   * @return the first free fis index
+   */
+  public static int getFirstFisIndex(Configuration conf, String baseDir, String phase) {
+    return getLargestIndex(conf, new Path(createPath(baseDir, OShortFIs)), "fis-" + phase, 2) + 1;
+  }
+  
+  private static int getLargestIndex(Configuration conf, Path path, String prefix, int index) {
     int largestIx = -1;
     try {
       FileSystem fs = path.getFileSystem(conf);
@@ -213,16 +325,23 @@ public class AprioriPhaseReducer extends Reducer<Text,Text,Text,Writable> {
     }
   }
   
-  private void writeTrieGroup(String prefix, Map<String,MutableInt> supports) throws IOException, InterruptedException {
-    String baseOutputPath = createPath(baseDir, "tg" + aprioriPhase,
-        "trieGroup-" + (prefix.isEmpty() ? 0 : getOutputDirIx(prefix, supports)));
+  private void writeTrieGroup(String prefix, Map<String,MutableInt> supports, String baseOutputPath)
+      throws IOException, InterruptedException {
     for (Entry<String,MutableInt> entry : supports.entrySet()) {
       String itemset = prefix.isEmpty() ? entry.getKey() : prefix + " " + entry.getKey();
       mos.write(new Text(itemset), new Text(entry.getValue().intValue() + ""), baseOutputPath);
     }
   }
   
-  private void writeShortFis(String prefix, Map<String,MutableInt> supports) throws IOException, InterruptedException {
+  private void writeDhpBuckets(Map<String,MutableInt> bucketCounts) throws IOException, InterruptedException {
+    String baseOutputPath = createPath(baseDir, DhpBuckets.OutputDir, DhpBuckets.BucketsFile);
+    for (Entry<String,MutableInt> entry : bucketCounts.entrySet()) {
+      mos.write(new Text(entry.getKey()), new Text(entry.getValue().intValue() + ""), baseOutputPath);
+    }
+  }
+  
+  private void writeShortFis(String prefix, Map<String,MutableInt> supports, String baseOutputPath)
+      throws IOException, InterruptedException {
     StringBuilder builder = new StringBuilder();
     if (!prefix.isEmpty()) {
       builder.append(prefix.replace(" ", valueOf(SEPARATOR)));
@@ -235,20 +354,44 @@ public class AprioriPhaseReducer extends Reducer<Text,Text,Text,Writable> {
       builder.append(CLOSESUP);
       builder.append(SYMBOL);
     }
-    mos.write(new Text("" + supports.size()), new Text(builder.substring(0, builder.length() - 1)), baseOutputPathFis);
+    mos.write(new Text("" + supports.size()), new Text(builder.substring(0, builder.length() - 1)), baseOutputPath);
+  }
+  
+  /**
+   * Keeps the frequent extensions of a prefix group to prune the candidates of the prefix groups reduced later.
+   * 
+   * @return the extensions in ascending order
+   */
+  static int[] addFrequents(String prefix, Map<String,MutableInt> supports, Map<String,int[]> frequents) {
+    int[] extensions = new int[supports.size()];
+    int ix = 0;
+    for (String extension : supports.keySet()) {
+      extensions[ix++] = parseInt(extension);
+    }
+    Arrays.sort(extensions);
+    frequents.put(prefix, extensions);
+    return extensions;
   }
   
-  private int getOutputDirIx(String prefix, Map<String,MutableInt> supports) {
-    int size = getMaxNumberOfCandidates(supports.size());
-    if (currTrieGroupSize != 0 && currTrieGroupSize + size > MAXCANDIDATESSIZE) {
+  private int getOutputDirIx(long size) {
+    if (currTrieGroupSize != 0 && currTrieGroupSize + size > heapBudget) {
       currTrieGroupSize = 0;
-      tgIndex++;
+      tgIndex += numberOfReducers;
     }
     currTrieGroupSize += size;
     return tgIndex;
   }
   
-  private void updatePGInfo(String prefix, Map<String,MutableInt> supports) {
+  private int getLookaheadOutputDirIx(long size) {
+    if (lookaheadTrieGroupSize != 0 && lookaheadTrieGroupSize + size > heapBudget) {
+      lookaheadTrieGroupSize = 0;
+      lookaheadTgIndex += numberOfReducers;
+    }
+    lookaheadTrieGroupSize += size;
+    return lookaheadTgIndex;
+  }
+  
+  private static void updatePGInfo(String prefix, Map<String,MutableInt> supports, Map<String,MutableInt> map) {
     int totSupport = 0;
     for (MutableInt support : supports.values()) {
       totSupport += support.intValue();
@@ -257,6 +400,7 @@ public class AprioriPhaseReducer extends Reducer<Text,Text,Text,Writable> {
   }
   
   private void updatePGCounters(Context context) {
+    Map<String,MutableInt> map = lookahead ? lookaheadMap : this.map;
     int nrPG = map.size();
     int largePG = 0;
     for (Entry<String,MutableInt> m : map.entrySet()) {
@@ -269,11 +413,85 @@ public class AprioriPhaseReducer extends Reducer<Text,Text,Text,Writable> {
     context.getCounter(COUNTER_GROUPNAME, COUNTER_NRLARGEPREFIXGROUPS).setValue(largePG);
   }
   
-  private int getMaxNumberOfCandidates(int n) {
-    int max = 0;
-    for (int i = n - 1; i > 0; i--) {
-      max += i;
+  /**
+   * Estimates the memory a mapper needs for the candidates generated from a prefix group. Every pair of extensions is a
+   * candidate unless one of its subsets is missing from the frequent itemsets of the prefix groups reduced before.
+   * Subsets in prefix groups of other reducers are not known here and are assumed to be frequent, so the estimate is
+   * never below the number of candidates that survive the pruning in the driver.
+   * 
+   * @param prefix
+   *          the items of the prefix
+   * @param extensions
+   *          the frequent extensions of the prefix in ascending order
+   * @param frequents
+   *          the frequent extensions of the prefix groups reduced before
+   * @return the estimated size in bytes
+   */
+  long estimateTrieSize(String prefix, int[] extensions, Map<String,int[]> frequents) {
+    String[] prefixItems = prefix.split(ItemDelimiter);
+    int[][] subsetExtensions = new int[prefixItems.length][];
+    long candidates = 0;
+    for (int i = 0; i < extensions.length; i++) {
+      for (int skipIx = 0; skipIx < prefixItems.length; skipIx++) {
+        subsetExtensions[skipIx] = getSubsetExtensions(prefixItems, skipIx, extensions[i], frequents);
+      }
+      for (int j = i + 1; j < extensions.length; j++) {
+        if (hasFrequentSubsets(subsetExtensions, extensions[j])) {
+          candidates++;
+        }
+      }
+    }
+    return estimateTrieSize(prefixItems.length, extensions.length, candidates);
+  }
+  
+  /**
+   * Gets the frequent extensions of the prefix group holding the subsets that skip a prefix item and contain the given
+   * extension.
+   * 
+   * @return the frequent extensions, or null if the prefix group belongs to another reducer
+   */
+  private int[] getSubsetExtensions(String[] prefixItems, int skipIx, int extension, Map<String,int[]> frequents) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < prefixItems.length; i++) {
+      if (i != skipIx) {
+        builder.append(prefixItems[i]).append(ItemDelimiter);
+      }
     }
-    return max;
+    String prefix = builder.append(extension).toString();
+    if (!isOwnPrefixGroup(prefix)) {
+      return null;
+    }
+    int[] extensions = frequents.get(prefix);
+    return extensions == null ? NoExtensions : extensions;
+  }
+  
+  private static boolean hasFrequentSubsets(int[][] subsetExtensions, int extension) {
+    for (int[] extensions : subsetExtensions) {
+      if (extensions != null && Arrays.binarySearch(extensions, extension) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+  
+  private boolean isOwnPrefixGroup(String prefix) {
+    return numberOfReducers == 1 || partitioner.getPartition(new Text(prefix), null, numberOfReducers) == reducer;
+  }
+  
+  /**
+   * Estimates the memory a mapper needs for the candidates generated from a prefix and its extensions, which it counts
+   * in a {@link FlatCandidateTrie}. The nodes on the path of the prefix are counted as well, even though they may be
+   * shared with other prefixes in the same trie group.
+   * 
+   * @param prefixLength
+   *          number of items in the prefix
+   * @param extensions
+   *          number of frequent extensions of the prefix
+   * @param candidates
+   *          number of candidates generated from the extensions
+   * @return the estimated size in bytes
+   */
+  public static long estimateTrieSize(int prefixLength, int extensions, long candidates) {
+    return FlatCandidateTrie.estimateSize(prefixLength + extensions, candidates);
   }
-}
\ No newline at end of file
+}
@@ -18,21 +18,42 @@ package be.uantwerpen.adrem.bigfim;
 
 import static be.uantwerpen.adrem.bigfim.AprioriPhaseReducer.COUNTER_GROUPNAME;
 import static be.uantwerpen.adrem.bigfim.AprioriPhaseReducer.COUNTER_NRLARGEPREFIXGROUPS;
+import static be.uantwerpen.adrem.bigfim.AprioriPhaseReducer.FIS_INDEX_KEY;
+import static be.uantwerpen.adrem.bigfim.AprioriPhaseReducer.LOOKAHEAD_KEY;
+import static be.uantwerpen.adrem.bigfim.AprioriPhaseReducer.TRIE_GROUP_INDEX_KEY;
+import static be.uantwerpen.adrem.bigfim.AprioriPhaseReducer.getFirstFisIndex;
+import static be.uantwerpen.adrem.bigfim.AprioriPhaseReducer.getFirstTrieGroupIndex;
+import static be.uantwerpen.adrem.bigfim.Tools.HeadDelimiter;
+import static be.uantwerpen.adrem.bigfim.Tools.readItemSetsTrie;
+import static be.uantwerpen.adrem.hadoop.util.ReplicatedSplitInputFormat.NUMBER_OF_REPLICAS;
+import static be.uantwerpen.adrem.hadoop.util.SplitByKTextInputFormat.LINE_INDEX_KEY;
 import static be.uantwerpen.adrem.hadoop.util.SplitByKTextInputFormat.NUMBER_OF_CHUNKS;
+import static be.uantwerpen.adrem.hadoop.util.SplitByKTextInputFormat.SPLIT_MODE_KEY;
 import static be.uantwerpen.adrem.hadoop.util.Tools.cleanDirs;
 import static be.uantwerpen.adrem.hadoop.util.Tools.cleanupAfterJob;
 import static be.uantwerpen.adrem.hadoop.util.Tools.prepareJob;
+import static be.uantwerpen.adrem.util.FIMOptions.COUNT_ENGINE_KEY;
 import static be.uantwerpen.adrem.util.FIMOptions.DELIMITER_KEY;
+import static be.uantwerpen.adrem.util.FIMOptions.DHP_BUCKETS_KEY;
+import static be.uantwerpen.adrem.util.FIMOptions.MAPPER_HEAP_BUDGET_KEY;
+import static be.uantwerpen.adrem.util.FIMOptions.MAPPER_THREADS_KEY;
 import static be.uantwerpen.adrem.util.FIMOptions.MIN_SUP_KEY;
 import static be.uantwerpen.adrem.util.FIMOptions.NUMBER_OF_LINES_KEY;
 import static be.uantwerpen.adrem.util.FIMOptions.NUMBER_OF_MAPPERS_KEY;
 import static be.uantwerpen.adrem.util.FIMOptions.OUTPUT_DIR_KEY;
 import static be.uantwerpen.adrem.util.FIMOptions.PREFIX_LENGTH_KEY;
+import static be.uantwerpen.adrem.util.FIMOptions.SKETCH_DEPTH_KEY;
+import static be.uantwerpen.adrem.util.FIMOptions.SKETCH_WIDTH_KEY;
+import static be.uantwerpen.adrem.util.FIMOptions.TRIM_TRANSACTIONS_KEY;
 import static java.io.File.separator;
+import static java.lang.String.valueOf;
 import static org.apache.hadoop.filecache.DistributedCache.addCacheFile;
 import static org.apache.hadoop.mapreduce.lib.input.FileInputFormat.setInputPaths;
+import static org.apache.hadoop.mapreduce.lib.output.MultipleOutputs.addNamedOutput;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
@@ -44,19 +65,31 @@ import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.VIntWritable;
+import org.apache.hadoop.mapreduce.InputFormat;
 import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Reducer;
 import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
 import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
 
+import be.uantwerpen.adrem.dictionary.DictionaryEncoder;
 import be.uantwerpen.adrem.eclat.EclatMinerMapper;
 import be.uantwerpen.adrem.eclat.EclatMinerReducer;
+import be.uantwerpen.adrem.hadoop.util.CountMinSketch;
 import be.uantwerpen.adrem.hadoop.util.IntArrayWritable;
 import be.uantwerpen.adrem.hadoop.util.IntMatrixWritable;
 import be.uantwerpen.adrem.hadoop.util.NoSplitSequenceFileInputFormat;
+import be.uantwerpen.adrem.hadoop.util.ReplicatedSplitInputFormat;
 import be.uantwerpen.adrem.hadoop.util.SplitByKTextInputFormat;
+import be.uantwerpen.adrem.hadoop.util.TransactionInputFormat;
+import be.uantwerpen.adrem.hadoop.util.TransactionWritable;
 import be.uantwerpen.adrem.util.FIMOptions;
+import be.uantwerpen.adrem.util.ItemRecoding;
+import be.uantwerpen.adrem.util.ItemSetTrie;
+
+import com.google.common.primitives.Ints;
 
 /**
  * Driver class for the BigFIM algorithm. This class calls all necessary map and reduce cycles and eventually writes the
@@ -86,6 +119,10 @@ public class BigFIMDriver implements Tool {
     cleanDirs(new String[] {opt.outputDir});
     long start = System.currentTimeMillis();
     
+    if (opt.stringItems) {
+      opt.inputFile = DictionaryEncoder.encode(opt);
+    }
+    
     int phase = startAprioriPhase(opt);
     if (canStartPrefixGeneration(opt, phase)) {
       startCreatePrefixGroups(opt, phase);
@@ -97,6 +134,9 @@ public class BigFIMDriver implements Tool {
     } else {
       System.out.println("[BigFIM]: No prefixes to extend further");
     }
+    if (opt.stringItems) {
+      DictionaryEncoder.decode(opt);
+    }
     cleanupAfterJob(opt);
     long end = System.currentTimeMillis();
     
@@ -119,7 +159,15 @@ public class BigFIMDriver implements Tool {
     conf.setInt(MIN_SUP_KEY, opt.minSup);
     conf.setInt(NUMBER_OF_MAPPERS_KEY, opt.nrMappers);
     conf.setInt(NUMBER_OF_CHUNKS, opt.nrMappers);
+    conf.set(SPLIT_MODE_KEY, opt.splitMode);
+    conf.setBoolean(LINE_INDEX_KEY, opt.lineIndex);
     conf.setInt(PREFIX_LENGTH_KEY, opt.prefixLength);
+    conf.setInt(DHP_BUCKETS_KEY, opt.dhpBuckets);
+    conf.setInt(MAPPER_THREADS_KEY, opt.mapperThreads);
+    conf.set(COUNT_ENGINE_KEY, opt.countEngine);
+    if (opt.heapBudgetMB > 0) {
+      conf.setLong(MAPPER_HEAP_BUDGET_KEY, opt.heapBudgetMB * 1024L * 1024L);
+    }
     conf.setStrings(OUTPUT_DIR_KEY, opt.outputDir);
   }
   
@@ -139,17 +187,43 @@ public class BigFIMDriver implements Tool {
       if (i == 1) {
         String outputDir = opt.outputDir + separator + "ap" + i;
         String info = "Apriori Phase " + i;
-        run = runAprioriOncPhaseOnce(opt, nrLines, i, info, outputDir, null);
+        List<String> cacheFiles = new ArrayList<String>();
+        if (opt.sketchWidth > 0) {
+          cacheFiles.add(startSketchPhase(opt));
+        }
+        run = runAprioriOncPhaseOnce(opt, nrLines, i, info, outputDir, cacheFiles, false);
+        createItemRecoding(opt);
+        if (run && opt.binaryInput) {
+          startIngestPhase(opt);
+        }
       } else {
         Path path = new Path(opt.outputDir + separator + "tg" + (i - 1));
-        for (FileStatus status : path.getFileSystem(new Configuration()).listStatus(path)) {
-          String cacheFile = status.getPath().toString();
-          String trieGroupCount = cacheFile.substring(cacheFile.lastIndexOf('/'), cacheFile.length());
-          trieGroupCount = trieGroupCount.split("-")[1];
-          String outputDir = opt.outputDir + separator + "ap" + i + "-trieGroup" + trieGroupCount;
+        FileSystem fs = path.getFileSystem(new Configuration());
+        if (!fs.exists(path)) {
+          System.out.println("[AprioriPhase]: No frequent itemsets of length " + (i - 1));
+          break;
+        }
+        ItemSetTrie frequents = readFrequents(path, i - 1);
+        DhpBuckets buckets = readDhpBuckets(opt, i - 1);
+        FileStatus[] trieGroups = fs.listStatus(path);
+        int lookaheadLimit = canLookahead(opt, i, trieGroups.length) ? opt.lookahead : 0;
+        boolean lookahead = false;
+        List<String> cacheFiles = new ArrayList<String>();
+        for (FileStatus status : trieGroups) {
+          int candidateCount = createCandidateTrieFile(opt, status.getPath(), i - 1, frequents, buckets,
+              lookaheadLimit);
+          String cacheFile = qualify(getCandidateTrieFile(opt, status.getPath(), i - 1));
           System.out.println("CacheFile " + cacheFile);
-          String info = "Apriori Phase " + i + ", Trie Group " + trieGroupCount;
-          run = runAprioriOncPhaseOnce(opt, nrLines, i, info, outputDir, cacheFile);
+          cacheFiles.add(cacheFile);
+          lookahead = lookaheadLimit > 0 && candidateCount <= lookaheadLimit;
+        }
+        addItemRecoding(opt, cacheFiles);
+        String outputDir = opt.outputDir + separator + "ap" + i;
+        String info = "Apriori Phase " + i + (lookahead ? "+" + (i + 1) : "") + ", " + trieGroups.length
+            + " Trie Groups";
+        run = runAprioriOncPhaseOnce(opt, nrLines, i, info, outputDir, cacheFiles, lookahead);
+        if (lookahead) {
+          i++;
         }
       }
       
@@ -158,33 +232,297 @@ public class BigFIMDriver implements Tool {
     return i - 1;
   }
   
+  /**
+   * Checks if the candidates of the next level can be counted in the same scan as the candidates of a phase. This is
+   * only done if the phase has a single trie group, such that the lookahead candidates can be pruned against all
+   * candidates of the phase, and if the next phase would be started anyway. The lookahead candidates are not
+   * partitioned, so they are not combined with candidate distribution.
+   * 
+   * @param opt
+   *          the options of the run
+   * @param phase
+   *          the phase whose candidates are counted
+   * @param numberOfTrieGroups
+   *          the number of trie groups the candidates are generated from
+   * @return true if lookahead candidates can be added
+   */
+  private static boolean canLookahead(FIMOptions opt, int phase, int numberOfTrieGroups) {
+    return opt.lookahead > 0 && numberOfTrieGroups == 1 && phase < opt.prefixLength && opt.candidatePartitions <= 1;
+  }
+  
+  /**
+   * Builds a Count-Min sketch of the item supports before the first Apriori phase. The first phase then only counts the
+   * items whose estimated support reaches minimum support, which bounds the size of the count tries and the data sent
+   * to the reducer when the number of distinct items is huge.
+   * 
+   * @param opt
+   *          the options of the run
+   * @return the fully qualified name of the sketch file
+   */
+  private String startSketchPhase(FIMOptions opt)
+      throws IOException, ClassNotFoundException, InterruptedException {
+    String outputDir = opt.outputDir + separator + "sketch";
+    System.out.println("[SketchPhase]: input: " + opt.inputFile + ", output: " + outputDir);
+    
+    Job job = prepareJob(new Path(opt.inputFile), new Path(outputDir), SplitByKTextInputFormat.class,
+        CountMinSketchMapper.class, IntWritable.class, CountMinSketch.class, CountMinSketchReducer.class,
+        IntWritable.class, CountMinSketch.class, SequenceFileOutputFormat.class);
+    
+    job.setJobName("Sketch Phase");
+    job.setJarByClass(BigFIMDriver.class);
+    job.setNumReduceTasks(1);
+    
+    Configuration conf = job.getConfiguration();
+    setConfigurationValues(conf, opt);
+    conf.setInt(SKETCH_WIDTH_KEY, opt.sketchWidth);
+    conf.setInt(SKETCH_DEPTH_KEY, opt.sketchDepth);
+    
+    runJob(job, "Sketch Phase");
+    
+    Path sketchFile = new Path(outputDir, "items" + CountMinSketch.Extension);
+    FileSystem fs = sketchFile.getFileSystem(conf);
+    fs.rename(new Path(outputDir, "part" + rExt), sketchFile);
+    return fs.makeQualified(sketchFile).toString();
+  }
+  
+  /**
+   * Recodes the frequent items found in the first phase to dense ids in ascending order of their supports. The mappers
+   * of the next phases use the recoding to filter and translate the items of their transactions, and translate the ids
+   * back when writing their output.
+   * 
+   * @param opt
+   *          the options of the run
+   * @throws IOException
+   */
+  private static void createItemRecoding(FIMOptions opt) throws IOException {
+    Configuration conf = new Configuration();
+    Path path = new Path(opt.outputDir + separator + "tg1");
+    FileSystem fs = path.getFileSystem(conf);
+    if (!fs.exists(path)) {
+      return;
+    }
+    List<Integer> items = new ArrayList<Integer>();
+    List<Integer> supports = new ArrayList<Integer>();
+    for (FileStatus status : fs.listStatus(path)) {
+      BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(status.getPath())));
+      try {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          String[] split = line.split(HeadDelimiter);
+          items.add(Integer.valueOf(split[0]));
+          supports.add(Integer.valueOf(split[1]));
+        }
+      } finally {
+        reader.close();
+      }
+    }
+    ItemRecoding recoding = ItemRecoding.byAscendingSupport(Ints.toArray(items), Ints.toArray(supports));
+    recoding.write(conf, getItemRecodingFile(opt));
+    System.out.println("[ItemRecoding]: " + recoding.size() + " frequent items recoded");
+  }
+  
+  private static Path getItemRecodingFile(FIMOptions opt) {
+    return new Path(opt.outputDir, "frequent" + ItemRecoding.Extension);
+  }
+  
+  private static void addItemRecoding(FIMOptions opt, List<String> cacheFiles) throws IOException {
+    Path path = getItemRecodingFile(opt);
+    if (path.getFileSystem(new Configuration()).exists(path)) {
+      cacheFiles.add(qualify(path));
+    }
+  }
+  
+  /**
+   * Converts the input once into binary transactions of recoded frequent items, which are read by all later scans
+   * instead of the text input. Every mapper writes the chunk it reads to a file of its own, such that the mappers
+   * reading the files get the same ids and the transaction ids of the prefix groups stay per mapper. The files are
+   * sequence files, so they carry sync markers and can be read by the standard record readers.
+   * 
+   * @param opt
+   *          the options of the run
+   */
+  private static void startIngestPhase(FIMOptions opt)
+      throws IOException, URISyntaxException, ClassNotFoundException, InterruptedException {
+    Path recodingFile = getItemRecodingFile(opt);
+    if (!recodingFile.getFileSystem(new Configuration()).exists(recodingFile)) {
+      return;
+    }
+    Path outputDir = getTransactionsDir(opt);
+    System.out.println("[IngestPhase]: input: " + opt.inputFile + ", output: " + outputDir);
+    
+    Job job = prepareJob(new Path(opt.inputFile), outputDir, SplitByKTextInputFormat.class,
+        TransactionIngestMapper.class, VIntWritable.class, TransactionWritable.class, Reducer.class,
+        VIntWritable.class, TransactionWritable.class, SequenceFileOutputFormat.class);
+    job.setJobName("Ingest Transactions");
+    job.setJarByClass(BigFIMDriver.class);
+    job.setNumReduceTasks(0);
+    
+    Configuration conf = job.getConfiguration();
+    setConfigurationValues(conf, opt);
+    addCacheFile(new URI(qualify(recodingFile).replace(" ", "%20")), conf);
+    
+    runJob(job, "Ingest Transactions");
+  }
+  
+  private static Path getTransactionsDir(FIMOptions opt) {
+    return new Path(opt.outputDir, "transactions");
+  }
+  
+  /**
+   * Gets the binary transactions to read when counting the candidates of a phase. These are the transactions trimmed by
+   * the previous phase if it trimmed them, otherwise the ingested transactions.
+   * 
+   * @param opt
+   *          the options of the run
+   * @param phase
+   *          the phase counting the candidates
+   * @return the directory with the binary transactions, or null if the text input has to be read
+   * @throws IOException
+   */
+  private static Path getTransactions(FIMOptions opt, int phase) throws IOException {
+    FileSystem fs = FileSystem.get(new Configuration());
+    Path trimmed = new Path(opt.outputDir, AprioriPhaseMapper.TrimmedDir + phase);
+    if (fs.exists(trimmed)) {
+      return trimmed;
+    }
+    Path ingested = getTransactionsDir(opt);
+    return fs.exists(ingested) ? ingested : null;
+  }
+  
+  /**
+   * Generates the candidates of a trie group once and writes them to a candidate trie file that is shipped to the
+   * mappers instead of the trie group itself. If the frequent items are recoded, the candidates are written with the
+   * ids of their items, such that the mappers can count them as they are read.
+   * 
+   * @param opt
+   *          the options of the run
+   * @param trieGroup
+   *          path to the trie group file
+   * @param phase
+   *          the phase that created the trie group
+   * @param frequents
+   *          all frequent itemsets created in the phase, used for pruning the candidates
+   * @param buckets
+   *          frequent DHP buckets used for pruning candidate pairs
+   * @param lookaheadLimit
+   *          the candidates of the next level are appended if there are at most this many candidates, 0 disables
+   * @return the number of candidates, not counting the lookahead candidates
+   * @throws IOException
+   */
+  private static int createCandidateTrieFile(FIMOptions opt, Path trieGroup, int phase, ItemSetTrie frequents,
+      DhpBuckets buckets, int lookaheadLimit) throws IOException {
+    Configuration conf = new Configuration();
+    Path candidateFile = getCandidateTrieFile(opt, trieGroup, phase);
+    Path recodingFile = getItemRecodingFile(opt);
+    ItemRecoding recoding = recodingFile.getFileSystem(conf).exists(recodingFile)
+        ? ItemRecoding.read(conf, recodingFile) : null;
+    int candidateCount = CandidateTrieFile.create(conf, trieGroup, candidateFile, frequents, buckets, recoding,
+        lookaheadLimit);
+    System.out.println("[CandidateGeneration]: " + candidateCount + " candidates for " + trieGroup.getName());
+    return candidateCount;
+  }
+  
+  private static Path getCandidateTrieFile(FIMOptions opt, Path trieGroup, int phase) {
+    return new Path(opt.outputDir + separator + "cand" + phase, trieGroup.getName() + CandidateTrieFile.Extension);
+  }
+  
+  private static String qualify(Path path) throws IOException {
+    return path.getFileSystem(new Configuration()).makeQualified(path).toString();
+  }
+  
+  /**
+   * Reads all frequent itemsets of a phase from its trie groups. Candidates generated from 1-itemsets have no other
+   * subsets than the ones they are generated from, so nothing is read for phase 1.
+   * 
+   * @param path
+   *          directory containing the trie groups of the phase
+   * @param phase
+   *          the phase that created the trie groups
+   * @return trie with the frequent itemsets of the phase or null if pruning is not needed
+   * @throws IOException
+   */
+  private static ItemSetTrie readFrequents(Path path, int phase) throws IOException {
+    if (phase < 2) {
+      return null;
+    }
+    return readItemSetsTrie(new Configuration(), path);
+  }
+  
+  /**
+   * Reads the frequent DHP buckets collected in the first phase. The buckets only apply to the candidate pairs that are
+   * generated from the trie groups of phase 1.
+   * 
+   * @param opt
+   *          the options of the run
+   * @param phase
+   *          the phase that created the trie groups
+   * @return the frequent buckets or null if DHP is disabled or does not apply
+   * @throws IOException
+   */
+  private static DhpBuckets readDhpBuckets(FIMOptions opt, int phase) throws IOException {
+    if (phase != 1 || opt.dhpBuckets <= 0) {
+      return null;
+    }
+    return DhpBuckets.read(new Configuration(), new Path(opt.outputDir + separator + DhpBuckets.OutputDir),
+        opt.dhpBuckets);
+  }
+  
   private boolean runAprioriOncPhaseOnce(FIMOptions opt, long nrLines, int i, String info, String outputDir,
-      String cacheFile) throws IOException, URISyntaxException, ClassNotFoundException, InterruptedException {
+      List<String> cacheFiles, boolean lookahead)
+      throws IOException, URISyntaxException, ClassNotFoundException, InterruptedException {
     int prefixSize = opt.prefixLength;
     
-    System.out.println("[AprioriPhase]: Phase: " + i + " input: " + opt.inputFile + ", output: " + opt.outputDir);
+    // the first phase has no candidates to distribute
+    boolean distributeCandidates = i > 1 && opt.candidatePartitions > 1;
+    Path input = new Path(opt.inputFile);
+    Class<? extends InputFormat<?, ?>> inputFormat = distributeCandidates ? ReplicatedSplitInputFormat.class
+        : SplitByKTextInputFormat.class;
+    Path transactions = i > 1 ? getTransactions(opt, i) : null;
+    if (transactions != null) {
+      input = transactions;
+      inputFormat = TransactionInputFormat.class;
+    }
+    // replicated mappers would write the same transactions and only know a partition of the candidates
+    boolean trim = opt.trimTransactions && i > 1 && !distributeCandidates;
+    
+    System.out.println("[AprioriPhase]: Phase: " + i + " input: " + input + ", output: " + opt.outputDir);
+    
+    Job job = prepareJob(input, new Path(outputDir), inputFormat, AprioriPhaseMapper.class, Text.class, Text.class,
+        AprioriPhaseReducer.class, Text.class, IntWritable.class, TextOutputFormat.class);
     
-    Job job = prepareJob(new Path(opt.inputFile), new Path(outputDir), SplitByKTextInputFormat.class,
-        AprioriPhaseMapper.class, Text.class, Text.class, AprioriPhaseReducer.class, Text.class, IntWritable.class,
-        TextOutputFormat.class);
-        
     job.setJobName(info);
     job.setJarByClass(BigFIMDriver.class);
     
-    job.setNumReduceTasks(1);
+    job.setPartitionerClass(PrefixPartitioner.class);
+    job.setSortComparatorClass(PrefixComparator.class);
+    job.setNumReduceTasks(opt.nrReducers);
     
     Configuration conf = job.getConfiguration();
     setConfigurationValues(conf, opt);
     if (nrLines != -1) {
       conf.setLong(NUMBER_OF_LINES_KEY, nrLines);
     }
+    conf.setInt(TRIE_GROUP_INDEX_KEY, getFirstTrieGroupIndex(conf, opt.outputDir, valueOf(i)));
+    conf.setInt(FIS_INDEX_KEY, getFirstFisIndex(conf, opt.outputDir, valueOf(i)));
+    conf.setBoolean(LOOKAHEAD_KEY, lookahead);
+    if (distributeCandidates) {
+      conf.setInt(NUMBER_OF_REPLICAS, opt.candidatePartitions);
+    }
+    if (trim) {
+      conf.setBoolean(TRIM_TRANSACTIONS_KEY, true);
+      addNamedOutput(job, AprioriPhaseMapper.TrimmedOutput, SequenceFileOutputFormat.class, VIntWritable.class,
+          TransactionWritable.class);
+    }
     
-    if (cacheFile != null) {
+    for (String cacheFile : cacheFiles) {
       addCacheFile(new URI(cacheFile.replace(" ", "%20")), conf);
     }
     
     runJob(job, info);
     
+    if (lookahead) {
+      i++;
+    }
     if (prefixSize <= i
         && job.getCounters().findCounter(COUNTER_GROUPNAME, COUNTER_NRLARGEPREFIXGROUPS).getValue() == 0) {
       return false;
@@ -198,18 +536,44 @@ public class BigFIMDriver implements Tool {
   private void startCreatePrefixGroups(FIMOptions opt, int phase)
       throws IOException, ClassNotFoundException, InterruptedException, URISyntaxException {
     Path path = new Path(opt.outputDir + separator + "tg" + phase);
-    for (FileStatus status : path.getFileSystem(new Configuration()).listStatus(path)) {
+    ItemSetTrie frequents = readFrequents(path, phase);
+    DhpBuckets buckets = readDhpBuckets(opt, phase);
+    FileStatus[] trieGroups = path.getFileSystem(new Configuration()).listStatus(path);
+    Path projections = null;
+    if (opt.projectTrieGroups && trieGroups.length > 1) {
+      projections = startProjectionPhase(opt, phase, trieGroups);
+    }
+    for (FileStatus status : trieGroups) {
       String cacheFile = status.getPath().toString();
       String trieGroupCount = cacheFile.substring(cacheFile.lastIndexOf('/'), cacheFile.length());
       trieGroupCount = trieGroupCount.split("-")[1];
       String outputFile = opt.outputDir + separator + "pg-trieGroup" + trieGroupCount;
+      createCandidateTrieFile(opt, status.getPath(), phase, frequents, buckets, 0);
+      cacheFile = qualify(getCandidateTrieFile(opt, status.getPath(), phase));
+      List<String> cacheFiles = new ArrayList<String>();
+      cacheFiles.add(cacheFile);
+      addItemRecoding(opt, cacheFiles);
+      Path input = new Path(opt.inputFile);
+      Class<? extends InputFormat<?, ?>> inputFormat = SplitByKTextInputFormat.class;
+      Path transactions = getTransactions(opt, phase + 1);
+      if (projections != null) {
+        transactions = new Path(projections, status.getPath().getName());
+        if (!transactions.getFileSystem(new Configuration()).exists(transactions)) {
+          System.out.println("[CreatePrefixGroups]: No transactions contain a prefix of " + status.getPath());
+          continue;
+        }
+      }
+      if (transactions != null) {
+        input = transactions;
+        inputFormat = TransactionInputFormat.class;
+      }
       System.out.println(
-          "[CreatePrefixGroups]: input: " + opt.inputFile + ", output: " + opt.outputDir + ", cache: " + cacheFile);
-          
-      Job job = prepareJob(new Path(opt.inputFile), new Path(outputFile), SplitByKTextInputFormat.class,
-          ComputeTidListMapper.class, Text.class, IntArrayWritable.class, ComputeTidListReducer.class,
-          IntArrayWritable.class, IntMatrixWritable.class, SequenceFileOutputFormat.class);
-          
+          "[CreatePrefixGroups]: input: " + input + ", output: " + opt.outputDir + ", cache: " + cacheFile);
+      
+      Job job = prepareJob(input, new Path(outputFile), inputFormat, ComputeTidListMapper.class, Text.class,
+          IntArrayWritable.class, ComputeTidListReducer.class, IntArrayWritable.class, IntMatrixWritable.class,
+          SequenceFileOutputFormat.class);
+      
       job.setJobName("Create Prefix Groups");
       job.setJarByClass(BigFIMDriver.class);
       job.setNumReduceTasks(1);
@@ -218,12 +582,64 @@ public class BigFIMDriver implements Tool {
       setConfigurationValues(conf, opt);
       conf.setInt(PREFIX_LENGTH_KEY, phase);
       
-      addCacheFile(new URI(cacheFile.replace(" ", "%20")), job.getConfiguration());
+      for (String file : cacheFiles) {
+        addCacheFile(new URI(file.replace(" ", "%20")), job.getConfiguration());
+      }
       
       runJob(job, "Prefix Creation");
     }
   }
   
+  /**
+   * Splits the transactions over the trie groups before their prefix groups are computed. Every transaction is written
+   * to the trie groups having a prefix that starts with one of its items, such that the job of a trie group reads only
+   * the transactions that can contain its candidates.
+   * 
+   * @param opt
+   *          the options of the run
+   * @param phase
+   *          the phase that created the trie groups
+   * @param trieGroups
+   *          the trie group files
+   * @return the directory with a projection per trie group, or null if the transactions can not be projected
+   */
+  private static Path startProjectionPhase(FIMOptions opt, int phase, FileStatus[] trieGroups)
+      throws IOException, URISyntaxException, ClassNotFoundException, InterruptedException {
+    Path recodingFile = getItemRecodingFile(opt);
+    if (!recodingFile.getFileSystem(new Configuration()).exists(recodingFile)) {
+      return null;
+    }
+    Path input = new Path(opt.inputFile);
+    Class<? extends InputFormat<?, ?>> inputFormat = SplitByKTextInputFormat.class;
+    Path transactions = getTransactions(opt, phase + 1);
+    if (transactions != null) {
+      input = transactions;
+      inputFormat = TransactionInputFormat.class;
+    }
+    Path outputDir = new Path(opt.outputDir, TrieGroupProjectionMapper.Dir + phase);
+    System.out.println("[ProjectionPhase]: input: " + input + ", output: " + outputDir + ", trie groups: "
+        + trieGroups.length);
+    
+    Job job = prepareJob(input, outputDir, inputFormat, TrieGroupProjectionMapper.class, VIntWritable.class,
+        TransactionWritable.class, Reducer.class, VIntWritable.class, TransactionWritable.class,
+        SequenceFileOutputFormat.class);
+    job.setJobName("Project Trie Groups");
+    job.setJarByClass(BigFIMDriver.class);
+    job.setNumReduceTasks(0);
+    addNamedOutput(job, TrieGroupProjectionMapper.Output, SequenceFileOutputFormat.class, VIntWritable.class,
+        TransactionWritable.class);
+    
+    Configuration conf = job.getConfiguration();
+    setConfigurationValues(conf, opt);
+    addCacheFile(new URI(qualify(recodingFile).replace(" ", "%20")), conf);
+    for (FileStatus status : trieGroups) {
+      addCacheFile(new URI(qualify(status.getPath()).replace(" ", "%20")), conf);
+    }
+    
+    runJob(job, "Project Trie Groups");
+    return outputDir;
+  }
+  
   private void startMining(FIMOptions opt) throws IOException, ClassNotFoundException, InterruptedException {
     String inputFilesDir = opt.outputDir + separator + "pg" + separator;
     String outputFile = opt.outputDir + separator + OFis;
@@ -232,7 +648,7 @@ public class BigFIMDriver implements Tool {
     Job job = prepareJob(new Path(inputFilesDir), new Path(outputFile), NoSplitSequenceFileInputFormat.class,
         EclatMinerMapper.class, Text.class, Text.class, EclatMinerReducer.class, Text.class, Text.class,
         TextOutputFormat.class);
-        
+    
     job.setJobName("Start Mining");
     job.setJarByClass(BigFIMDriver.class);
     job.setNumReduceTasks(1);
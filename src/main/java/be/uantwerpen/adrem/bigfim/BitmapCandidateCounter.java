@@ -0,0 +1,158 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.bigfim;
+
+import java.util.Arrays;
+import java.util.SortedSet;
+
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
+
+/**
+ * Counts the candidates on a vertical representation of the transactions. The transactions are transposed into one
+ * bitmap per candidate item, where bit t is set if transaction t contains the item. The support of a candidate is the
+ * number of bits set in the intersection of the bitmaps of its items. The candidate trie is walked depth first, such
+ * that the intersection of a prefix is computed once for all candidates sharing it.
+ * 
+ * <pre>
+ * {@code
+ * Transactions:   Bitmaps:      Candidates:
+ * 
+ * 1 2 3           1: 1101       1 2: 1101 & 1111 = 1101 -> 3
+ * 1 2             2: 1111       1 3: 1101 & 1011 = 1001 -> 2
+ * 2 3             3: 1011       2 3: 1111 & 1011 = 1011 -> 3
+ * 1 2 3
+ * }
+ * </pre>
+ * 
+ * The transactions are processed in blocks of a fixed number of transactions, so the memory needed for the bitmaps does
+ * not depend on the size of the input split.
+ */
+public class BitmapCandidateCounter implements CandidateCounter {
+  
+  private static final int BLOCK_SIZE = 1 << 14;
+  private static final int WORDS = BLOCK_SIZE / Long.SIZE;
+  
+  private final FlatCandidateTrie trie;
+  private final int[] counts;
+  private final int[] items;
+  private final long[][] bitmaps;
+  private final long[][] intersections;
+  private int transactions;
+  
+  public BitmapCandidateCounter(FlatCandidateTrie trie) {
+    this.trie = trie;
+    this.counts = new int[trie.numberOfLeaves()];
+    SortedSet<Integer> candidateItems = Sets.newTreeSet();
+    collectItems(0, candidateItems);
+    this.items = Ints.toArray(candidateItems);
+    this.bitmaps = new long[items.length][];
+    this.intersections = new long[trie.getLeafDepth()][WORDS];
+  }
+  
+  private void collectItems(int node, SortedSet<Integer> candidateItems) {
+    for (int position = trie.childrenBegin(node); position < trie.childrenEnd(node); position++) {
+      candidateItems.add(trie.itemAt(position));
+      if (trie.targetAt(position) >= 0) {
+        collectItems(trie.targetAt(position), candidateItems);
+      }
+    }
+  }
+  
+  @Override
+  public void add(int[] transaction, int length) {
+    long bit = 1L << transactions;
+    int word = transactions >>> 6;
+    for (int i = 0; i < length; i++) {
+      int ix = Arrays.binarySearch(items, transaction[i]);
+      if (ix >= 0) {
+        if (bitmaps[ix] == null) {
+          bitmaps[ix] = new long[WORDS];
+        }
+        bitmaps[ix][word] |= bit;
+      }
+    }
+    if (++transactions == BLOCK_SIZE) {
+      countBlock();
+    }
+  }
+  
+  @Override
+  public void finish() {
+    countBlock();
+    trie.addSupports(counts);
+  }
+  
+  private void countBlock() {
+    if (transactions == 0) {
+      return;
+    }
+    int words = (transactions + Long.SIZE - 1) >>> 6;
+    countNode(0, 0, null, words);
+    for (long[] bitmap : bitmaps) {
+      if (bitmap != null) {
+        Arrays.fill(bitmap, 0, words, 0);
+      }
+    }
+    transactions = 0;
+  }
+  
+  private void countNode(int node, int depth, long[] prefix, int words) {
+    for (int position = trie.childrenBegin(node); position < trie.childrenEnd(node); position++) {
+      long[] bitmap = bitmaps[Arrays.binarySearch(items, trie.itemAt(position))];
+      if (bitmap == null) {
+        continue;
+      }
+      int target = trie.targetAt(position);
+      if (target < 0) {
+        counts[~target] += prefix == null ? cardinality(bitmap, words) : cardinality(prefix, bitmap, words);
+      } else if (prefix == null) {
+        countNode(target, depth + 1, bitmap, words);
+      } else if (intersect(prefix, bitmap, intersections[depth], words)) {
+        countNode(target, depth + 1, intersections[depth], words);
+      }
+    }
+  }
+  
+  private static int cardinality(long[] bitmap, int words) {
+    int count = 0;
+    for (int i = 0; i < words; i++) {
+      count += Long.bitCount(bitmap[i]);
+    }
+    return count;
+  }
+  
+  private static int cardinality(long[] bitmap1, long[] bitmap2, int words) {
+    int count = 0;
+    for (int i = 0; i < words; i++) {
+      count += Long.bitCount(bitmap1[i] & bitmap2[i]);
+    }
+    return count;
+  }
+  
+  /**
+   * @return true if the intersection is not empty
+   */
+  private static boolean intersect(long[] bitmap1, long[] bitmap2, long[] result, int words) {
+    long any = 0;
+    for (int i = 0; i < words; i++) {
+      result[i] = bitmap1[i] & bitmap2[i];
+      any |= result[i];
+    }
+    return any != 0;
+  }
+}
@@ -0,0 +1,49 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.bigfim;
+
+import java.io.IOException;
+
+/**
+ * Counts the supports of the candidates in a {@link FlatCandidateTrie} for the transactions of a mapper. Depending on
+ * the implementation, transactions are counted immediately or buffered, so the supports are only available in the
+ * candidate trie after {@link #finish()}.
+ */
+public interface CandidateCounter {
+  
+  /**
+   * Adds a transaction to be counted. The array may be reused by the caller for the next transaction, so engines that
+   * keep the transaction copy it.
+   * 
+   * @param items
+   *          array with the items of the transaction in ascending order
+   * @param length
+   *          the number of items used from the array
+   * @throws IOException
+   *           if counting the transactions added so far failed
+   * @throws InterruptedException
+   */
+  public void add(int[] items, int length) throws IOException, InterruptedException;
+  
+  /**
+   * Counts all remaining transactions and adds the supports to the leaves of the candidate trie.
+   * 
+   * @throws IOException
+   * @throws InterruptedException
+   */
+  public void finish() throws IOException, InterruptedException;
+}
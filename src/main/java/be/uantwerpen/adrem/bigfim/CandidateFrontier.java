@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.bigfim;
+
+import java.util.Arrays;
+
+/**
+ * Incremental search of the candidates contained in a sequence of items. Items are pushed one at a time in ascending
+ * order. For every position the frontier keeps the trie nodes whose path ends in the item at that position and the
+ * candidates completed by that item. Popping a position adds a weight to the candidates completed at it, so a prefix
+ * that is shared by several transactions is searched only once and its candidates are counted for all of them at once.
+ * 
+ * <pre>
+ * {@code
+ * Candidates: 1 2 3, 1 2 4, 2 3 4
+ * 
+ * Pushed:     1          2             3               4
+ * Nodes:      [1]        [1 2] [2]     [2 3]           []
+ * Candidates: []         []            [1 2 3]         [1 2 4] [2 3 4]
+ * }
+ * </pre>
+ */
+public class CandidateFrontier {
+  
+  private static final int ROOT = 0;
+  
+  private final FlatCandidateTrie trie;
+  private final int[] counts;
+  
+  // nodes of all positions on one stack, the root is at the bottom
+  private int[] nodes = new int[64];
+  private int[] nodesEnd = new int[16];
+  private int[] hits = new int[64];
+  private int[] hitsEnd = new int[16];
+  private int depth = 0;
+  
+  public CandidateFrontier(FlatCandidateTrie trie) {
+    this.trie = trie;
+    this.counts = new int[trie.numberOfLeaves()];
+    nodes[0] = ROOT;
+  }
+  
+  public int depth() {
+    return depth;
+  }
+  
+  /**
+   * Extends the frontier with the next item, which must be larger than the items pushed before.
+   * 
+   * @param item
+   *          the item to push
+   */
+  public void push(int item) {
+    if (depth == nodesEnd.length) {
+      nodesEnd = Arrays.copyOf(nodesEnd, depth * 2);
+      hitsEnd = Arrays.copyOf(hitsEnd, depth * 2);
+    }
+    final int frontierEnd = depth == 0 ? 1 : nodesEnd[depth - 1];
+    int nodeIx = frontierEnd;
+    int hitIx = depth == 0 ? 0 : hitsEnd[depth - 1];
+    for (int i = 0; i < frontierEnd; i++) {
+      int child = trie.childOf(nodes[i], item);
+      if (child == FlatCandidateTrie.NO_CHILD) {
+        continue;
+      }
+      if (child < 0) {
+        if (hitIx == hits.length) {
+          hits = Arrays.copyOf(hits, hitIx * 2);
+        }
+        hits[hitIx++] = ~child;
+      } else {
+        if (nodeIx == nodes.length) {
+          nodes = Arrays.copyOf(nodes, nodeIx * 2);
+        }
+        nodes[nodeIx++] = child;
+      }
+    }
+    nodesEnd[depth] = nodeIx;
+    hitsEnd[depth] = hitIx;
+    depth++;
+  }
+  
+  /**
+   * Removes the last pushed item and counts the candidates completed by it.
+   * 
+   * @param weight
+   *          the number of transactions containing the candidates completed at this position
+   */
+  public void pop(int weight) {
+    depth--;
+    if (weight != 0) {
+      for (int i = depth == 0 ? 0 : hitsEnd[depth - 1], end = hitsEnd[depth]; i < end; i++) {
+        counts[hits[i]] += weight;
+      }
+    }
+  }
+  
+  /**
+   * Adds the counted supports to the leaves of the candidate trie. All positions must have been popped.
+   */
+  public void finish() {
+    trie.addSupports(counts);
+  }
+}
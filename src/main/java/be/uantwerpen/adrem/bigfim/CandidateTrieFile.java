@@ -0,0 +1,415 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.bigfim;
+
+import static be.uantwerpen.adrem.bigfim.Tools.hasFrequentSubsets;
+import static be.uantwerpen.adrem.bigfim.Tools.readCountTrieFromItemSetsFile;
+import static com.google.common.collect.Sets.newTreeSet;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import be.uantwerpen.adrem.util.ItemRecoding;
+import be.uantwerpen.adrem.util.ItemSetTrie;
+
+/**
+ * Binary representation of a candidate trie. The candidates of a trie group are generated once by the driver and
+ * written in this format, such that the mappers only have to map the file, instead of re-parsing the trie group and
+ * regenerating the candidates in every map task. The trie is stored as the arrays of a {@link FlatCandidateTrie}, so
+ * a mapper counts with the arrays read from the file without building a trie of its own.
+ * 
+ * <pre>
+ * {@code
+ * Layout (all values are big endian ints):
+ * 
+ * MAGIC  itemset-size  candidate-count  recoded
+ * node-count  first-child...  child-item...  child-target...   | arrays of the flat candidate trie
+ * lookahead-count  node-count  ...                             | optional, candidates of one level deeper
+ * }
+ * </pre>
+ * 
+ * If a recoding of the frequent items is given, the candidates are written with the ids of their items, in the order
+ * of the ids, which is the order of the transactions the mappers count them in.
+ * 
+ * When the candidate set of a level is small, the candidates of the next level are generated optimistically from the
+ * candidates themselves and appended to the file, such that both levels are counted in the same scan.
+ */
+public class CandidateTrieFile {
+  
+  public static final String Extension = ".cand";
+  
+  private static final int MAGIC = 0x42464355;
+  private static final int HEADER_SIZE = 16;
+  
+  /**
+   * The size of the itemsets from which the candidates are generated
+   */
+  public final int itemsetSize;
+  /**
+   * True if the candidates contain the ids of a recoding instead of the items
+   */
+  public final boolean recoded;
+  public final FlatCandidateTrie candidates;
+  /**
+   * The candidates of the next level, or null if the file has none
+   */
+  public final FlatCandidateTrie lookahead;
+  
+  private CandidateTrieFile(String fileName) throws IOException {
+    FileInputStream in = new FileInputStream(fileName);
+    try {
+      FileChannel channel = in.getChannel();
+      IntBuffer buffer = channel.map(READ_ONLY, 0, channel.size()).asIntBuffer();
+      if (buffer.get() != MAGIC) {
+        throw new IOException("Not a candidate trie file: " + fileName);
+      }
+      itemsetSize = buffer.get();
+      buffer.get();
+      recoded = buffer.get() != 0;
+      candidates = FlatCandidateTrie.read(buffer);
+      if (buffer.hasRemaining()) {
+        buffer.get();
+        lookahead = FlatCandidateTrie.read(buffer);
+      } else {
+        lookahead = null;
+      }
+    } finally {
+      in.close();
+    }
+  }
+  
+  public static boolean isCandidateTrieFile(String fileName) {
+    return fileName.endsWith(Extension);
+  }
+  
+  /**
+   * Opens a local candidate trie file.
+   * 
+   * @param fileName
+   *          name of the local candidate trie file
+   * @return the candidates of the file
+   * @throws IOException
+   */
+  public static CandidateTrieFile open(String fileName) throws IOException {
+    return new CandidateTrieFile(fileName);
+  }
+  
+  /**
+   * Estimates the memory a mapper needs to count the candidates of a local candidate trie file. The file holds the
+   * arrays of the flat tries, only the supports of the candidates are added when counting.
+   * 
+   * @param fileName
+   *          name of the local candidate trie file
+   * @return the estimated size in bytes
+   * @throws IOException
+   */
+  public static long estimateSize(String fileName) throws IOException {
+    RandomAccessFile file = new RandomAccessFile(fileName, "r");
+    try {
+      file.seek(8);
+      long size = file.length() - HEADER_SIZE + 4L * file.readInt();
+      // the lookahead count follows the arrays: the node count, the first children and two ints per edge
+      file.seek(HEADER_SIZE);
+      int nodes = file.readInt();
+      file.seek(HEADER_SIZE + 4 + 4L * nodes);
+      long lookahead = HEADER_SIZE + 4 + 4L * (nodes + 1) + 8L * file.readInt();
+      if (lookahead < file.length()) {
+        file.seek(lookahead);
+        // the lookahead count itself is not kept, its arrays are counted like those of the candidates
+        size += 4L * file.readInt() - 4;
+      }
+      return size;
+    } finally {
+      file.close();
+    }
+  }
+  
+  /**
+   * Generates the candidates of a trie group and writes them as a candidate trie file.
+   * 
+   * @param conf
+   *          hadoop configuration object
+   * @param trieGroup
+   *          the trie group file containing the frequent itemsets of the previous level
+   * @param candidateFile
+   *          the file to write the candidates to
+   * @param frequents
+   *          trie containing all frequent itemsets of the level of the trie group, used to prune the candidates, or
+   *          null to disable pruning
+   * @param buckets
+   *          frequent DHP buckets used to prune candidate pairs, or null to disable bucket pruning
+   * @param recoding
+   *          the recoding of the frequent items, or null to write the items themselves
+   * @param lookaheadLimit
+   *          if the number of candidates is at most this limit, the candidates of the next level are appended, 0
+   *          disables the lookahead
+   * @return the number of candidates written, not counting the lookahead candidates
+   * @throws IOException
+   */
+  public static int create(Configuration conf, Path trieGroup, Path candidateFile, ItemSetTrie frequents,
+      DhpBuckets buckets, ItemRecoding recoding, int lookaheadLimit) throws IOException {
+    ItemSetTrie trie = new ItemSetTrie.SupportCountItemsetTrie(-1);
+    
+    FileSystem fs = trieGroup.getFileSystem(conf);
+    BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(trieGroup)));
+    int itemsetSize;
+    try {
+      itemsetSize = readCountTrieFromItemSetsFile(reader, trie, frequents);
+    } finally {
+      reader.close();
+    }
+    if (buckets != null && itemsetSize == 1) {
+      System.out.println("Candidates pruned by DHP buckets: " + buckets.prune(trie));
+    }
+    
+    DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(candidateFile.getFileSystem(conf).create(candidateFile, true)));
+    try {
+      int candidateCount = write(recode(recoding, trie), itemsetSize, recoding != null, out);
+      if (lookaheadLimit > 0 && candidateCount <= lookaheadLimit) {
+        ItemSetTrie lookahead = new ItemSetTrie.SupportCountItemsetTrie(-1);
+        int lookaheadCount = addLookahead(trie, trie, lookahead, new int[itemsetSize + 2], 0);
+        System.out.println("Lookahead candidates: " + lookaheadCount);
+        out.writeInt(lookaheadCount);
+        new FlatCandidateTrie(recode(recoding, lookahead)).write(out);
+      }
+      return candidateCount;
+    } finally {
+      out.close();
+    }
+  }
+  
+  private static ItemSetTrie recode(ItemRecoding recoding, ItemSetTrie trie) {
+    if (recoding == null) {
+      return trie;
+    }
+    ItemSetTrie recoded = new ItemSetTrie.SupportCountItemsetTrie(-1);
+    Tools.recode(recoding, trie, recoded);
+    return recoded;
+  }
+  
+  /**
+   * Joins the candidates sharing a prefix into the candidates of the next level. A generated candidate is kept only if
+   * all its subsets are candidates, which requires the given trie to hold all candidates of the level.
+   * 
+   * @return the number of lookahead candidates
+   */
+  private static int addLookahead(ItemSetTrie candidates, ItemSetTrie node, ItemSetTrie lookahead, int[] itemset,
+      int depth) {
+    if (node.children.isEmpty()) {
+      return 0;
+    }
+    int count = 0;
+    if (node.children.values().iterator().next().children.isEmpty()) {
+      Integer[] items = newTreeSet(node.children.keySet()).toArray(new Integer[0]);
+      for (int i = 0; i < items.length - 1; i++) {
+        itemset[depth] = items[i];
+        for (int j = i + 1; j < items.length; j++) {
+          itemset[depth + 1] = items[j];
+          int[] candidate = Arrays.copyOf(itemset, depth + 2);
+          if (hasFrequentSubsets(candidate, candidates)) {
+            ItemSetTrie trie = lookahead;
+            for (int item : candidate) {
+              trie = trie.getChild(item);
+            }
+            count++;
+          }
+        }
+      }
+      return count;
+    }
+    for (ItemSetTrie child : node.children.values()) {
+      itemset[depth] = child.id;
+      count += addLookahead(candidates, child, lookahead, itemset, depth + 1);
+    }
+    return count;
+  }
+  
+  /**
+   * Writes a candidate trie in binary format.
+   * 
+   * @param trie
+   *          the root of the candidate trie
+   * @param itemsetSize
+   *          size of the itemsets from which the candidates are generated
+   * @param recoded
+   *          true if the candidates contain the ids of a recoding
+   * @param out
+   *          the stream to write to
+   * @return the number of candidates written
+   * @throws IOException
+   */
+  public static int write(ItemSetTrie trie, int itemsetSize, boolean recoded, DataOutputStream out)
+      throws IOException {
+    FlatCandidateTrie candidates = new FlatCandidateTrie(trie);
+    out.writeInt(MAGIC);
+    out.writeInt(itemsetSize);
+    out.writeInt(candidates.numberOfLeaves());
+    out.writeInt(recoded ? 1 : 0);
+    candidates.write(out);
+    return candidates.numberOfLeaves();
+  }
+  
+  /**
+   * Reads a candidate trie file into the given trie.
+   * 
+   * @param fileName
+   *          name of the local candidate trie file
+   * @param trie
+   *          the root of the trie to add the candidates to
+   * @return the size of the itemsets from which the candidates are generated
+   * @throws IOException
+   */
+  public static int read(String fileName, ItemSetTrie trie) throws IOException {
+    return read(fileName, trie, 0, 1);
+  }
+  
+  /**
+   * Reads one partition of the candidates of a candidate trie file into the given trie. The candidates are divided per
+   * prefix: the prefixes are numbered in ascending order and prefix n belongs to partition n modulo the number of
+   * partitions. All partitions together contain every candidate exactly once.
+   * 
+   * @param fileName
+   *          name of the local candidate trie file
+   * @param trie
+   *          the root of the trie to add the candidates to
+   * @param partition
+   *          the partition to read
+   * @param numberOfPartitions
+   *          the total number of partitions
+   * @return the size of the itemsets from which the candidates are generated
+   * @throws IOException
+   */
+  public static int read(String fileName, ItemSetTrie trie, int partition, int numberOfPartitions)
+      throws IOException {
+    return open(fileName).addTo(trie, partition, numberOfPartitions);
+  }
+  
+  /**
+   * Adds one partition of the candidates to the given trie.
+   * 
+   * @see #read(String, ItemSetTrie, int, int)
+   * @return the size of the itemsets from which the candidates are generated
+   */
+  public int addTo(ItemSetTrie trie, int partition, int numberOfPartitions) {
+    int candidateCount;
+    if (numberOfPartitions == 1) {
+      candidateCount = addRec(candidates, 0, trie);
+    } else {
+      int[] prefixNumber = new int[1];
+      candidateCount = addPartitionRec(trie, new int[itemsetSize], 0, 0, prefixNumber, partition, numberOfPartitions);
+    }
+    System.out.println("Candidates from candidate trie file: " + candidateCount);
+    return itemsetSize;
+  }
+  
+  /**
+   * Gets one partition of the candidates as a trie of its own.
+   * 
+   * @see #read(String, ItemSetTrie, int, int)
+   * @return the candidates of the partition
+   */
+  public FlatCandidateTrie getPartition(int partition, int numberOfPartitions) {
+    if (numberOfPartitions == 1) {
+      return candidates;
+    }
+    ItemSetTrie trie = new ItemSetTrie.SupportCountItemsetTrie(-1);
+    addTo(trie, partition, numberOfPartitions);
+    return new FlatCandidateTrie(trie).withoutOriginal();
+  }
+  
+  /**
+   * Reads the lookahead candidates of a candidate trie file into the given trie.
+   * 
+   * @param fileName
+   *          name of the local candidate trie file
+   * @param trie
+   *          the root of the trie to add the lookahead candidates to
+   * @return the number of lookahead candidates, 0 if the file has none
+   * @throws IOException
+   */
+  public static int readLookahead(String fileName, ItemSetTrie trie) throws IOException {
+    return open(fileName).addLookaheadTo(trie);
+  }
+  
+  /**
+   * Adds the lookahead candidates to the given trie.
+   * 
+   * @return the number of lookahead candidates, 0 if the file has none
+   */
+  public int addLookaheadTo(ItemSetTrie trie) {
+    if (lookahead == null) {
+      return 0;
+    }
+    int lookaheadCount = addRec(lookahead, 0, trie);
+    System.out.println("Lookahead candidates from candidate trie file: " + lookaheadCount);
+    return lookaheadCount;
+  }
+  
+  private static int addRec(FlatCandidateTrie flat, int node, ItemSetTrie trie) {
+    int count = 0;
+    for (int ix = flat.childrenBegin(node); ix < flat.childrenEnd(node); ix++) {
+      ItemSetTrie child = trie.getChild(flat.itemAt(ix));
+      int target = flat.targetAt(ix);
+      count += target < 0 ? 1 : addRec(flat, target, child);
+    }
+    return count;
+  }
+  
+  /**
+   * Adds the candidates of the prefixes in a partition. The nodes on the path of a prefix are only created if the
+   * prefix is kept, otherwise they would be mistaken for candidates.
+   */
+  private int addPartitionRec(ItemSetTrie root, int[] prefix, int node, int depth, int[] prefixNumber, int partition,
+      int numberOfPartitions) {
+    int begin = candidates.childrenBegin(node);
+    int end = candidates.childrenEnd(node);
+    if (depth == prefix.length) {
+      if (begin == end || prefixNumber[0]++ % numberOfPartitions != partition) {
+        return 0;
+      }
+      ItemSetTrie trie = root;
+      for (int i = 0; i < depth; i++) {
+        trie = trie.getChild(prefix[i]);
+      }
+      for (int ix = begin; ix < end; ix++) {
+        trie.getChild(candidates.itemAt(ix));
+      }
+      return end - begin;
+    }
+    int count = 0;
+    for (int ix = begin; ix < end; ix++) {
+      prefix[depth] = candidates.itemAt(ix);
+      count += addPartitionRec(root, prefix, candidates.targetAt(ix), depth + 1, prefixNumber, partition,
+          numberOfPartitions);
+    }
+    return count;
+  }
+}
@@ -0,0 +1,247 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.bigfim;
+
+import static be.uantwerpen.adrem.bigfim.Tools.getSingletonsFromCountTrie;
+import static be.uantwerpen.adrem.bigfim.Tools.readCountTrieFromItemSetsFile;
+import static be.uantwerpen.adrem.bigfim.Tools.recode;
+import static com.google.common.collect.Lists.newArrayList;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+
+import be.uantwerpen.adrem.hadoop.util.TaskCache;
+import be.uantwerpen.adrem.util.ItemRecoding;
+import be.uantwerpen.adrem.util.ItemSetTrie;
+
+import com.google.common.collect.Lists;
+
+/**
+ * The candidates a mapper reads from its candidate files, together with the singletons occurring in them. The trie
+ * groups of a phase contain disjoint prefixes, so all files are read into a single trie.
+ * 
+ * If a recoding of the frequent items is given, the candidates are translated to the dense ids of their items and the
+ * mapper recodes the transactions instead of filtering them with the singletons. The items of a candidate are then
+ * sorted on their ids, which is a different order than the order of the items themselves. Candidate trie files written
+ * with the recoding already contain the ids. If only supports are counted and all files are such files, the arrays
+ * read from the files are used as they are and no trie is built. A partition of the candidates gets arrays of its own.
+ * 
+ * Candidates are kept in the {@link TaskCache}, such that later tasks in the same JVM reading the same files skip
+ * parsing them. The supports or tids counted by an earlier task are cleared before the candidates are handed out.
+ */
+public class Candidates {
+  
+  /**
+   * Estimated number of bytes taken by a node of a candidate trie built as an {@link ItemSetTrie}: the node itself, its
+   * empty children map, the entry and boxed key in the map of its parent and the share of the parent's hash table.
+   */
+  private static final int BYTES_PER_TRIE_NODE = 128;
+  
+  /**
+   * The candidates, or null if they are only available as {@link #candidateTrie}
+   */
+  public final ItemSetTrie countTrie;
+  /**
+   * Candidates of the next level counted in the same scan, or null if the files have none or if they are only
+   * available as {@link #lookaheadCandidateTrie}
+   */
+  public final ItemSetTrie lookaheadTrie;
+  /**
+   * The candidates as read from the candidate trie files, or null if they are in {@link #countTrie}
+   */
+  public final FlatCandidateTrie candidateTrie;
+  /**
+   * Candidates of the next level as read from the candidate trie files, or null if there are none in this form
+   */
+  public final FlatCandidateTrie lookaheadCandidateTrie;
+  /**
+   * The singletons occurring in the candidates, or null if the candidates are recoded
+   */
+  public final Set<Integer> singletons;
+  /**
+   * The recoding of the items of the candidates, or null if the candidates contain the items themselves
+   */
+  public final ItemRecoding recoding;
+  /**
+   * The phase counting the candidates, i.e., the length of the candidates
+   */
+  public final int phase;
+  
+  private Candidates(List<CandidateTrieFile> files, ItemRecoding recoding, int partition, int numberOfPartitions) {
+    List<FlatCandidateTrie> tries = newArrayList();
+    List<FlatCandidateTrie> lookaheads = newArrayList();
+    int itemsetSize = 0;
+    for (CandidateTrieFile file : files) {
+      itemsetSize = file.itemsetSize;
+      tries.add(file.getPartition(partition, numberOfPartitions));
+      if (file.lookahead != null) {
+        lookaheads.add(file.lookahead);
+      }
+    }
+    phase = itemsetSize + 1;
+    countTrie = null;
+    lookaheadTrie = null;
+    candidateTrie = FlatCandidateTrie.merge(tries);
+    lookaheadCandidateTrie = lookaheads.isEmpty() ? null : FlatCandidateTrie.merge(lookaheads);
+    singletons = null;
+    this.recoding = recoding;
+    System.out.println("Candidates from candidate trie files: " + candidateTrie.numberOfLeaves());
+  }
+  
+  private Candidates(List<String> filenames, ItemRecoding recoding, boolean tidLists, int partition,
+      int numberOfPartitions) throws IOException {
+    ItemSetTrie trie = createTrie(tidLists);
+    ItemSetTrie lookahead = new ItemSetTrie.SupportCountItemsetTrie(-1);
+    ItemSetTrie recodedTrie = createTrie(tidLists);
+    ItemSetTrie recodedLookahead = new ItemSetTrie.SupportCountItemsetTrie(-1);
+    int lookaheadCount = 0;
+    int itemsetSize = 0;
+    for (String filename : filenames) {
+      if (!CandidateTrieFile.isCandidateTrieFile(filename)) {
+        if (numberOfPartitions != 1) {
+          throw new IOException("Candidate partitions can only be read from candidate trie files: " + filename);
+        }
+        itemsetSize = readCountTrieFromItemSetsFile(filename, trie);
+        continue;
+      }
+      CandidateTrieFile file = CandidateTrieFile.open(filename);
+      if (file.recoded && recoding == null) {
+        throw new IOException("Recoded candidates can not be read without the recoding: " + filename);
+      }
+      itemsetSize = file.addTo(file.recoded ? recodedTrie : trie, partition, numberOfPartitions);
+      lookaheadCount += file.addLookaheadTo(file.recoded ? recodedLookahead : lookahead);
+    }
+    phase = itemsetSize + 1;
+    candidateTrie = null;
+    lookaheadCandidateTrie = null;
+    this.recoding = recoding;
+    if (recoding == null) {
+      countTrie = trie;
+      lookaheadTrie = lookaheadCount == 0 ? null : lookahead;
+      singletons = getSingletonsFromCountTrie(countTrie);
+    } else {
+      countTrie = recodedTrie;
+      recode(recoding, trie, countTrie);
+      if (lookaheadCount == 0) {
+        lookaheadTrie = null;
+      } else {
+        lookaheadTrie = recodedLookahead;
+        recode(recoding, lookahead, lookaheadTrie);
+      }
+      singletons = null;
+      System.out.println("Candidates recoded to the ids of " + recoding.size() + " frequent items");
+    }
+  }
+  
+  private static Candidates load(List<String> filenames, String recodingFile, boolean tidLists, int partition,
+      int numberOfPartitions) throws IOException {
+    ItemRecoding recoding = recodingFile == null ? null : ItemRecoding.read(recodingFile);
+    if (!tidLists && recoding != null) {
+      List<CandidateTrieFile> files = newArrayList();
+      for (String filename : filenames) {
+        if (!CandidateTrieFile.isCandidateTrieFile(filename)) {
+          break;
+        }
+        CandidateTrieFile file = CandidateTrieFile.open(filename);
+        if (!file.recoded) {
+          break;
+        }
+        files.add(file);
+      }
+      if (files.size() == filenames.size()) {
+        return new Candidates(files, recoding, partition, numberOfPartitions);
+      }
+    }
+    return new Candidates(filenames, recoding, tidLists, partition, numberOfPartitions);
+  }
+  
+  /**
+   * Gets the candidates of a number of local candidate files.
+   * 
+   * @param conf
+   *          hadoop configuration object
+   * @param filenames
+   *          the names of the local candidate files or trie group files
+   * @param recodingFile
+   *          the name of the local item recoding file, or null to keep the items
+   * @param tidLists
+   *          true if tids are collected for the candidates, false if supports are counted
+   * @param partition
+   *          the partition of the candidates to read
+   * @param numberOfPartitions
+   *          the total number of partitions, 1 to read all candidates
+   * @return the candidates with empty supports or tid lists
+   * @throws IOException
+   */
+  public static Candidates get(Configuration conf, final List<String> filenames, final String recodingFile,
+      final boolean tidLists, final int partition, final int numberOfPartitions) throws IOException {
+    String kind = (tidLists ? "tid list candidates " : "candidates ") + partition + "/" + numberOfPartitions;
+    List<String> files = Lists.newArrayList(filenames);
+    if (recodingFile != null) {
+      files.add(recodingFile);
+    }
+    Candidates candidates = TaskCache.get(conf, kind, files, new TaskCache.Loader<Candidates>() {
+      @Override
+      public Candidates load() throws IOException {
+        return Candidates.load(filenames, recodingFile, tidLists, partition, numberOfPartitions);
+      }
+      
+      @Override
+      public long estimateSize(Candidates value) {
+        if (value.candidateTrie == null) {
+          return (countNodes(value.countTrie) + countNodes(value.lookaheadTrie)) * BYTES_PER_TRIE_NODE;
+        }
+        long size = value.candidateTrie.estimateSize();
+        if (value.lookaheadCandidateTrie != null) {
+          size += value.lookaheadCandidateTrie.estimateSize();
+        }
+        return size;
+      }
+    });
+    if (candidates.countTrie != null) {
+      candidates.countTrie.clear();
+    }
+    if (candidates.lookaheadTrie != null) {
+      candidates.lookaheadTrie.clear();
+    }
+    if (candidates.candidateTrie != null) {
+      candidates.candidateTrie.clearSupports();
+    }
+    if (candidates.lookaheadCandidateTrie != null) {
+      candidates.lookaheadCandidateTrie.clearSupports();
+    }
+    return candidates;
+  }
+  
+  private static long countNodes(ItemSetTrie trie) {
+    if (trie == null) {
+      return 0;
+    }
+    long nodes = 1;
+    for (ItemSetTrie child : trie.children.values()) {
+      nodes += countNodes(child);
+    }
+    return nodes;
+  }
+  
+  private static ItemSetTrie createTrie(boolean tidLists) {
+    return tidLists ? new ItemSetTrie.TidListItemsetTrie(-1) : new ItemSetTrie.SupportCountItemsetTrie(-1);
+  }
+}
@@ -16,10 +16,7 @@
  */
 package be.uantwerpen.adrem.bigfim;
 
-import static be.uantwerpen.adrem.bigfim.Tools.convertLineToSet;
-import static be.uantwerpen.adrem.bigfim.Tools.getSingletonsFromCountTrie;
-import static be.uantwerpen.adrem.bigfim.Tools.readCountTrieFromItemSetsFile;
-import static be.uantwerpen.adrem.util.FIMOptions.DELIMITER_KEY;
+import static com.google.common.collect.Lists.newArrayList;
 import static org.apache.hadoop.filecache.DistributedCache.getLocalCacheFiles;
 
 import java.io.IOException;
@@ -29,13 +26,19 @@ import java.util.Set;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.IntWritable;
-import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.VIntWritable;
+import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapreduce.Mapper;
 
 import be.uantwerpen.adrem.hadoop.util.IntArrayWritable;
+import be.uantwerpen.adrem.hadoop.util.TransactionWritable;
+import be.uantwerpen.adrem.util.ItemRecoding;
 import be.uantwerpen.adrem.util.ItemSetTrie;
 
+import com.google.common.base.Joiner;
+import com.google.common.primitives.Ints;
+
 /**
  * Mapper class for the second phase of BigFIM. Each mapper receives a sub part (horizontal cut) of the dataset and
  * computes partial tidlists of the given itemsets in the sub database. The size of the sub database depends on the
@@ -126,14 +129,15 @@ import be.uantwerpen.adrem.util.ItemSetTrie;
  * }
  * </pre>
  */
-public class ComputeTidListMapper extends Mapper<LongWritable,Text,Text,IntArrayWritable> {
+public class ComputeTidListMapper extends Mapper<Object,Writable,Text,IntArrayWritable> {
   
   private static int TIDS_BUFFER_SIZE = 100000;
   
   private final IntArrayWritable iaw;
   
   private Set<Integer> singletons;
-  private final ItemSetTrie countTrie;
+  private ItemRecoding recoding;
+  private ItemSetTrie countTrie;
   
   private int phase = 1;
   
@@ -141,7 +145,10 @@ public class ComputeTidListMapper extends Mapper<LongWritable,Text,Text,IntArray
   private int tidCounter = 0;
   private int id;
   
-  private String delimiter;
+  private final TransactionTokenizer tokenizer = new TransactionTokenizer();
+  
+  private FlatCandidateTrie candidates;
+  private int[] hits;
   
   public ComputeTidListMapper() {
     iaw = new IntArrayWritable();
@@ -155,30 +162,51 @@ public class ComputeTidListMapper extends Mapper<LongWritable,Text,Text,IntArray
   @Override
   public void setup(Context context) throws IOException {
     Configuration conf = context.getConfiguration();
-    delimiter = conf.get(DELIMITER_KEY, " ");
     
     Path[] localCacheFiles = getLocalCacheFiles(conf);
     
     if (localCacheFiles != null) {
-      String filename = localCacheFiles[0].toString();
-      phase = readCountTrieFromItemSetsFile(filename, countTrie) + 1;
-      singletons = getSingletonsFromCountTrie(countTrie);
+      List<String> filenames = newArrayList();
+      String recodingFile = null;
+      for (Path localCacheFile : localCacheFiles) {
+        if (ItemRecoding.isRecodingFile(localCacheFile.toString())) {
+          recodingFile = localCacheFile.toString();
+        } else {
+          filenames.add(localCacheFile.toString());
+        }
+      }
+      Candidates candidates = Candidates.get(conf, filenames, recodingFile, true, 0, 1);
+      countTrie = candidates.countTrie;
+      singletons = candidates.singletons;
+      recoding = candidates.recoding;
+      phase = candidates.phase;
     }
     id = context.getTaskAttemptID().getTaskID().getId();
   }
   
   @Override
-  public void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
-    String line = value.toString();
-    List<Integer> items = convertLineToSet(line, phase == 1, singletons, delimiter);
-    reportItemTids(context, items);
+  public void map(Object key, Writable value, Context context) throws IOException, InterruptedException {
+    if (value instanceof TransactionWritable) {
+      // binary transactions may be trimmed, so they carry their tid
+      TransactionWritable transaction = (TransactionWritable) value;
+      counter = ((VIntWritable) key).get();
+      reportItemTids(context, transaction.getItems(), transaction.getLength());
+      return;
+    }
+    int length;
+    if (recoding != null) {
+      length = tokenizer.tokenize((Text) value, recoding);
+    } else {
+      length = tokenizer.tokenize((Text) value, phase == 1 ? null : singletons);
+    }
+    reportItemTids(context, tokenizer.getItems(), length);
     counter++;
   }
   
   @Override
   public void cleanup(Context context) throws IOException, InterruptedException {
     if (tidCounter != 0) {
-      doRecursiveReport(context, new StringBuilder(), 0, countTrie);
+      report(context);
     }
   }
   
@@ -188,38 +216,43 @@ public class ComputeTidListMapper extends Mapper<LongWritable,Text,Text,IntArray
     return iw;
   }
   
-  private void reportItemTids(Context context, List<Integer> items) throws IOException, InterruptedException {
-    if (items.size() < phase) {
+  private void reportItemTids(Context context, int[] items, int length) throws IOException, InterruptedException {
+    if (length < phase) {
       return;
     }
     
     if (phase == 1) {
-      for (Integer item : items) {
-        countTrie.getChild(item).addTid(counter);
+      for (int i = 0; i < length; i++) {
+        countTrie.getChild(items[i]).addTid(counter);
         tidCounter++;
       }
     } else {
-      doRecursiveTidAdd(context, items, 0, countTrie);
+      addTidToCandidates(items, length);
     }
     if (tidCounter >= TIDS_BUFFER_SIZE) {
       System.out.println("Tids buffer reached, reporting " + tidCounter + " partial tids");
-      doRecursiveReport(context, new StringBuilder(), 0, countTrie);
+      report(context);
       tidCounter = 0;
     }
   }
   
-  private void doRecursiveTidAdd(Context context, List<Integer> items, int ix, ItemSetTrie trie)
-      throws IOException, InterruptedException {
-    for (int i = ix; i < items.size(); i++) {
-      ItemSetTrie recTrie = trie.children.get(items.get(i));
-      if (recTrie != null) {
-        if (recTrie.children.isEmpty()) {
-          recTrie.addTid(counter);
-          tidCounter++;
-        } else {
-          doRecursiveTidAdd(context, items, i + 1, recTrie);
-        }
-      }
+  private void addTidToCandidates(int[] items, int length) {
+    if (candidates == null) {
+      candidates = new FlatCandidateTrie(countTrie);
+      hits = new int[candidates.numberOfLeaves()];
+    }
+    int found = candidates.findCandidates(items, length, hits);
+    for (int i = 0; i < found; i++) {
+      candidates.leaves[hits[i]].addTid(counter);
+    }
+    tidCounter += found;
+  }
+  
+  private void report(Context context) throws IOException, InterruptedException {
+    if (recoding == null) {
+      doRecursiveReport(context, new StringBuilder(), 0, countTrie);
+    } else {
+      doRecursiveReportRecoded(context, new int[phase], 0, countTrie);
     }
   }
   
@@ -251,4 +284,34 @@ public class ComputeTidListMapper extends Mapper<LongWritable,Text,Text,IntArray
       builder.setLength(length);
     }
   }
-}
\ No newline at end of file
+  
+  /**
+   * Reports the tids of recoded candidates. The ids are translated back to items and the prefix and extension are taken
+   * from the items in their own order.
+   */
+  private void doRecursiveReportRecoded(Context context, int[] itemset, int depth, ItemSetTrie trie)
+      throws IOException, InterruptedException {
+    for (ItemSetTrie recTrie : trie.children.values()) {
+      itemset[depth] = recTrie.id;
+      if (depth + 1 != phase) {
+        doRecursiveReportRecoded(context, itemset, depth + 1, recTrie);
+        continue;
+      }
+      List<Integer> tids = ((ItemSetTrie.TidListItemsetTrie) recTrie).tids;
+      if (tids.isEmpty()) {
+        continue;
+      }
+      int[] items = recoding.toItems(itemset, depth + 1);
+      Text key = new Text(Joiner.on(' ').join(Ints.asList(items).subList(0, depth)));
+      IntWritable[] iw = createIntWritableWithIdSet(tids.size());
+      int i1 = 1;
+      iw[i1++] = new IntWritable(items[depth]);
+      for (int tid : tids) {
+        iw[i1++] = new IntWritable(tid);
+      }
+      iaw.set(iw);
+      context.write(key, iaw);
+      tids.clear();
+    }
+  }
+}
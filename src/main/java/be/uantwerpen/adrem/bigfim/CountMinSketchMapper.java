@@ -0,0 +1,76 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.bigfim;
+
+import static be.uantwerpen.adrem.util.FIMOptions.SKETCH_DEPTH_KEY;
+import static be.uantwerpen.adrem.util.FIMOptions.SKETCH_WIDTH_KEY;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Mapper;
+
+import be.uantwerpen.adrem.hadoop.util.CountMinSketch;
+
+/**
+ * Mapper for the sketch pre-pass of the first Apriori phase. Each mapper adds all items of its sub database to a
+ * Count-Min sketch of fixed dimensions and reports the sketch when it is done. The memory used and the data sent to the
+ * reducer are independent of the number of distinct items.
+ * 
+ * <pre>
+ * {@code
+ * Input:
+ * LongWritable   Text
+ * (Offset)       (Transaction)
+ * 0              "1 2 3"
+ * 6              "1 4"
+ * 
+ * Output:
+ * IntWritable    CountMinSketch
+ * (0)            (Sketch of the sub database)
+ * 0              [counts of 1, 2, 3, 4 hashed into width x depth cells]
+ * }
+ * </pre>
+ */
+public class CountMinSketchMapper extends Mapper<LongWritable,Text,IntWritable,CountMinSketch> {
+  
+  private CountMinSketch sketch;
+  private final TransactionTokenizer tokenizer = new TransactionTokenizer();
+  
+  @Override
+  public void setup(Context context) {
+    Configuration conf = context.getConfiguration();
+    sketch = new CountMinSketch(conf.getInt(SKETCH_WIDTH_KEY, 0), conf.getInt(SKETCH_DEPTH_KEY, 0));
+  }
+  
+  @Override
+  public void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
+    int length = tokenizer.tokenize(value);
+    int[] items = tokenizer.getItems();
+    for (int i = 0; i < length; i++) {
+      sketch.add(items[i]);
+    }
+  }
+  
+  @Override
+  public void cleanup(Context context) throws IOException, InterruptedException {
+    context.write(new IntWritable(0), sketch);
+  }
+}
@@ -0,0 +1,60 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.bigfim;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.mapreduce.Reducer;
+
+import be.uantwerpen.adrem.hadoop.util.CountMinSketch;
+
+/**
+ * Reducer for the sketch pre-pass of the first Apriori phase. It merges the sketches of all sub databases into a sketch
+ * of the complete database. Items whose estimated support is below minimum support can not be frequent and are skipped
+ * by the exact count of the first Apriori phase.
+ * 
+ * <pre>
+ * {@code
+ * Input:
+ * IntWritable    Iterable<CountMinSketch>
+ * (0)            (<Sketch of the sub databases>)
+ * 0              <[...], [...], [...]>
+ * 
+ * Output:
+ * IntWritable    CountMinSketch
+ * (0)            (Sketch of the database)
+ * 0              [...]
+ * }
+ * </pre>
+ */
+public class CountMinSketchReducer extends Reducer<IntWritable,CountMinSketch,IntWritable,CountMinSketch> {
+  
+  @Override
+  public void reduce(IntWritable key, Iterable<CountMinSketch> values, Context context)
+      throws IOException, InterruptedException {
+    CountMinSketch sketch = null;
+    for (CountMinSketch value : values) {
+      if (sketch == null) {
+        sketch = new CountMinSketch(value);
+      } else {
+        sketch.merge(value);
+      }
+    }
+    context.write(key, sketch);
+  }
+}
@@ -0,0 +1,165 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.bigfim;
+
+import static be.uantwerpen.adrem.bigfim.Tools.HeadDelimiter;
+import static java.lang.Integer.parseInt;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.BitSet;
+import java.util.Iterator;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import be.uantwerpen.adrem.hadoop.util.Tools.NameStartsWithFilter;
+import be.uantwerpen.adrem.util.ItemSetTrie;
+
+/**
+ * Hash buckets for Direct Hashing and Pruning (DHP). While counting the singletons in the first Apriori phase, every
+ * pair of items in a transaction is hashed into a bucket. The count of a bucket is an upper bound for the support of
+ * every pair hashed to it, so pairs in buckets with a count below minimum support can not be frequent and are removed
+ * from the candidates of the second phase.
+ * 
+ * <pre>
+ * {@code
+ * Mapper output:  "#"  <"Bucket Count", ...>
+ * Reducer output: dhp1/buckets-r-00000 with lines "Bucket\tCount" for the frequent buckets only
+ * }
+ * </pre>
+ */
+public class DhpBuckets {
+  
+  /**
+   * Key used by the mappers to send the bucket counts to the reducer, it never collides with a numeric prefix
+   */
+  public static final String Key = "#";
+  
+  public static final String OutputDir = "dhp1";
+  public static final String BucketsFile = "buckets";
+  
+  private final int numberOfBuckets;
+  private final BitSet frequentBuckets;
+  
+  public DhpBuckets(int numberOfBuckets, BitSet frequentBuckets) {
+    this.numberOfBuckets = numberOfBuckets;
+    this.frequentBuckets = frequentBuckets;
+  }
+  
+  /**
+   * Gets the bucket of a pair of items.
+   * 
+   * @param item1
+   *          the smallest item of the pair
+   * @param item2
+   *          the largest item of the pair
+   * @param numberOfBuckets
+   *          the total number of buckets
+   * @return the index of the bucket
+   */
+  public static int bucket(int item1, int item2, int numberOfBuckets) {
+    long hash = item1 * 0x9E3779B1L + item2;
+    hash ^= hash >>> 29;
+    return (int) ((hash & Long.MAX_VALUE) % numberOfBuckets);
+  }
+  
+  /**
+   * Hashes all pairs of a sorted array of items into the buckets.
+   * 
+   * @param items
+   *          sorted array of items
+   * @param length
+   *          the number of items used from the array
+   * @param counts
+   *          bucket counts that are incremented
+   */
+  public static void countPairs(int[] items, int length, int[] counts) {
+    for (int i = 0; i < length - 1; i++) {
+      int item1 = items[i];
+      for (int j = i + 1; j < length; j++) {
+        int item2 = items[j];
+        if (item1 != item2) {
+          counts[bucket(item1, item2, counts.length)]++;
+        }
+      }
+    }
+  }
+  
+  /**
+   * Reads the frequent buckets written by the reducer of the first Apriori phase.
+   * 
+   * @param conf
+   *          hadoop configuration object
+   * @param dir
+   *          directory containing the bucket files
+   * @param numberOfBuckets
+   *          the total number of buckets
+   * @return the frequent buckets
+   * @throws IOException
+   */
+  public static DhpBuckets read(Configuration conf, Path dir, int numberOfBuckets) throws IOException {
+    BitSet frequentBuckets = new BitSet(numberOfBuckets);
+    FileSystem fs = dir.getFileSystem(conf);
+    if (fs.exists(dir)) {
+      for (FileStatus status : fs.listStatus(dir, new NameStartsWithFilter(BucketsFile))) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(status.getPath())));
+        try {
+          String line;
+          while ((line = reader.readLine()) != null) {
+            frequentBuckets.set(parseInt(line.split(HeadDelimiter)[0]));
+          }
+        } finally {
+          reader.close();
+        }
+      }
+    }
+    return new DhpBuckets(numberOfBuckets, frequentBuckets);
+  }
+  
+  public boolean isFrequent(int item1, int item2) {
+    return frequentBuckets.get(bucket(item1, item2, numberOfBuckets));
+  }
+  
+  /**
+   * Removes the pairs from a candidate trie that are hashed to an infrequent bucket. Prefixes that lose all their
+   * extensions are removed as well, such that they are not mistaken for candidates.
+   * 
+   * @param trie
+   *          the root of a trie with candidate pairs
+   * @return the number of pruned candidates
+   */
+  public int prune(ItemSetTrie trie) {
+    int pruned = 0;
+    for (Iterator<ItemSetTrie> it = trie.children.values().iterator(); it.hasNext();) {
+      ItemSetTrie prefix = it.next();
+      for (Iterator<ItemSetTrie> it2 = prefix.children.values().iterator(); it2.hasNext();) {
+        if (!isFrequent(prefix.id, it2.next().id)) {
+          it2.remove();
+          pruned++;
+        }
+      }
+      if (prefix.children.isEmpty()) {
+        it.remove();
+      }
+    }
+    return pruned;
+  }
+}
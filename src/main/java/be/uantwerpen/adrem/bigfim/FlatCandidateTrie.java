@@ -0,0 +1,468 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.bigfim;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Sets.newTreeSet;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import be.uantwerpen.adrem.util.ItemSetTrie;
+import be.uantwerpen.adrem.util.ItemSetTrie.SupportCountItemsetTrie;
+
+/**
+ * Read-only array representation of a candidate trie. The children of a node are stored as a sorted slice of one items
+ * array, so a lookup is a binary search in a small range instead of a hash map access with boxing. Candidates are the
+ * leaves of the trie and are identified by their index in {@link #leaves}, which refers back to the nodes of the
+ * original trie. Since the structure is never modified after construction, it can be shared between threads.
+ * 
+ * A trie read from a candidate trie file has no original trie. Its supports are then kept in an array indexed by leaf.
+ * 
+ * When searching the candidates of a transaction, each node picks the cheaper way to match its children against the
+ * remaining items of the transaction: looking up every item in the children, or walking the children and searching
+ * them in the transaction. The latter keeps long transactions from being scanned completely at nodes with only a few
+ * children.
+ * 
+ * <pre>
+ * {@code
+ * Trie:        Arrays:
+ * 
+ * 1 - 2        node:          0       1       2
+ *   - 3        firstChild:    0       2       4       5
+ * 2 - 3        childItem:     1   2 | 2   3 | 3
+ *              childTarget:   1   2 | ~0  ~1| ~2            | ~l refers to leaf l
+ * }
+ * </pre>
+ */
+public class FlatCandidateTrie {
+  
+  /**
+   * Returned by {@link #childOf(int, int)} if a node has no child for an item
+   */
+  public static final int NO_CHILD = Integer.MIN_VALUE;
+  
+  /**
+   * Number of bytes taken by an inner node: its first child and the item and target of the edge leading to it
+   */
+  public static final int BYTES_PER_NODE = 12;
+  
+  /**
+   * Number of bytes taken by a candidate: the item and target of the edge leading to its leaf and its support
+   */
+  public static final int BYTES_PER_CANDIDATE = 12;
+  
+  private static final Comparator<int[]> ByItem = new Comparator<int[]>() {
+    @Override
+    public int compare(int[] o1, int[] o2) {
+      return o1[0] < o2[0] ? -1 : (o1[0] == o2[0] ? 0 : 1);
+    }
+  };
+  
+  private final int[] firstChild;
+  private final int[] childItem;
+  private final int[] childTarget;
+  private final int leafDepth;
+  
+  /**
+   * The nodes of the original trie that correspond to the candidates, or null if the trie has no original trie
+   */
+  public final ItemSetTrie[] leaves;
+  private final int[] supports;
+  
+  public FlatCandidateTrie(ItemSetTrie trie) {
+    List<ItemSetTrie> nodes = newArrayList();
+    int leafCount = 0;
+    int edges = 0;
+    int depth = 0;
+    nodes.add(trie);
+    for (int i = 0; i < nodes.size(); i++) {
+      ItemSetTrie node = nodes.get(i);
+      for (Integer item : newTreeSet(node.children.keySet())) {
+        ItemSetTrie child = node.children.get(item);
+        if (child.children.isEmpty()) {
+          leafCount++;
+        } else {
+          nodes.add(child);
+        }
+        edges++;
+      }
+    }
+    
+    firstChild = new int[nodes.size() + 1];
+    childItem = new int[edges];
+    childTarget = new int[edges];
+    leaves = new ItemSetTrie[leafCount];
+    supports = null;
+    
+    int nodeIx = 1;
+    int leafIx = 0;
+    int edgeIx = 0;
+    for (int i = 0; i < nodes.size(); i++) {
+      ItemSetTrie node = nodes.get(i);
+      firstChild[i] = edgeIx;
+      for (Integer item : newTreeSet(node.children.keySet())) {
+        ItemSetTrie child = node.children.get(item);
+        childItem[edgeIx] = item;
+        if (child.children.isEmpty()) {
+          leaves[leafIx] = child;
+          childTarget[edgeIx] = ~leafIx++;
+        } else {
+          childTarget[edgeIx] = nodeIx++;
+        }
+        edgeIx++;
+      }
+    }
+    firstChild[nodes.size()] = edgeIx;
+    
+    for (ItemSetTrie node = trie; !node.children.isEmpty(); node = node.children.values().iterator().next()) {
+      depth++;
+    }
+    leafDepth = depth;
+  }
+  
+  /**
+   * Creates a trie from its arrays, without an original trie.
+   */
+  FlatCandidateTrie(int[] firstChild, int[] childItem, int[] childTarget) {
+    this.firstChild = firstChild;
+    this.childItem = childItem;
+    this.childTarget = childTarget;
+    int leafCount = 0;
+    for (int target : childTarget) {
+      if (target < 0) {
+        leafCount++;
+      }
+    }
+    leaves = null;
+    supports = new int[leafCount];
+    int depth = 0;
+    for (int node = 0; node >= 0 && firstChild[node] < firstChild[node + 1]; node = childTarget[firstChild[node]]) {
+      depth++;
+    }
+    leafDepth = depth;
+  }
+  
+  /**
+   * Reads a trie written by {@link #write(DataOutputStream)}.
+   */
+  static FlatCandidateTrie read(IntBuffer buffer) {
+    int[] firstChild = new int[buffer.get() + 1];
+    buffer.get(firstChild);
+    int[] childItem = new int[firstChild[firstChild.length - 1]];
+    buffer.get(childItem);
+    int[] childTarget = new int[childItem.length];
+    buffer.get(childTarget);
+    return new FlatCandidateTrie(firstChild, childItem, childTarget);
+  }
+  
+  /**
+   * Writes the arrays of the trie: the number of nodes followed by the first children, the items and the targets.
+   */
+  void write(DataOutputStream out) throws IOException {
+    out.writeInt(firstChild.length - 1);
+    for (int position : firstChild) {
+      out.writeInt(position);
+    }
+    for (int item : childItem) {
+      out.writeInt(item);
+    }
+    for (int target : childTarget) {
+      out.writeInt(target);
+    }
+  }
+  
+  /**
+   * Combines tries into one trie. Children with the same item are merged, so the tries may share the nodes of their
+   * prefixes, but a candidate must not occur in more than one trie.
+   * 
+   * @param tries
+   *          tries without original tries
+   * @return the combined trie, or the trie itself if there is only one
+   */
+  public static FlatCandidateTrie merge(List<FlatCandidateTrie> tries) {
+    if (tries.size() == 1) {
+      return tries.get(0);
+    }
+    int nodeBound = 1;
+    int edgeBound = 0;
+    for (FlatCandidateTrie trie : tries) {
+      nodeBound += trie.firstChild.length - 1;
+      edgeBound += trie.childItem.length;
+    }
+    int[] firstChild = new int[nodeBound + 1];
+    int[] childItem = new int[edgeBound];
+    int[] childTarget = new int[edgeBound];
+    
+    // every node of the combined trie is the list of (trie, node) pairs it is made of
+    List<List<int[]>> nodes = newArrayList();
+    List<int[]> root = newArrayList();
+    for (int t = 0; t < tries.size(); t++) {
+      root.add(new int[] {t, 0});
+    }
+    nodes.add(root);
+    int edges = 0;
+    int leafCount = 0;
+    for (int node = 0; node < nodes.size(); node++) {
+      firstChild[node] = edges;
+      List<int[]> children = newArrayList();
+      for (int[] part : nodes.get(node)) {
+        FlatCandidateTrie trie = tries.get(part[0]);
+        for (int ix = trie.firstChild[part[1]]; ix < trie.firstChild[part[1] + 1]; ix++) {
+          children.add(new int[] {trie.childItem[ix], part[0], trie.childTarget[ix]});
+        }
+      }
+      Collections.sort(children, ByItem);
+      for (int i = 0; i < children.size(); i++) {
+        int[] child = children.get(i);
+        childItem[edges] = child[0];
+        if (child[2] < 0) {
+          childTarget[edges++] = ~leafCount++;
+          continue;
+        }
+        List<int[]> parts = newArrayList();
+        parts.add(new int[] {child[1], child[2]});
+        while (i + 1 < children.size() && children.get(i + 1)[0] == child[0]) {
+          int[] next = children.get(++i);
+          parts.add(new int[] {next[1], next[2]});
+        }
+        childTarget[edges++] = nodes.size();
+        nodes.add(parts);
+      }
+    }
+    firstChild[nodes.size()] = edges;
+    return new FlatCandidateTrie(Arrays.copyOf(firstChild, nodes.size() + 1), Arrays.copyOf(childItem, edges),
+        Arrays.copyOf(childTarget, edges));
+  }
+  
+  /**
+   * Estimates the memory taken by the arrays of a trie without original trie.
+   * 
+   * @param nodes
+   *          number of inner nodes, including the root
+   * @param candidates
+   *          number of candidates
+   * @return the estimated size in bytes
+   */
+  public static long estimateSize(long nodes, long candidates) {
+    return nodes * BYTES_PER_NODE + candidates * BYTES_PER_CANDIDATE;
+  }
+  
+  /**
+   * @return the memory taken by the arrays of this trie, not counting an original trie
+   */
+  public long estimateSize() {
+    return estimateSize(numberOfNodes(), numberOfLeaves());
+  }
+  
+  /**
+   * @return a trie sharing the arrays of this trie with supports of its own, so the original trie can be dropped
+   */
+  FlatCandidateTrie withoutOriginal() {
+    return new FlatCandidateTrie(firstChild, childItem, childTarget);
+  }
+  
+  public int numberOfNodes() {
+    return firstChild.length - 1;
+  }
+  
+  public int numberOfLeaves() {
+    return leaves == null ? supports.length : leaves.length;
+  }
+  
+  /**
+   * @return the number of items in a candidate
+   */
+  public int getLeafDepth() {
+    return leafDepth;
+  }
+  
+  /**
+   * @return the position of the first child of a node, children are at positions {@code childrenBegin(node)} up to
+   *         {@code childrenEnd(node)} in ascending order of their items
+   */
+  public int childrenBegin(int node) {
+    return firstChild[node];
+  }
+  
+  public int childrenEnd(int node) {
+    return firstChild[node + 1];
+  }
+  
+  public int itemAt(int position) {
+    return childItem[position];
+  }
+  
+  /**
+   * @return the index of the child node at a position, or the complement of the leaf index if the child is a candidate
+   */
+  public int targetAt(int position) {
+    return childTarget[position];
+  }
+  
+  /**
+   * Gets the child of a node for an item.
+   * 
+   * @param node
+   *          index of the node, the root has index 0
+   * @param item
+   *          the item of the child
+   * @return the index of the child node, the complement of the leaf index if the child is a candidate or
+   *         {@link #NO_CHILD}
+   */
+  public int childOf(int node, int item) {
+    int ix = Arrays.binarySearch(childItem, firstChild[node], firstChild[node + 1], item);
+    return ix < 0 ? NO_CHILD : childTarget[ix];
+  }
+  
+  /**
+   * Adds supports to the candidates of the original trie, or to the supports of the trie if it has no original trie.
+   * 
+   * @param counts
+   *          the supports indexed by leaf
+   */
+  public void addSupports(int[] counts) {
+    if (leaves == null) {
+      for (int leaf = 0; leaf < counts.length; leaf++) {
+        supports[leaf] += counts[leaf];
+      }
+      return;
+    }
+    for (int leaf = 0; leaf < counts.length; leaf++) {
+      ((SupportCountItemsetTrie) leaves[leaf]).support += counts[leaf];
+    }
+  }
+  
+  /**
+   * @return the support of a candidate
+   */
+  public int getSupport(int leaf) {
+    return leaves == null ? supports[leaf] : ((SupportCountItemsetTrie) leaves[leaf]).support;
+  }
+  
+  /**
+   * Resets the supports of a trie without original trie, such that it can be counted again.
+   */
+  public void clearSupports() {
+    if (supports != null) {
+      Arrays.fill(supports, 0);
+    }
+  }
+  
+  /**
+   * Finds the candidates contained in a transaction.
+   * 
+   * @param items
+   *          the items of the transaction in ascending order
+   * @param length
+   *          the number of items used from the array
+   * @param hits
+   *          array receiving the leaf indices of the candidates found, must be at least as long as the number of leaves
+   * @return the number of candidates found
+   */
+  public int findCandidates(int[] items, int length, int[] hits) {
+    if (numberOfLeaves() == 0) {
+      return 0;
+    }
+    return find(0, 1, items, 0, length, hits, 0);
+  }
+  
+  private int find(int node, int level, int[] items, int from, int length, int[] hits, int found) {
+    final int begin = firstChild[node];
+    final int end = firstChild[node + 1];
+    // the child at this level needs leafDepth - level more items after it
+    final int last = length - (leafDepth - level);
+    if (last <= from) {
+      return found;
+    }
+    if (walkChildren(end - begin, last - from)) {
+      return findByChildren(begin, end, level, items, from, last, length, hits, found);
+    }
+    return findByItems(begin, end, level, items, from, last, length, hits, found);
+  }
+  
+  /**
+   * Decides whether to walk the children and search them in the transaction or to look up every transaction item in the
+   * children. Both use binary searches, so the costs are proportional to the number of searches times the logarithm of
+   * the size of the array searched in.
+   */
+  private static boolean walkChildren(int children, int items) {
+    return (long) children * log2(items) < (long) items * log2(children);
+  }
+  
+  private static int log2(int n) {
+    return 33 - Integer.numberOfLeadingZeros(n);
+  }
+  
+  private int findByItems(int begin, int end, int level, int[] items, int from, int last, int length, int[] hits,
+      int found) {
+    for (int i = from; i < last && begin < end; i++) {
+      int ix = Arrays.binarySearch(childItem, begin, end, items[i]);
+      if (ix < 0) {
+        begin = ~ix;
+        continue;
+      }
+      found = visit(ix, level, items, i, length, hits, found);
+      begin = ix + 1;
+    }
+    return found;
+  }
+  
+  private int findByChildren(int begin, int end, int level, int[] items, int from, int last, int length, int[] hits,
+      int found) {
+    for (int ix = begin; ix < end && from < last; ix++) {
+      int i = gallop(items, from, last, childItem[ix]);
+      if (i < 0) {
+        from = ~i;
+        continue;
+      }
+      found = visit(ix, level, items, i, length, hits, found);
+      from = i + 1;
+    }
+    return found;
+  }
+  
+  private int visit(int ix, int level, int[] items, int i, int length, int[] hits, int found) {
+    int target = childTarget[ix];
+    if (target < 0) {
+      hits[found++] = ~target;
+      return found;
+    }
+    return find(target, level + 1, items, i + 1, length, hits, found);
+  }
+  
+  /**
+   * Searches an item in a sorted range by doubling the step from the start of the range, followed by a binary search.
+   * Consecutive searches for increasing items cost logarithmic in the distance instead of the length of the range.
+   */
+  private static int gallop(int[] items, int from, int to, int key) {
+    int step = 1;
+    int low = from;
+    int high = from;
+    while (high < to && items[high] < key) {
+      low = high + 1;
+      high = from + step;
+      step <<= 1;
+    }
+    return Arrays.binarySearch(items, low, Math.min(high + 1, to), key);
+  }
+}
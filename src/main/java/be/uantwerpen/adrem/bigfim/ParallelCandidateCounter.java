@@ -0,0 +1,140 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.bigfim;
+
+import static com.google.common.collect.Lists.newArrayListWithCapacity;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts the supports of the candidates in a {@link FlatCandidateTrie} using a number of worker threads. The thread
+ * that adds the transactions collects them in batches and hands them to the workers through a bounded queue. All
+ * workers share the same read-only trie and count in a private array, the arrays are merged into the candidate trie
+ * when counting is finished. This way the candidates are loaded only once per task and no synchronization is needed
+ * for counting. When a worker fails, the failure is rethrown by the next call to {@link #add(int[], int)} or
+ * {@link #finish()} instead of waiting for a queue that is no longer drained.
+ */
+public class ParallelCandidateCounter implements CandidateCounter {
+  
+  private static final int BATCH_SIZE = 1024;
+  private static final long POLL_MILLIS = 100;
+  private static final List<int[]> END_OF_INPUT = newArrayListWithCapacity(0);
+  
+  private final FlatCandidateTrie trie;
+  private final BlockingQueue<List<int[]>> queue;
+  private final Worker[] workers;
+  
+  private List<int[]> batch = newArrayListWithCapacity(BATCH_SIZE);
+  private volatile Throwable failure;
+  
+  public ParallelCandidateCounter(FlatCandidateTrie trie, int numberOfThreads) {
+    this.trie = trie;
+    this.queue = new ArrayBlockingQueue<List<int[]>>(2 * numberOfThreads);
+    this.workers = new Worker[numberOfThreads];
+    for (int i = 0; i < numberOfThreads; i++) {
+      workers[i] = new Worker();
+      workers[i].setDaemon(true);
+      workers[i].start();
+    }
+  }
+  
+  @Override
+  public void add(int[] items, int length) throws IOException, InterruptedException {
+    batch.add(Arrays.copyOf(items, length));
+    if (batch.size() == BATCH_SIZE) {
+      put(batch);
+      batch = newArrayListWithCapacity(BATCH_SIZE);
+    }
+  }
+  
+  /**
+   * Waits until all transactions are counted and adds the supports to the leaves of the candidate trie.
+   * 
+   * @throws IOException
+   *           if one of the workers failed
+   * @throws InterruptedException
+   */
+  @Override
+  public void finish() throws IOException, InterruptedException {
+    if (!batch.isEmpty()) {
+      put(batch);
+    }
+    for (int i = 0; i < workers.length; i++) {
+      put(END_OF_INPUT);
+    }
+    for (Worker worker : workers) {
+      worker.join();
+    }
+    checkFailure();
+    for (Worker worker : workers) {
+      trie.addSupports(worker.counts);
+    }
+  }
+  
+  /**
+   * Hands a batch to the workers, waiting while the queue is full for as long as none of the workers failed.
+   */
+  private void put(List<int[]> transactions) throws IOException, InterruptedException {
+    checkFailure();
+    while (!queue.offer(transactions, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+      checkFailure();
+    }
+  }
+  
+  private void checkFailure() throws IOException {
+    if (failure != null) {
+      for (Worker worker : workers) {
+        worker.interrupt();
+      }
+      throw new IOException("Counting candidates failed", failure);
+    }
+  }
+  
+  private class Worker extends Thread {
+    
+    private final int[] counts = new int[trie.numberOfLeaves()];
+    private final int[] hits = new int[trie.numberOfLeaves()];
+    
+    @Override
+    public void run() {
+      try {
+        List<int[]> transactions;
+        while ((transactions = queue.take()) != END_OF_INPUT && failure == null) {
+          count(transactions);
+        }
+      } catch (Throwable t) {
+        if (failure == null) {
+          failure = t;
+        }
+      }
+    }
+    
+    private void count(List<int[]> transactions) {
+      for (int[] items : transactions) {
+        int found = trie.findCandidates(items, items.length, hits);
+        for (int i = 0; i < found; i++) {
+          counts[hits[i]]++;
+        }
+      }
+    }
+  }
+}
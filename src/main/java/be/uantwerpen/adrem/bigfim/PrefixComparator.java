@@ -0,0 +1,79 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.bigfim;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Sorts the prefixes of the Apriori phase in descending order of their items. Every subset of a candidate that is
+ * generated from a prefix group, other than the two extensions of the prefix, lies in a prefix group that is larger in
+ * this order. The reducer therefore sees those groups first and can prune the candidates while it writes the trie
+ * groups.
+ * 
+ * Items are compared numerically by comparing their number of digits first. Other keys, such as the empty prefix and
+ * the key of the DHP buckets, are compared the same way, so the order is total.
+ */
+public class PrefixComparator extends WritableComparator {
+  
+  private static final byte Delimiter = ' ';
+  
+  public PrefixComparator() {
+    super(Text.class);
+  }
+  
+  @Override
+  public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+    int n1 = WritableUtils.decodeVIntSize(b1[s1]);
+    int n2 = WritableUtils.decodeVIntSize(b2[s2]);
+    return compareItems(b2, s2 + n2, s2 + l2, b1, s1 + n1, s1 + l1);
+  }
+  
+  @SuppressWarnings("rawtypes")
+  @Override
+  public int compare(WritableComparable a, WritableComparable b) {
+    Text t1 = (Text) a;
+    Text t2 = (Text) b;
+    return compareItems(t2.getBytes(), 0, t2.getLength(), t1.getBytes(), 0, t1.getLength());
+  }
+  
+  /**
+   * Compares two prefixes in ascending order of their items.
+   */
+  private static int compareItems(byte[] b1, int s1, int e1, byte[] b2, int s2, int e2) {
+    while (s1 < e1 && s2 < e2) {
+      int length1 = itemEnd(b1, s1, e1) - s1;
+      int length2 = itemEnd(b2, s2, e2) - s2;
+      int cmp = length1 != length2 ? length1 - length2 : compareBytes(b1, s1, length1, b2, s2, length2);
+      if (cmp != 0) {
+        return cmp;
+      }
+      s1 += length1 + 1;
+      s2 += length2 + 1;
+    }
+    return (s1 < e1 ? 1 : 0) - (s2 < e2 ? 1 : 0);
+  }
+  
+  private static int itemEnd(byte[] bytes, int start, int end) {
+    while (start < end && bytes[start] != Delimiter) {
+      start++;
+    }
+    return start;
+  }
+}
@@ -0,0 +1,38 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.bigfim;
+
+import static be.uantwerpen.adrem.bigfim.Tools.ItemDelimiter;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Partitioner;
+
+/**
+ * Partitions the prefixes of the Apriori phase over the reducers by the hash of their first item. All extensions of a
+ * prefix end up in the same reducer, and prefixes starting with the same item are written to the same trie groups,
+ * where they share the top of the candidate trie in the mappers of the next phase.
+ */
+public class PrefixPartitioner extends Partitioner<Text,Text> {
+  
+  @Override
+  public int getPartition(Text key, Text value, int numPartitions) {
+    String prefix = key.toString();
+    int end = prefix.indexOf(ItemDelimiter);
+    String firstItem = end == -1 ? prefix : prefix.substring(0, end);
+    return (firstItem.hashCode() & Integer.MAX_VALUE) % numPartitions;
+  }
+}
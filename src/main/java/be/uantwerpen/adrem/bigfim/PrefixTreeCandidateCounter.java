@@ -0,0 +1,180 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.bigfim;
+
+import java.util.Arrays;
+
+/**
+ * Aggregates the transactions in a prefix tree with occurrence counts, similar to an FP-tree without header links, and
+ * counts the candidates by walking the tree once. A path of the tree is searched in the candidate trie only once for
+ * all transactions sharing it, and the candidates completed at a tree node are weighted with the number of
+ * transactions passing through that node.
+ * 
+ * <pre>
+ * {@code
+ * Transactions:    Prefix tree:
+ * 
+ * 1 2 3            1(3) - 2(3) - 3(2)
+ * 1 2 3                        - 4(1)
+ * 1 2 4            2(1) - 3(1)
+ * 2 3
+ * }
+ * </pre>
+ * 
+ * The tree is stored in flat arrays and the children of a node are found through a hash table on (parent, item). When
+ * the tree grows beyond a fixed number of nodes, it is counted and cleared.
+ */
+public class PrefixTreeCandidateCounter implements CandidateCounter {
+  
+  private static final int MAX_NODES = 1 << 22;
+  private static final int ROOT = 0;
+  private static final int NONE = -1;
+  
+  private final CandidateFrontier frontier;
+  
+  private int[] item;
+  private int[] count;
+  private int[] parent;
+  private int[] firstChild;
+  private int[] nextSibling;
+  private int size;
+  
+  private long[] edgeKeys;
+  private int[] edgeNodes;
+  private int edgeMask;
+  
+  public PrefixTreeCandidateCounter(FlatCandidateTrie trie) {
+    this.frontier = new CandidateFrontier(trie);
+    clear();
+  }
+  
+  @Override
+  public void add(int[] items, int length) {
+    int node = ROOT;
+    for (int i = 0; i < length; i++) {
+      node = getChild(node, items[i]);
+      count[node]++;
+    }
+    if (size >= MAX_NODES) {
+      countTree();
+      clear();
+    }
+  }
+  
+  @Override
+  public void finish() {
+    countTree();
+    frontier.finish();
+  }
+  
+  private void countTree() {
+    int node = firstChild[ROOT];
+    while (node != NONE) {
+      frontier.push(item[node]);
+      if (firstChild[node] != NONE) {
+        node = firstChild[node];
+        continue;
+      }
+      while (node != NONE) {
+        frontier.pop(count[node]);
+        if (nextSibling[node] != NONE) {
+          node = nextSibling[node];
+          break;
+        }
+        node = parent[node] == ROOT ? NONE : parent[node];
+      }
+    }
+  }
+  
+  private void clear() {
+    int capacity = 1024;
+    item = new int[capacity];
+    count = new int[capacity];
+    parent = new int[capacity];
+    firstChild = new int[capacity];
+    nextSibling = new int[capacity];
+    firstChild[ROOT] = NONE;
+    size = 1;
+    
+    edgeKeys = new long[2 * capacity];
+    edgeNodes = new int[2 * capacity];
+    Arrays.fill(edgeNodes, NONE);
+    edgeMask = edgeKeys.length - 1;
+  }
+  
+  private int getChild(int node, int childItem) {
+    long key = ((long) node << 32) | (childItem & 0xffffffffL);
+    int slot = slot(key);
+    while (edgeNodes[slot] != NONE) {
+      if (edgeKeys[slot] == key) {
+        return edgeNodes[slot];
+      }
+      slot = (slot + 1) & edgeMask;
+    }
+    
+    int child = newNode(node, childItem);
+    edgeKeys[slot] = key;
+    edgeNodes[slot] = child;
+    if (2 * size > edgeKeys.length) {
+      rehash();
+    }
+    return child;
+  }
+  
+  private int newNode(int node, int childItem) {
+    if (size == item.length) {
+      int capacity = size * 2;
+      item = Arrays.copyOf(item, capacity);
+      count = Arrays.copyOf(count, capacity);
+      parent = Arrays.copyOf(parent, capacity);
+      firstChild = Arrays.copyOf(firstChild, capacity);
+      nextSibling = Arrays.copyOf(nextSibling, capacity);
+    }
+    int child = size++;
+    item[child] = childItem;
+    count[child] = 0;
+    parent[child] = node;
+    firstChild[child] = NONE;
+    nextSibling[child] = firstChild[node];
+    firstChild[node] = child;
+    return child;
+  }
+  
+  private void rehash() {
+    long[] oldKeys = edgeKeys;
+    int[] oldNodes = edgeNodes;
+    edgeKeys = new long[oldKeys.length * 2];
+    edgeNodes = new int[oldNodes.length * 2];
+    Arrays.fill(edgeNodes, NONE);
+    edgeMask = edgeKeys.length - 1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldNodes[i] != NONE) {
+        int slot = slot(oldKeys[i]);
+        while (edgeNodes[slot] != NONE) {
+          slot = (slot + 1) & edgeMask;
+        }
+        edgeKeys[slot] = oldKeys[i];
+        edgeNodes[slot] = oldNodes[i];
+      }
+    }
+  }
+  
+  private int slot(long key) {
+    long hash = key * 0x9E3779B97F4A7C15L;
+    return (int) (hash >>> 40) & edgeMask;
+  }
+}
@@ -0,0 +1,99 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.bigfim;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Collections.sort;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.primitives.Ints;
+
+/**
+ * Buffers transactions and counts them in lexicographic order. Consecutive transactions share their longest common
+ * prefix, so the search of the candidates only restarts from the first item that differs from the previous
+ * transaction. Exact duplicates do not touch the trie at all.
+ * 
+ * The weights of the positions are tracked lazily: a position remembers how many transactions were counted when it was
+ * pushed, and when it is popped, all transactions counted in between contain its candidates.
+ */
+public class SortedCandidateCounter implements CandidateCounter {
+  
+  private static final int MAX_BUFFERED_ITEMS = 1 << 22;
+  
+  private final CandidateFrontier frontier;
+  private final List<int[]> buffer = newArrayList();
+  private int bufferedItems = 0;
+  
+  private int[] previous = new int[0];
+  private int[] pushedAt = new int[16];
+  private int transactions = 0;
+  
+  public SortedCandidateCounter(FlatCandidateTrie trie) {
+    this.frontier = new CandidateFrontier(trie);
+  }
+  
+  @Override
+  public void add(int[] items, int length) {
+    buffer.add(Arrays.copyOf(items, length));
+    bufferedItems += length;
+    if (bufferedItems >= MAX_BUFFERED_ITEMS) {
+      countBuffer();
+    }
+  }
+  
+  @Override
+  public void finish() {
+    countBuffer();
+    popTo(0);
+    frontier.finish();
+  }
+  
+  private void countBuffer() {
+    sort(buffer, Ints.lexicographicalComparator());
+    for (int[] items : buffer) {
+      count(items);
+    }
+    buffer.clear();
+    bufferedItems = 0;
+  }
+  
+  private void count(int[] items) {
+    int common = 0;
+    final int max = Math.min(previous.length, items.length);
+    while (common < max && previous[common] == items[common]) {
+      common++;
+    }
+    popTo(common);
+    if (items.length > pushedAt.length) {
+      pushedAt = Arrays.copyOf(pushedAt, Math.max(items.length, pushedAt.length * 2));
+    }
+    for (int i = common; i < items.length; i++) {
+      pushedAt[i] = transactions;
+      frontier.push(items[i]);
+    }
+    transactions++;
+    previous = items;
+  }
+  
+  private void popTo(int depth) {
+    while (frontier.depth() > depth) {
+      frontier.pop(transactions - pushedAt[frontier.depth() - 1]);
+    }
+  }
+}
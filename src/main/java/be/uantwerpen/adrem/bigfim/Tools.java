@@ -24,11 +24,19 @@ import static java.util.Collections.sort;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Arrays;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map.Entry;
 import java.util.Set;
 
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import be.uantwerpen.adrem.util.ItemRecoding;
 import be.uantwerpen.adrem.util.ItemSetTrie;
 
 /**
@@ -41,11 +49,53 @@ public class Tools {
   // Delimiter for the items
   public static final String ItemDelimiter = " ";
   
+  /**
+   * Reads the candidates for the next level into the given trie. The file is either a candidate trie file created by
+   * the driver, or a trie group file from which the candidates are generated.
+   * 
+   * @param fileName
+   *          name of the local file containing the candidates or the trie group
+   * @param itemsetTrie
+   *          the root of the trie to add the candidates to
+   * @return the size of the itemsets from which the candidates are generated
+   * @throws IOException
+   */
+  public static int readCandidates(String fileName, ItemSetTrie itemsetTrie) throws IOException {
+    if (CandidateTrieFile.isCandidateTrieFile(fileName)) {
+      return CandidateTrieFile.read(fileName, itemsetTrie);
+    }
+    return readCountTrieFromItemSetsFile(fileName, itemsetTrie);
+  }
+  
   public static int readCountTrieFromItemSetsFile(String fileName, ItemSetTrie itemsetTrie)
       throws NumberFormatException, IOException {
+    BufferedReader reader = new BufferedReader(new FileReader(fileName));
+    try {
+      return readCountTrieFromItemSetsFile(reader, itemsetTrie, null);
+    } finally {
+      reader.close();
+    }
+  }
+  
+  /**
+   * Generates the candidates from the itemsets in a trie group and adds them to a trie. Itemsets sharing the same
+   * prefix are joined pairwise. If a trie of frequent itemsets is given, candidates having an infrequent subset are
+   * pruned before they enter the trie.
+   * 
+   * @param reader
+   *          reader for the trie group
+   * @param itemsetTrie
+   *          the root of the trie to add the candidates to
+   * @param frequents
+   *          trie containing all frequent itemsets of the level of the trie group, or null to disable pruning
+   * @return the size of the itemsets in the trie group
+   * @throws NumberFormatException
+   * @throws IOException
+   */
+  public static int readCountTrieFromItemSetsFile(BufferedReader reader, ItemSetTrie itemsetTrie,
+      ItemSetTrie frequents) throws NumberFormatException, IOException {
     String line;
     int itemsetSize = 0;
-    BufferedReader reader = new BufferedReader(new FileReader(fileName));
     List<int[]> itemsets = newArrayList();
     int[] prevSet = new int[0];
     int candidateCount = 0;
@@ -61,38 +111,32 @@ public class Tools {
       }
       
       if (!check(intItemset, prevSet)) {
-        candidateCount += addToTrie(itemsets, itemsetTrie);
+        candidateCount += addToTrie(itemsets, itemsetTrie, frequents);
         itemsets.clear();
       }
       prevSet = intItemset;
       
       itemsets.add(intItemset);
     }
-    candidateCount += addToTrie(itemsets, itemsetTrie);
-    reader.close();
+    candidateCount += addToTrie(itemsets, itemsetTrie, frequents);
     System.out.println("Candidates directly from file: " + candidateCount);
     return itemsetSize;
   }
   
-  private static int addToTrie(List<int[]> itemsets, ItemSetTrie itemsetTrie) {
+  private static int addToTrie(List<int[]> itemsets, ItemSetTrie itemsetTrie, ItemSetTrie frequents) {
     int candidateCount = 0;
     ListIterator<int[]> it1 = itemsets.listIterator(0);
     for (int i = 0; i < itemsets.size() - 1; i++) {
       int[] itemset1 = it1.next();
       ListIterator<int[]> it2 = itemsets.listIterator(i + 1);
       while (it2.hasNext()) {
-        int[] itemset2 = it2.next();
-        ItemSetTrie trie = itemsetTrie;
-        int lastIx = itemset1.length - 1;
-        for (int j = 0; j < lastIx; j++) {
-          trie = trie.getChild(itemset1[j]);
+        int[] candidate = join(itemset1, it2.next());
+        if (frequents != null && !hasFrequentSubsets(candidate, frequents)) {
+          continue;
         }
-        if (itemset1[lastIx] < itemset2[lastIx]) {
-          trie = trie.getChild(itemset1[lastIx]);
-          trie.getChild(itemset2[lastIx]);
-        } else {
-          trie = trie.getChild(itemset2[lastIx]);
-          trie.getChild(itemset1[lastIx]);
+        ItemSetTrie trie = itemsetTrie;
+        for (int item : candidate) {
+          trie = trie.getChild(item);
         }
         
         candidateCount++;
@@ -101,6 +145,124 @@ public class Tools {
     return candidateCount;
   }
   
+  private static int[] join(int[] itemset1, int[] itemset2) {
+    int lastIx = itemset1.length - 1;
+    int[] candidate = Arrays.copyOf(itemset1, itemset1.length + 1);
+    if (itemset1[lastIx] < itemset2[lastIx]) {
+      candidate[lastIx + 1] = itemset2[lastIx];
+    } else {
+      candidate[lastIx] = itemset2[lastIx];
+      candidate[lastIx + 1] = itemset1[lastIx];
+    }
+    return candidate;
+  }
+  
+  /**
+   * Checks if all subsets of length-1 of a candidate are frequent. The two subsets obtained by removing one of the last
+   * two items are the itemsets the candidate is generated from and are not checked again.
+   * 
+   * @param candidate
+   *          the candidate itemset
+   * @param frequents
+   *          trie containing all frequent itemsets of length-1
+   * @return true if all subsets are frequent, false otherwise
+   */
+  public static boolean hasFrequentSubsets(int[] candidate, ItemSetTrie frequents) {
+    for (int skipIx = candidate.length - 3; skipIx >= 0; skipIx--) {
+      if (!containsWithout(frequents, candidate, skipIx)) {
+        return false;
+      }
+    }
+    return true;
+  }
+  
+  private static boolean containsWithout(ItemSetTrie trie, int[] itemset, int skipIx) {
+    for (int i = 0; i < itemset.length; i++) {
+      if (i == skipIx) {
+        continue;
+      }
+      trie = trie.children.get(itemset[i]);
+      if (trie == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+  
+  /**
+   * Reads the itemsets of all trie group files in a directory into one trie. This trie is the lookup structure for the
+   * frequent itemsets of a level that is used to prune the candidates of the next level.
+   * 
+   * @param conf
+   *          hadoop configuration object
+   * @param dir
+   *          directory containing the trie group files
+   * @return trie containing all itemsets from the trie groups
+   * @throws IOException
+   */
+  public static ItemSetTrie readItemSetsTrie(Configuration conf, Path dir) throws IOException {
+    ItemSetTrie itemsetTrie = new ItemSetTrie.SupportCountItemsetTrie(-1);
+    FileSystem fs = dir.getFileSystem(conf);
+    for (FileStatus status : fs.listStatus(dir)) {
+      BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(status.getPath())));
+      try {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          ItemSetTrie trie = itemsetTrie;
+          for (String item : line.split(HeadDelimiter)[0].split(ItemDelimiter)) {
+            trie = trie.getChild(Integer.parseInt(item));
+          }
+        }
+      } finally {
+        reader.close();
+      }
+    }
+    return itemsetTrie;
+  }
+  
+  /**
+   * Adds the candidates of a trie to another trie with the items replaced by their ids. The ids of a candidate are
+   * sorted, which is a different order than the order of the items themselves. A candidate with an item that has no id
+   * can not occur in a recoded transaction and is left out.
+   * 
+   * @param recoding
+   *          the recoding of the frequent items
+   * @param trie
+   *          the root of the trie with the candidates
+   * @param recoded
+   *          the root of the trie to add the recoded candidates to
+   */
+  public static void recode(ItemRecoding recoding, ItemSetTrie trie, ItemSetTrie recoded) {
+    recode(recoding, trie, new int[getDepth(trie)], 0, recoded);
+  }
+  
+  private static int getDepth(ItemSetTrie trie) {
+    int depth = 0;
+    for (ItemSetTrie node = trie; !node.children.isEmpty(); node = node.children.values().iterator().next()) {
+      depth++;
+    }
+    return depth;
+  }
+  
+  private static void recode(ItemRecoding recoding, ItemSetTrie trie, int[] itemset, int depth, ItemSetTrie recoded) {
+    for (ItemSetTrie child : trie.children.values()) {
+      itemset[depth] = recoding.toId(child.id);
+      if (itemset[depth] < 0) {
+        continue;
+      }
+      if (!child.children.isEmpty()) {
+        recode(recoding, child, itemset, depth + 1, recoded);
+        continue;
+      }
+      int[] ids = Arrays.copyOf(itemset, depth + 1);
+      Arrays.sort(ids);
+      ItemSetTrie node = recoded;
+      for (int id : ids) {
+        node = node.getChild(id);
+      }
+    }
+  }
+  
   /**
    * Converts a line containing items into a list of integers. If levelOne is true, all items are added to the list.
    * Otherwise, only items occurring in the set of unique singletons are added to the list. Hence, the parameters
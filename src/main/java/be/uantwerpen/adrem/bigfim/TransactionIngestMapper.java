@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.bigfim;
+
+import static org.apache.hadoop.filecache.DistributedCache.getLocalCacheFiles;
+
+import java.io.IOException;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.VIntWritable;
+import org.apache.hadoop.mapreduce.Mapper;
+
+import be.uantwerpen.adrem.hadoop.util.TransactionWritable;
+import be.uantwerpen.adrem.util.ItemRecoding;
+
+/**
+ * Mapper of the ingest job that runs after the first Apriori phase. It converts its chunk of the text input once into
+ * binary transactions of recoded frequent items, such that the later phases read and parse only a fraction of the
+ * bytes. Infrequent items and transactions without frequent items are dropped. A transaction is keyed by its line
+ * number in the chunk, which is the tid the text input would give it, such that dropping transactions here or in later
+ * phases does not change the tids of the others.
+ * 
+ * <pre>
+ * {@code
+ * Recoding: 3 1 2                          | ids: 3 -> 0, 1 -> 1, 2 -> 2
+ * 
+ * Input:
+ * LongWritable   Text
+ * (Offset)       (Transaction)
+ * 0              "1 2 5"
+ * 6              "4 5"
+ * 10             "3 2"
+ * 
+ * Output:
+ * VIntWritable   TransactionWritable
+ * (Tid)          (Ids)
+ * 0              [1,2]
+ * 2              [0,2]
+ * }
+ * </pre>
+ */
+public class TransactionIngestMapper extends Mapper<LongWritable,Text,VIntWritable,TransactionWritable> {
+  
+  private final TransactionTokenizer tokenizer = new TransactionTokenizer();
+  private final TransactionWritable transaction = new TransactionWritable();
+  private final VIntWritable tid = new VIntWritable();
+  private int counter = 0;
+  private ItemRecoding recoding;
+  
+  @Override
+  public void setup(Context context) throws IOException {
+    Path[] localCacheFiles = getLocalCacheFiles(context.getConfiguration());
+    for (Path localCacheFile : localCacheFiles) {
+      if (ItemRecoding.isRecodingFile(localCacheFile.toString())) {
+        recoding = ItemRecoding.read(localCacheFile.toString());
+      }
+    }
+    if (recoding == null) {
+      throw new IOException("No item recoding in the distributed cache");
+    }
+  }
+  
+  @Override
+  public void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
+    int length = tokenizer.tokenize(value, recoding);
+    if (length != 0) {
+      tid.set(counter);
+      transaction.set(tokenizer.getItems(), length);
+      context.write(tid, transaction);
+    }
+    counter++;
+  }
+}
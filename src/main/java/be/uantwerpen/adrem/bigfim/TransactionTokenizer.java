@@ -0,0 +1,161 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.bigfim;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import org.apache.hadoop.io.Text;
+
+import be.uantwerpen.adrem.util.ItemRecoding;
+
+/**
+ * Parses the items of a transaction straight from the bytes of a line into a reusable array, without creating strings
+ * or boxed integers. Items are filtered or recoded in the same pass, and the array is only sorted if the items of the
+ * line are not in ascending order already.
+ * 
+ * Items are the non-negative numbers in the line. Whitespace and punctuation separate them, such that any such
+ * delimiter is handled without knowing it. Letters, signs, decimal points and other bytes make the line malformed, as
+ * do numbers that do not fit in an int, and throw a NumberFormatException like parsing the items as strings would.
+ */
+public class TransactionTokenizer {
+  
+  private int[] items = new int[16];
+  private int length;
+  
+  /**
+   * Parses all items of a line.
+   * 
+   * @param line
+   *          the line containing items in integer format
+   * @return the number of items
+   */
+  public int tokenize(Text line) {
+    return tokenize(line, null, null);
+  }
+  
+  /**
+   * Parses the items of a line that occur in a set of singletons.
+   * 
+   * @param line
+   *          the line containing items in integer format
+   * @param singletons
+   *          the items to keep, or null to keep all items
+   * @return the number of items kept
+   */
+  public int tokenize(Text line, Set<Integer> singletons) {
+    return tokenize(line, singletons, null);
+  }
+  
+  /**
+   * Parses the ids of the frequent items of a line.
+   * 
+   * @param line
+   *          the line containing items in integer format
+   * @param recoding
+   *          the recoding of the frequent items
+   * @return the number of frequent items
+   */
+  public int tokenize(Text line, ItemRecoding recoding) {
+    return tokenize(line, null, recoding);
+  }
+  
+  /**
+   * @return the array holding the items of the last line in ascending order, only the first {@link #getLength()}
+   *         values are valid and the array is reused for the next line
+   */
+  public int[] getItems() {
+    return items;
+  }
+  
+  public int getLength() {
+    return length;
+  }
+  
+  /**
+   * @return a copy of the items of the last line
+   */
+  public int[] toArray() {
+    return Arrays.copyOf(items, length);
+  }
+  
+  private int tokenize(Text line, Set<Integer> singletons, ItemRecoding recoding) {
+    final byte[] bytes = line.getBytes();
+    final int end = line.getLength();
+    length = 0;
+    boolean sorted = true;
+    int previous = Integer.MIN_VALUE;
+    int i = 0;
+    while (i < end) {
+      if (!isDigit(bytes[i])) {
+        if (!isSeparator(bytes[i])) {
+          throw invalidItem(line, i);
+        }
+        i++;
+        continue;
+      }
+      int item = 0;
+      while (i < end && isDigit(bytes[i])) {
+        int digit = bytes[i] - '0';
+        if (item > (Integer.MAX_VALUE - digit) / 10) {
+          throw invalidItem(line, i);
+        }
+        item = item * 10 + digit;
+        i++;
+      }
+      if (recoding != null) {
+        item = recoding.toId(item);
+        if (item < 0) {
+          continue;
+        }
+      } else if (singletons != null && !singletons.contains(item)) {
+        continue;
+      }
+      if (length == items.length) {
+        items = Arrays.copyOf(items, length * 2);
+      }
+      items[length++] = item;
+      sorted &= previous <= item;
+      previous = item;
+    }
+    if (!sorted) {
+      Arrays.sort(items, 0, length);
+    }
+    return length;
+  }
+  
+  private static boolean isDigit(byte b) {
+    return b >= '0' && b <= '9';
+  }
+  
+  /**
+   * @return true for whitespace and for punctuation that can not be part of a number
+   */
+  private static boolean isSeparator(byte b) {
+    if (b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '\f') {
+      return true;
+    }
+    if (b == '-' || b == '+' || b == '.') {
+      return false;
+    }
+    return (b >= '!' && b <= '/') || (b >= ':' && b <= '@') || (b >= '[' && b <= '`') || (b >= '{' && b <= '~');
+  }
+  
+  private static NumberFormatException invalidItem(Text line, int position) {
+    return new NumberFormatException("Invalid item at position " + position + " of transaction \"" + line + "\"");
+  }
+}
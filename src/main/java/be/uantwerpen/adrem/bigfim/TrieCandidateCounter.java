@@ -0,0 +1,46 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.bigfim;
+
+/**
+ * Counts every transaction on arrival by searching its candidates in the trie.
+ */
+public class TrieCandidateCounter implements CandidateCounter {
+  
+  private final FlatCandidateTrie trie;
+  private final int[] counts;
+  private final int[] hits;
+  
+  public TrieCandidateCounter(FlatCandidateTrie trie) {
+    this.trie = trie;
+    this.counts = new int[trie.numberOfLeaves()];
+    this.hits = new int[trie.numberOfLeaves()];
+  }
+  
+  @Override
+  public void add(int[] items, int length) {
+    int found = trie.findCandidates(items, length, hits);
+    for (int i = 0; i < found; i++) {
+      counts[hits[i]]++;
+    }
+  }
+  
+  @Override
+  public void finish() {
+    trie.addSupports(counts);
+  }
+}
@@ -0,0 +1,183 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.bigfim;
+
+import static be.uantwerpen.adrem.bigfim.Tools.HeadDelimiter;
+import static be.uantwerpen.adrem.bigfim.Tools.ItemDelimiter;
+import static com.google.common.collect.Lists.newArrayList;
+import static org.apache.hadoop.filecache.DistributedCache.getLocalCacheFiles;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.VIntWritable;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
+
+import be.uantwerpen.adrem.hadoop.util.TransactionWritable;
+import be.uantwerpen.adrem.util.ItemRecoding;
+
+import com.google.common.primitives.Ints;
+
+/**
+ * Mapper of the projection job that runs before the prefix groups are computed. Every trie group is computed by a job
+ * of its own, but a transaction can only contribute to the trie groups having a prefix whose first item occurs in the
+ * transaction. The mapper writes every transaction to the projections of those trie groups only, such that each job
+ * reads its own projection instead of the whole database. Transactions are written as binary transactions keyed by
+ * their tid, one file per mapper and trie group, so the jobs reading the projections compute the same tids.
+ * 
+ * <pre>
+ * {@code
+ * Trie groups:
+ * trieGroup-0: "1 2", "1 3"                | first item 1
+ * trieGroup-1: "2 3", "4 5"                | first items 2 and 4
+ * 
+ * Input:
+ * Object         Writable
+ * (Tid)          (Transaction)
+ * 0              [1,2,3]                   | trieGroup-0, trieGroup-1
+ * 1              [1,5]                     | trieGroup-0
+ * 2              [4,5,6]                   | trieGroup-1
+ * 3              [3,5,6]                   | none
+ * 
+ * Output:
+ * pj2/trieGroup-0/projection-m-00000       | [1,2,3], [1,5]
+ * pj2/trieGroup-1/projection-m-00000       | [1,2,3], [4,5,6]
+ * }
+ * </pre>
+ */
+public class TrieGroupProjectionMapper extends Mapper<Object,Writable,VIntWritable,TransactionWritable> {
+  
+  public static final String Output = "projection";
+  public static final String Dir = "pj";
+  
+  private final TransactionTokenizer tokenizer = new TransactionTokenizer();
+  private final TransactionWritable transaction = new TransactionWritable();
+  private final VIntWritable tid = new VIntWritable();
+  private int lineNumber = 0;
+  
+  private ItemRecoding recoding;
+  private int minLength;
+  private List<String> groupPaths = newArrayList();
+  private int[][] groupsOfItem;
+  private int[] lastWritten;
+  
+  private MultipleOutputs<VIntWritable,TransactionWritable> mos;
+  
+  @Override
+  public void setup(Context context) throws IOException {
+    Path[] localCacheFiles = getLocalCacheFiles(context.getConfiguration());
+    List<Path> trieGroups = newArrayList();
+    for (Path localCacheFile : localCacheFiles) {
+      if (ItemRecoding.isRecodingFile(localCacheFile.toString())) {
+        recoding = ItemRecoding.read(localCacheFile.toString());
+      } else {
+        trieGroups.add(localCacheFile);
+      }
+    }
+    if (recoding == null) {
+      throw new IOException("No item recoding in the distributed cache");
+    }
+    
+    String outputDir = context.getConfiguration().get("mapred.output.dir");
+    List<List<Integer>> groups = newArrayList();
+    for (int id = 0; id < recoding.size(); id++) {
+      groups.add(null);
+    }
+    for (int group = 0; group < trieGroups.size(); group++) {
+      groupPaths.add(new Path(new Path(outputDir, trieGroups.get(group).getName()), Output).toString());
+      readFirstItems(trieGroups.get(group).toString(), group, groups);
+    }
+    groupsOfItem = new int[recoding.size()][];
+    for (int id = 0; id < groupsOfItem.length; id++) {
+      groupsOfItem[id] = groups.get(id) == null ? new int[0] : Ints.toArray(groups.get(id));
+    }
+    lastWritten = new int[trieGroups.size()];
+    Arrays.fill(lastWritten, -1);
+    
+    mos = new MultipleOutputs<VIntWritable,TransactionWritable>(context);
+  }
+  
+  /**
+   * Adds a trie group to the groups of the first items of its prefixes. The candidates of the trie group are one item
+   * longer than its itemsets, shorter transactions can not contain any of them.
+   */
+  private void readFirstItems(String fileName, int group, List<List<Integer>> groups) throws IOException {
+    BufferedReader reader = new BufferedReader(new FileReader(fileName));
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] itemset = line.split(HeadDelimiter)[0].split(ItemDelimiter);
+        minLength = itemset.length + 1;
+        int id = recoding.toId(Integer.parseInt(itemset[0]));
+        if (id < 0) {
+          continue;
+        }
+        List<Integer> groupsOfId = groups.get(id);
+        if (groupsOfId == null) {
+          groupsOfId = newArrayList();
+          groups.set(id, groupsOfId);
+        }
+        if (groupsOfId.isEmpty() || groupsOfId.get(groupsOfId.size() - 1) != group) {
+          groupsOfId.add(group);
+        }
+      }
+    } finally {
+      reader.close();
+    }
+  }
+  
+  @Override
+  public void map(Object key, Writable value, Context context) throws IOException, InterruptedException {
+    int transactionId;
+    int length;
+    int[] items;
+    if (value instanceof TransactionWritable) {
+      transactionId = ((VIntWritable) key).get();
+      length = ((TransactionWritable) value).getLength();
+      items = ((TransactionWritable) value).getItems();
+    } else {
+      transactionId = lineNumber++;
+      length = tokenizer.tokenize((Text) value, recoding);
+      items = tokenizer.getItems();
+    }
+    if (length < minLength) {
+      return;
+    }
+    tid.set(transactionId);
+    transaction.set(items, length);
+    for (int i = 0; i < length; i++) {
+      for (int group : groupsOfItem[items[i]]) {
+        if (lastWritten[group] != transactionId) {
+          lastWritten[group] = transactionId;
+          mos.write(Output, tid, transaction, groupPaths.get(group));
+        }
+      }
+    }
+  }
+  
+  @Override
+  public void cleanup(Context context) throws IOException, InterruptedException {
+    mos.close();
+  }
+}
@@ -0,0 +1,196 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.dictionary;
+
+import static be.uantwerpen.adrem.hadoop.util.SplitByKTextInputFormat.LINE_INDEX_KEY;
+import static be.uantwerpen.adrem.hadoop.util.SplitByKTextInputFormat.NUMBER_OF_CHUNKS;
+import static be.uantwerpen.adrem.hadoop.util.SplitByKTextInputFormat.SPLIT_MODE_KEY;
+import static be.uantwerpen.adrem.hadoop.util.Tools.prepareJob;
+import static be.uantwerpen.adrem.util.FIMOptions.DELIMITER_KEY;
+import static com.google.common.collect.Lists.newArrayList;
+import static java.io.File.separator;
+import static org.apache.hadoop.filecache.DistributedCache.addCacheFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+
+import be.uantwerpen.adrem.eclat.util.TrieDumper;
+import be.uantwerpen.adrem.hadoop.util.SplitByKTextInputFormat;
+import be.uantwerpen.adrem.hadoop.util.Tools.NameStartsWithFilter;
+import be.uantwerpen.adrem.util.FIMOptions;
+import be.uantwerpen.adrem.util.ItemDictionary;
+
+import com.google.common.primitives.Ints;
+
+/**
+ * Encodes an input of string items to the integer items the algorithms work with. A first job counts the supports of
+ * the items, from which the driver builds an {@link ItemDictionary} giving the most frequent items the smallest ids.
+ * A second job translates every transaction to the ids of its items. The dictionary is kept in the output directory,
+ * and after mining {@link #decode(FIMOptions)} writes the itemsets found with their string items.
+ */
+public class DictionaryEncoder {
+  
+  public static final String ODecodedFis = "decodedfis";
+  
+  /**
+   * Encodes the input of a run.
+   * 
+   * @param opt
+   *          the options of the run
+   * @return the path of the encoded input
+   */
+  public static String encode(FIMOptions opt)
+      throws IOException, ClassNotFoundException, InterruptedException, URISyntaxException {
+    Path counts = new Path(opt.outputDir + separator + "itemcounts");
+    startCountPhase(opt, counts);
+    
+    Configuration conf = new Configuration();
+    Path dictionaryFile = new Path(opt.outputDir, ItemDictionary.FileName);
+    ItemDictionary dictionary = createDictionary(conf, counts);
+    dictionary.write(conf, dictionaryFile);
+    System.out.println("[Dictionary]: " + dictionary.size() + " items encoded");
+    
+    Path encoded = new Path(opt.outputDir + separator + "encoded");
+    startEncodePhase(opt, dictionaryFile, encoded);
+    return encoded.toString();
+  }
+  
+  private static void startCountPhase(FIMOptions opt, Path outputDir)
+      throws IOException, ClassNotFoundException, InterruptedException {
+    System.out.println("[ItemCounting]: input: " + opt.inputFile + ", output: " + outputDir);
+    
+    Job job = prepareJob(new Path(opt.inputFile), outputDir, TextInputFormat.class, ItemCountMapper.class, Text.class,
+        IntWritable.class, ItemCountReducer.class, Text.class, IntWritable.class, SequenceFileOutputFormat.class);
+    job.setJobName("Count Items");
+    job.setJarByClass(DictionaryEncoder.class);
+    job.setCombinerClass(ItemCountReducer.class);
+    job.setNumReduceTasks(opt.nrReducers);
+    job.getConfiguration().set(DELIMITER_KEY, opt.delimiter);
+    
+    runJob(job, "Item Counting");
+  }
+  
+  private static ItemDictionary createDictionary(Configuration conf, Path counts) throws IOException {
+    List<String> items = newArrayList();
+    List<Integer> supports = newArrayList();
+    FileSystem fs = counts.getFileSystem(conf);
+    for (FileStatus status : fs.listStatus(counts, new NameStartsWithFilter("part"))) {
+      SequenceFile.Reader reader = new SequenceFile.Reader(fs, status.getPath(), conf);
+      try {
+        Text item = new Text();
+        IntWritable support = new IntWritable();
+        while (reader.next(item, support)) {
+          items.add(item.toString());
+          supports.add(support.get());
+        }
+      } finally {
+        reader.close();
+      }
+    }
+    return ItemDictionary.byDescendingSupport(items.toArray(new String[0]), Ints.toArray(supports));
+  }
+  
+  /**
+   * Translates the transactions in a map-only job. Every mapper writes the transactions of its chunk to its own file,
+   * so the files of the output hold the transactions in their original order.
+   */
+  private static void startEncodePhase(FIMOptions opt, Path dictionaryFile, Path outputDir)
+      throws IOException, ClassNotFoundException, InterruptedException, URISyntaxException {
+    System.out.println("[Encoding]: input: " + opt.inputFile + ", output: " + outputDir);
+    
+    Job job = prepareJob(new Path(opt.inputFile), outputDir, SplitByKTextInputFormat.class, EncodeMapper.class,
+        NullWritable.class, Text.class, Reducer.class, NullWritable.class, Text.class, TextOutputFormat.class);
+    job.setJobName("Encode Items");
+    job.setJarByClass(DictionaryEncoder.class);
+    job.setNumReduceTasks(0);
+    
+    Configuration conf = job.getConfiguration();
+    conf.set(DELIMITER_KEY, opt.delimiter);
+    conf.setInt(NUMBER_OF_CHUNKS, opt.nrMappers);
+    conf.set(SPLIT_MODE_KEY, opt.splitMode);
+    conf.setBoolean(LINE_INDEX_KEY, opt.lineIndex);
+    FileSystem fs = dictionaryFile.getFileSystem(conf);
+    addCacheFile(new URI(fs.makeQualified(dictionaryFile).toString().replace(" ", "%20")), conf);
+    
+    runJob(job, "Encoding");
+  }
+  
+  /**
+   * Decodes the itemsets found by a run. The trie strings of the fis and shortfis directories are printed as itemsets
+   * of string items to a single text file in the output directory. The trie strings themselves keep the integer ids,
+   * since string items may contain the symbols of the trie string format.
+   * 
+   * @param opt
+   *          the options of the run
+   */
+  public static void decode(FIMOptions opt) throws IOException {
+    Configuration conf = new Configuration();
+    ItemDictionary dictionary = ItemDictionary.read(conf, new Path(opt.outputDir, ItemDictionary.FileName));
+    Path decoded = new Path(opt.outputDir, ODecodedFis);
+    FileSystem fs = decoded.getFileSystem(conf);
+    PrintStream out = new PrintStream(fs.create(decoded, true), false, "UTF-8");
+    try {
+      for (String dir : new String[] {"shortfis", "fis"}) {
+        Path path = new Path(opt.outputDir, dir);
+        if (!fs.exists(path)) {
+          continue;
+        }
+        for (FileStatus status : fs.listStatus(path)) {
+          String name = status.getPath().getName();
+          if (name.startsWith("_") || name.startsWith(".")) {
+            continue;
+          }
+          BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(status.getPath()), "UTF-8"));
+          try {
+            TrieDumper.printAsSets(reader, out, dictionary);
+          } finally {
+            reader.close();
+          }
+        }
+      }
+    } finally {
+      out.close();
+    }
+    System.out.println("[Dictionary]: itemsets decoded to " + decoded);
+  }
+  
+  private static void runJob(Job job, String jobName) throws ClassNotFoundException, IOException, InterruptedException {
+    long start = System.currentTimeMillis();
+    job.waitForCompletion(true);
+    long end = System.currentTimeMillis();
+    System.out.println("Job " + jobName + " took " + (end - start) / 1000 + "s");
+  }
+}
@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.dictionary;
+
+import static be.uantwerpen.adrem.util.FIMOptions.DELIMITER_KEY;
+import static org.apache.hadoop.filecache.DistributedCache.getLocalCacheFiles;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Mapper;
+
+import be.uantwerpen.adrem.util.ItemDictionary;
+
+import com.google.common.base.Splitter;
+
+/**
+ * Mapper of the job encoding string transactions to the ids of their items. The job is map-only, every mapper writes
+ * the transactions of its chunk in the order of the input.
+ * 
+ * <pre>
+ * {@code
+ * Dictionary: milk -> 0, apple -> 1, pear -> 2
+ * 
+ * Input:
+ * LongWritable   Text
+ * (Offset)       (Transaction)
+ * 0              "pear milk"
+ * 
+ * Output:
+ * NullWritable   Text
+ *                (Encoded transaction)
+ *                "2 0"
+ * }
+ * </pre>
+ */
+public class EncodeMapper extends Mapper<LongWritable,Text,NullWritable,Text> {
+  
+  private Splitter splitter;
+  private ItemDictionary dictionary;
+  private final StringBuilder builder = new StringBuilder();
+  private final Text encoded = new Text();
+  
+  @Override
+  public void setup(Context context) throws IOException {
+    Configuration conf = context.getConfiguration();
+    splitter = Splitter.on(conf.get(DELIMITER_KEY, " ")).omitEmptyStrings();
+    for (Path localCacheFile : getLocalCacheFiles(conf)) {
+      if (ItemDictionary.isDictionaryFile(localCacheFile.toString())) {
+        dictionary = ItemDictionary.read(conf, FileSystem.getLocal(conf).makeQualified(localCacheFile));
+      }
+    }
+    if (dictionary == null) {
+      throw new IOException("No item dictionary in the distributed cache");
+    }
+  }
+  
+  @Override
+  public void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
+    builder.setLength(0);
+    for (String item : splitter.split(value.toString())) {
+      int id = dictionary.toId(item);
+      if (id >= 0) {
+        builder.append(id).append(' ');
+      }
+    }
+    encoded.set(builder.length() == 0 ? "" : builder.substring(0, builder.length() - 1));
+    context.write(NullWritable.get(), encoded);
+  }
+}
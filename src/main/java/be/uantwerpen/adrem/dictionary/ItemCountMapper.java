@@ -0,0 +1,73 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.dictionary;
+
+import static be.uantwerpen.adrem.util.FIMOptions.DELIMITER_KEY;
+import static com.google.common.collect.Sets.newHashSet;
+
+import java.io.IOException;
+import java.util.Set;
+
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Mapper;
+
+import com.google.common.base.Splitter;
+
+/**
+ * Mapper of the job counting the supports of string items. Every distinct item of a transaction is reported once.
+ * 
+ * <pre>
+ * {@code
+ * Input:
+ * LongWritable   Text
+ * (Offset)       (Transaction)
+ * 0              "milk bread milk"
+ * 
+ * Output:
+ * Text           IntWritable
+ * (Item)         (Support)
+ * "milk"         1
+ * "bread"        1
+ * }
+ * </pre>
+ */
+public class ItemCountMapper extends Mapper<LongWritable,Text,Text,IntWritable> {
+  
+  private static final IntWritable One = new IntWritable(1);
+  
+  private Splitter splitter;
+  private final Set<String> items = newHashSet();
+  private final Text key = new Text();
+  
+  @Override
+  public void setup(Context context) {
+    splitter = Splitter.on(context.getConfiguration().get(DELIMITER_KEY, " ")).omitEmptyStrings();
+  }
+  
+  @Override
+  public void map(LongWritable offset, Text value, Context context) throws IOException, InterruptedException {
+    items.clear();
+    for (String item : splitter.split(value.toString())) {
+      if (items.add(item)) {
+        key.set(item);
+        context.write(key, One);
+      }
+    }
+  }
+}
@@ -0,0 +1,55 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.dictionary;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Reducer;
+
+/**
+ * Reducer, and combiner, of the job counting the supports of string items.
+ * 
+ * <pre>
+ * {@code
+ * Input:
+ * Text           Iterable<IntWritable>
+ * (Item)         (Partial supports)
+ * "milk"         <1,3>
+ * 
+ * Output:
+ * Text           IntWritable
+ * (Item)         (Support)
+ * "milk"         4
+ * }
+ * </pre>
+ */
+public class ItemCountReducer extends Reducer<Text,IntWritable,Text,IntWritable> {
+  
+  private final IntWritable support = new IntWritable();
+  
+  @Override
+  public void reduce(Text key, Iterable<IntWritable> values, Context context) throws IOException, InterruptedException {
+    int sum = 0;
+    for (IntWritable value : values) {
+      sum += value.get();
+    }
+    support.set(sum);
+    context.write(key, support);
+  }
+}
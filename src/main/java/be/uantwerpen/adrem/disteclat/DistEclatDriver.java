@@ -16,7 +16,9 @@
  */
 package be.uantwerpen.adrem.disteclat;
 
+import static be.uantwerpen.adrem.hadoop.util.SplitByKTextInputFormat.LINE_INDEX_KEY;
 import static be.uantwerpen.adrem.hadoop.util.SplitByKTextInputFormat.NUMBER_OF_CHUNKS;
+import static be.uantwerpen.adrem.hadoop.util.SplitByKTextInputFormat.SPLIT_MODE_KEY;
 import static be.uantwerpen.adrem.hadoop.util.Tools.cleanDirs;
 import static be.uantwerpen.adrem.hadoop.util.Tools.cleanupAfterJob;
 import static be.uantwerpen.adrem.hadoop.util.Tools.prepareJob;
@@ -52,6 +54,7 @@ import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
 
 import be.uantwerpen.adrem.bigfim.ComputeTidListMapper;
+import be.uantwerpen.adrem.dictionary.DictionaryEncoder;
 import be.uantwerpen.adrem.eclat.EclatMinerMapper;
 import be.uantwerpen.adrem.eclat.EclatMinerReducer;
 import be.uantwerpen.adrem.hadoop.util.IntArrayWritable;
@@ -97,15 +100,29 @@ public class DistEclatDriver implements Tool {
       opt.printHelp();
       return -1;
     }
+    if (opt.verticalInput && opt.stringItems) {
+      System.out.println("[DistEclat]: --stringitems cannot be used with --verticalinput, vertical databases hold ids");
+      return -1;
+    }
     
     String tmpDir1 = opt.outputDir + separator + "tmp1" + separator;
     String tmpDir2 = opt.outputDir + separator + "prefixes" + separator;
     
     long start = currentTimeMillis();
     cleanDirs(new String[] {opt.outputDir, tmpDir1, tmpDir2});
-    readHorizontalDb(tmpDir1, opt);
+    if (opt.verticalInput) {
+      readVerticalDb(tmpDir1, opt);
+    } else {
+      if (opt.stringItems) {
+        opt.inputFile = DictionaryEncoder.encode(opt);
+      }
+      readHorizontalDb(tmpDir1, opt);
+    }
     startPrefixComputation(tmpDir1, tmpDir2, opt);
     startMining(tmpDir2, opt);
+    if (opt.stringItems) {
+      DictionaryEncoder.decode(opt);
+    }
     cleanupAfterJob(opt);
     long end = currentTimeMillis();
     
@@ -126,6 +143,8 @@ public class DistEclatDriver implements Tool {
     conf.setInt(MIN_SUP_KEY, opt.minSup);
     conf.setInt(NUMBER_OF_MAPPERS_KEY, opt.nrMappers);
     conf.setInt(NUMBER_OF_CHUNKS, opt.nrMappers);
+    conf.set(SPLIT_MODE_KEY, opt.splitMode);
+    conf.setBoolean(LINE_INDEX_KEY, opt.lineIndex);
     conf.setInt(PREFIX_LENGTH_KEY, opt.prefixLength);
     conf.setStrings(OUTPUT_DIR_KEY, opt.outputDir);
   }
@@ -174,6 +193,29 @@ public class DistEclatDriver implements Tool {
     runJob(job, "Item Reading");
   }
   
+  /**
+   * Replaces the first MapReduce cycle for an input that is a binary vertical database. The frequent singletons, their
+   * order and their distribution are computed from the item index of the database, such that the tid lists do not have
+   * to be rebuilt from the transactions.
+   * 
+   * This method generates the same three files as {@link #readHorizontalDb(String, FIMOptions)}.
+   * 
+   * @param outputFile
+   * @param opt
+   * @throws IOException
+   */
+  private void readVerticalDb(String outputFile, FIMOptions opt) throws IOException {
+    System.out.println("[ItemReading]: vertical input: " + opt.inputFile + ", output: " + outputFile);
+    
+    Configuration conf = new Configuration();
+    setConfigurationValues(conf, opt);
+    
+    long start = currentTimeMillis();
+    VerticalDbReader.read(conf, new Path(opt.inputFile), new Path(outputFile));
+    long end = currentTimeMillis();
+    System.out.println("Reading vertical database took " + (end - start) / 1000 + "s");
+  }
+  
   /**
    * Starts the second MapReduce cycle. Each mapper gets a list of singletons from which it should start building X-FIs.
    * Each mapper uses Eclat to quickly compute the list of X-FIs. The total set of X-FIs is again obtained by the
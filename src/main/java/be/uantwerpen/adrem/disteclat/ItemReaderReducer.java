@@ -234,21 +234,39 @@ public class ItemReaderReducer extends Reducer<Text,IntArrayWritable,IntWritable
    * @throws InterruptedException
    */
   private void writeSingletonsDistribution(List<Integer> sortedSingletons) throws IOException, InterruptedException {
-    int end = Math.min(numberOfMappers, sortedSingletons.size());
+    List<String> distribution = distributeSingletons(sortedSingletons, numberOfMappers);
     
     Text mapperId = new Text();
     Text assignedItems = new Text();
     
+    for (int ix = 0; ix < distribution.size(); ix++) {
+      mapperId.set("" + ix);
+      assignedItems.set(distribution.get(ix));
+      mos.write(OSingletonsDistribution, mapperId, assignedItems);
+    }
+  }
+  
+  /**
+   * Distributes the sorted singletons among the mappers using Round-Robin allocation.
+   * 
+   * @param sortedSingletons
+   *          the sorted list of singletons
+   * @param numberOfMappers
+   *          the number of mappers
+   * @return the space separated singletons of every mapper that is assigned singletons
+   */
+  static List<String> distributeSingletons(List<Integer> sortedSingletons, int numberOfMappers) {
+    int end = Math.min(numberOfMappers, sortedSingletons.size());
+    List<String> distribution = newArrayList();
+    
     // Round robin assignment
     for (int ix = 0; ix < end; ix++) {
       StringBuilder sb = new StringBuilder();
       for (int ix1 = ix; ix1 < sortedSingletons.size(); ix1 += numberOfMappers) {
         sb.append(sortedSingletons.get(ix1)).append(" ");
       }
-      
-      mapperId.set("" + ix);
-      assignedItems.set(sb.substring(0, sb.length() - 1));
-      mos.write(OSingletonsDistribution, mapperId, assignedItems);
+      distribution.add(sb.substring(0, sb.length() - 1));
     }
+    return distribution;
   }
-}
\ No newline at end of file
+}
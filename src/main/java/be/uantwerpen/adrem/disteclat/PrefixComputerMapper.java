@@ -17,24 +17,19 @@
 package be.uantwerpen.adrem.disteclat;
 
 import static com.google.common.collect.Lists.newArrayList;
-import static com.google.common.collect.Maps.newHashMap;
 import static java.lang.Integer.parseInt;
-import static java.lang.Integer.valueOf;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.apache.hadoop.filecache.DistributedCache.getLocalCacheFiles;
 import static be.uantwerpen.adrem.disteclat.DistEclatDriver.OSingletonsOrder;
 import static be.uantwerpen.adrem.disteclat.DistEclatDriver.OSingletonsTids;
 import static be.uantwerpen.adrem.util.FIMOptions.MIN_SUP_KEY;
 import static be.uantwerpen.adrem.util.FIMOptions.PREFIX_LENGTH_KEY;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
-import java.net.URI;
-import java.net.URISyntaxException;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
@@ -50,6 +45,10 @@ import be.uantwerpen.adrem.eclat.util.Item;
 import be.uantwerpen.adrem.eclat.util.PrefixItemTIDsReporter;
 import be.uantwerpen.adrem.eclat.util.SetReporter;
 import be.uantwerpen.adrem.hadoop.util.IntMatrixWritable;
+import be.uantwerpen.adrem.hadoop.util.TaskCache;
+import be.uantwerpen.adrem.util.ItemRecoding;
+
+import com.google.common.primitives.Ints;
 
 /**
  * Mapper class for the second cycle of DistEclat. It receives a list of singletons for which it has to create X-FIs
@@ -95,32 +94,64 @@ import be.uantwerpen.adrem.hadoop.util.IntMatrixWritable;
 public class PrefixComputerMapper extends Mapper<LongWritable,Text,Text,IntMatrixWritable> {
   
   private List<Item> singletons;
-  private Map<Integer,Integer> orderMap;
+  private ItemRecoding order;
   private int minSup;
   private int prefixLength;
   
   @Override
   public void setup(Context context) throws IOException {
     try {
-      Configuration conf = context.getConfiguration();
+      final Configuration conf = context.getConfiguration();
       
       minSup = conf.getInt(MIN_SUP_KEY, -1);
       prefixLength = conf.getInt(PREFIX_LENGTH_KEY, 1);
       
-      Path[] localCacheFiles = getLocalCacheFiles(conf);
-      
-      for (Path path : localCacheFiles) {
-        String pathString = path.toString();
-        if (pathString.contains(OSingletonsTids)) {
-          System.out.println("[PrefixComputerMapper]: Reading singletons");
-          singletons = readTidLists(conf, path);
-        } else if (pathString.contains(OSingletonsOrder)) {
-          System.out.println("[PrefixComputerMapper]: Reading singleton orders");
-          orderMap = readSingletonsOrder(path);
+      Path singletonsPath = null;
+      Path orderPath = null;
+      for (Path path : getLocalCacheFiles(conf)) {
+        if (path.toString().contains(OSingletonsTids)) {
+          singletonsPath = path;
+        } else if (path.toString().contains(OSingletonsOrder)) {
+          orderPath = path;
         }
       }
       
-      sortSingletons();
+      final Path orderFile = orderPath;
+      order = TaskCache.get(conf, "singletons order", singletonList(orderFile.toString()),
+          new TaskCache.Loader<ItemRecoding>() {
+            @Override
+            public ItemRecoding load() throws IOException {
+              System.out.println("[PrefixComputerMapper]: Reading singleton orders");
+              return ItemRecoding.read(orderFile.toString());
+            }
+            
+            @Override
+            public long estimateSize(ItemRecoding recoding) {
+              return 12L * recoding.size();
+            }
+          });
+      
+      // the cached list is shared by the tasks of this JVM, so it is sorted once and never modified
+      final Path singletonsFile = singletonsPath;
+      singletons = TaskCache.get(conf, "singletons", asList(singletonsFile.toString(), orderFile.toString()),
+          new TaskCache.Loader<List<Item>>() {
+            @Override
+            public List<Item> load() throws IOException {
+              System.out.println("[PrefixComputerMapper]: Reading singletons");
+              List<Item> items = readTidLists(conf, singletonsFile);
+              sortSingletons(items, order);
+              return Collections.unmodifiableList(items);
+            }
+            
+            @Override
+            public long estimateSize(List<Item> items) {
+              long size = 0;
+              for (Item item : items) {
+                size += item.estimateSize();
+              }
+              return size;
+            }
+          });
     } catch (Exception e) {
       e.printStackTrace();
     }
@@ -134,13 +165,13 @@ public class PrefixComputerMapper extends Mapper<LongWritable,Text,Text,IntMatri
     // if the prefix length is 1, just report the singletons, otherwise use
     // Eclat to find X-FIs seeds
     EclatMiner miner = new EclatMiner();
-    SetReporter reporter = new PrefixItemTIDsReporter(context, prefixLength, singletons, orderMap);
+    SetReporter reporter = new PrefixItemTIDsReporter(context, prefixLength, singletons, order);
     
     miner.setSetReporter(reporter);
     miner.setMaxSize(prefixLength);
     
     for (String itemStr : items.split(" ")) {
-      final int itemIx = orderMap.get(Integer.valueOf(itemStr));
+      final int itemIx = order.toId(parseInt(itemStr));
       final Item item = singletons.get(itemIx);
       assert (item.id == parseInt(itemStr));
       List<Item> extensions = singletons.subList(itemIx + 1, singletons.size());
@@ -151,13 +182,11 @@ public class PrefixComputerMapper extends Mapper<LongWritable,Text,Text,IntMatri
   /**
    * Sorts the singletons using the orderings retrieved from file
    */
-  private void sortSingletons() {
+  private static void sortSingletons(List<Item> singletons, final ItemRecoding order) {
     Collections.sort(singletons, new Comparator<Item>() {
       @Override
       public int compare(Item o1, Item o2) {
-        Integer o1Rank = orderMap.get(o1.id);
-        Integer o2Rank = orderMap.get(o2.id);
-        return o1Rank.compareTo(o2Rank);
+        return Ints.compare(order.toId(o1.id), order.toId(o2.id));
       }
     });
   }
@@ -169,10 +198,9 @@ public class PrefixComputerMapper extends Mapper<LongWritable,Text,Text,IntMatri
    * @param path
    * @return
    * @throws IOException
-   * @throws URISyntaxException
    */
-  private static List<Item> readTidLists(Configuration conf, Path path) throws IOException, URISyntaxException {
-    SequenceFile.Reader r = new SequenceFile.Reader(FileSystem.get(new URI("file:///"), conf), path, conf);
+  private static List<Item> readTidLists(Configuration conf, Path path) throws IOException {
+    SequenceFile.Reader r = new SequenceFile.Reader(FileSystem.getLocal(conf), path, conf);
     
     List<Item> items = newArrayList();
     
@@ -195,26 +223,4 @@ public class PrefixComputerMapper extends Mapper<LongWritable,Text,Text,IntMatri
     
     return items;
   }
-  
-  /**
-   * Reads the singletons ordering from file.
-   * 
-   * @param path
-   * @return
-   * @throws IOException
-   */
-  private static Map<Integer,Integer> readSingletonsOrder(Path path) throws IOException {
-    BufferedReader reader = new BufferedReader(new FileReader(path.toString()));
-    
-    String order = reader.readLine().trim();
-    reader.close();
-    
-    Map<Integer,Integer> orderMap = newHashMap();
-    String[] split = order.split(" ");
-    int ix = 0;
-    for (String item : split) {
-      orderMap.put(valueOf(item), ix++);
-    }
-    return orderMap;
-  }
-}
\ No newline at end of file
+}
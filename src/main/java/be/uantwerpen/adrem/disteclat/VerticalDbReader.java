@@ -0,0 +1,151 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.disteclat;
+
+import static be.uantwerpen.adrem.disteclat.DistEclatDriver.OShortFIs;
+import static be.uantwerpen.adrem.disteclat.DistEclatDriver.OSingletonsDistribution;
+import static be.uantwerpen.adrem.disteclat.DistEclatDriver.OSingletonsOrder;
+import static be.uantwerpen.adrem.disteclat.DistEclatDriver.OSingletonsTids;
+import static be.uantwerpen.adrem.disteclat.DistEclatDriver.rExt;
+import static be.uantwerpen.adrem.disteclat.ItemReaderReducer.distributeSingletons;
+import static be.uantwerpen.adrem.util.FIMOptions.MIN_SUP_KEY;
+import static be.uantwerpen.adrem.util.FIMOptions.NUMBER_OF_MAPPERS_KEY;
+import static be.uantwerpen.adrem.util.FIMOptions.OUTPUT_DIR_KEY;
+import static com.google.common.collect.Lists.newArrayList;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.SequenceFile;
+
+import be.uantwerpen.adrem.hadoop.util.IntArrayWritable;
+import be.uantwerpen.adrem.hadoop.util.IntMatrixWritable;
+import be.uantwerpen.adrem.util.ItemRecoding;
+import be.uantwerpen.adrem.util.VerticalDatabase;
+
+import com.google.common.primitives.Ints;
+
+/**
+ * Replaces the first MapReduce cycle of DistEclat when the input is a binary vertical database. The frequent singletons
+ * and their order are computed from the item index of the database, and only the tid lists of the frequent singletons
+ * are read. It writes the same files as {@link ItemReaderReducer}, except that the tids of a singleton are not divided
+ * in partial tid lists per mapper but form a single partition.
+ * 
+ * The horizontal path needs a partition per mapper, because every mapper numbers the transactions of its own chunk and
+ * tids are only comparable within a partition. The vertical database numbers the transactions of the whole input, so
+ * one partition holds them all. The later phases intersect the partitions of two tid lists index by index, which works
+ * for any number of partitions as long as every singleton has the same number.
+ */
+public class VerticalDbReader {
+  
+  /**
+   * Reads the frequent singletons from a vertical database.
+   * 
+   * @param conf
+   *          hadoop configuration object with the minimum support, number of mappers and output dir
+   * @param input
+   *          the vertical database
+   * @param outputDir
+   *          the directory to write the singletons files to
+   * @return the number of frequent singletons
+   * @throws IOException
+   */
+  public static int read(Configuration conf, Path input, Path outputDir) throws IOException {
+    int minSup = conf.getInt(MIN_SUP_KEY, -1);
+    int numberOfMappers = conf.getInt(NUMBER_OF_MAPPERS_KEY, 1);
+    
+    VerticalDatabase db = VerticalDatabase.open(conf, input);
+    try {
+      List<Integer> items = newArrayList();
+      List<Integer> supports = newArrayList();
+      List<Integer> indexes = newArrayList();
+      for (int ix = 0; ix < db.getNumberOfItems(); ix++) {
+        if (db.getSupport(ix) >= minSup) {
+          items.add(db.getItem(ix));
+          supports.add(db.getSupport(ix));
+          indexes.add(ix);
+        }
+      }
+      System.out.println("[VerticalDbReader]: " + items.size() + " of " + db.getNumberOfItems()
+          + " items are frequent in " + db.getNumberOfTransactions() + " transactions");
+      
+      ItemRecoding order = ItemRecoding.byAscendingSupport(Ints.toArray(items), Ints.toArray(supports));
+      List<Integer> sortedSingletons = newArrayList();
+      for (int id = 0; id < order.size(); id++) {
+        sortedSingletons.add(order.toItem(id));
+      }
+      
+      writeShortFis(conf, items, supports);
+      writeTidLists(conf, db, indexes, new Path(outputDir, OSingletonsTids + rExt));
+      order.write(conf, new Path(outputDir, OSingletonsOrder + rExt));
+      writeSingletonsDistribution(conf, distributeSingletons(sortedSingletons, numberOfMappers),
+          new Path(outputDir, OSingletonsDistribution + rExt));
+      return items.size();
+    } finally {
+      db.close();
+    }
+  }
+  
+  /**
+   * Writes the frequent singletons to the short fis file, the same way the first reducer would.
+   */
+  private static void writeShortFis(Configuration conf, List<Integer> items, List<Integer> supports)
+      throws IOException {
+    Path path = new Path(new Path(conf.get(OUTPUT_DIR_KEY), OShortFIs), OShortFIs + "-1" + rExt);
+    BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(path.getFileSystem(conf).create(path, true)));
+    try {
+      for (int i = 0; i < items.size(); i++) {
+        writer.write("1\t" + items.get(i) + "(" + supports.get(i) + ")\n");
+      }
+    } finally {
+      writer.close();
+    }
+  }
+  
+  private static void writeTidLists(Configuration conf, VerticalDatabase db, List<Integer> indexes, Path path)
+      throws IOException {
+    FileSystem fs = path.getFileSystem(conf);
+    SequenceFile.Writer writer = SequenceFile.createWriter(fs, conf, path, IntWritable.class,
+        IntMatrixWritable.class);
+    try {
+      for (int ix : indexes) {
+        IntArrayWritable tids = IntArrayWritable.of(db.readTids(ix));
+        writer.append(new IntWritable(db.getItem(ix)), new IntMatrixWritable(tids));
+      }
+    } finally {
+      writer.close();
+    }
+  }
+  
+  private static void writeSingletonsDistribution(Configuration conf, List<String> distribution, Path path)
+      throws IOException {
+    BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(path.getFileSystem(conf).create(path, true)));
+    try {
+      for (int ix = 0; ix < distribution.size(); ix++) {
+        writer.write(ix + "\t" + distribution.get(ix) + "\n");
+      }
+    } finally {
+      writer.close();
+    }
+  }
+}
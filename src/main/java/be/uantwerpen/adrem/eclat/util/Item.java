@@ -21,6 +21,17 @@ package be.uantwerpen.adrem.eclat.util;
  */
 public class Item {
   
+  /**
+   * Bytes of an item with its tid list object and the array of its partitions, on a 64-bit JVM with compressed
+   * references.
+   */
+  public static final int BYTES_PER_ITEM = 64;
+  
+  /**
+   * Bytes of a partition of a tid list: its reference in the array of partitions and the header of its own array.
+   */
+  public static final int BYTES_PER_PARTITION = 20;
+  
   public final int id;
   public final int support;
   final TidList tidList;
@@ -48,6 +59,13 @@ public class Item {
     return tidList;
   }
   
+  /**
+   * @return an estimate of the number of bytes the item occupies in memory
+   */
+  public long estimateSize() {
+    return BYTES_PER_ITEM + (long) BYTES_PER_PARTITION * tidList.tids.length + 4L * tidList.size();
+  }
+  
   @Override
   public String toString() {
     return id + " (" + support + ")" + " [" + tidList.size() + "]";
@@ -19,13 +19,13 @@ package be.uantwerpen.adrem.eclat.util;
 import static be.uantwerpen.adrem.util.Tools.intersect;
 
 import java.util.List;
-import java.util.Map;
 
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Mapper.Context;
 
 import be.uantwerpen.adrem.hadoop.util.IntArrayWritable;
 import be.uantwerpen.adrem.hadoop.util.IntMatrixWritable;
+import be.uantwerpen.adrem.util.ItemRecoding;
 
 /**
  * Implementation of a Set Reporter that writes an itemset to the output by it's prefix, the extension and the tids. The
@@ -38,14 +38,13 @@ public class PrefixItemTIDsReporter implements SetReporter {
   private final Context context;
   private final int prefixLength;
   private final List<Item> singletons;
-  private final Map<Integer,Integer> orderMap;
+  private final ItemRecoding order;
   
-  public PrefixItemTIDsReporter(Context context, int prefixLength, List<Item> singletons,
-      Map<Integer,Integer> orderMap) {
+  public PrefixItemTIDsReporter(Context context, int prefixLength, List<Item> singletons, ItemRecoding order) {
     this.context = context;
     this.prefixLength = prefixLength;
     this.singletons = singletons;
-    this.orderMap = orderMap;
+    this.order = order;
   }
   
   @Override
@@ -92,15 +91,15 @@ public class PrefixItemTIDsReporter implements SetReporter {
   }
   
   private TidList computeTids(int[] itemset) {
-    final TidList firstTids = singletons.get(orderMap.get(itemset[0])).getTids();
+    final TidList firstTids = singletons.get(order.toId(itemset[0])).getTids();
     // int[] tids = Arrays.copyOf(firstTids, firstTids.length);
     TidList tids = firstTids;
     
     for (int i = 1; i < itemset.length; i++) {
-      Item item = singletons.get(orderMap.get(itemset[i]));
+      Item item = singletons.get(order.toId(itemset[i]));
       tids = intersect(tids, item.getTids());
     }
     return tids;
   }
-  
+
 }
\ No newline at end of file
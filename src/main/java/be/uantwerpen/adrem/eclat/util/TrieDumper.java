@@ -17,6 +17,7 @@
 package be.uantwerpen.adrem.eclat.util;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Lists.newArrayListWithCapacity;
 import static com.google.common.collect.Sets.newTreeSet;
 
 import java.io.BufferedReader;
@@ -26,8 +27,14 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.util.List;
 
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+
+import be.uantwerpen.adrem.util.ItemDictionary;
+
 /**
- * Prints the itemsets represented by a Trie String. For extra information on Trie Printer see tests.
+ * Prints the itemsets represented by a Trie String. For extra information on Trie Printer see tests. If an item
+ * dictionary is given, the items are printed as the strings they were encoded from.
  */
 public class TrieDumper {
   public static final String COUNT_SEPARATOR = "\t";
@@ -37,6 +44,7 @@ public class TrieDumper {
   public static final char CLOSESUP = ')';
   
   static PrintStream out = System.out;
+  static ItemDictionary dictionary = null;
   
   public static void printAsSets(String trieString) {
     List<String> items = newArrayList();
@@ -59,7 +67,7 @@ public class TrieDumper {
           builder.setLength(0);
         }
       } else if (c == CLOSESUP) {
-        for (String item : newTreeSet(items)) {
+        for (String item : newTreeSet(decode(items))) {
           out.print(item + " ");
         }
         out.println("(" + builder.toString() + ")");
@@ -70,22 +78,56 @@ public class TrieDumper {
     }
   }
   
+  private static List<String> decode(List<String> items) {
+    if (dictionary == null) {
+      return items;
+    }
+    List<String> decoded = newArrayListWithCapacity(items.size());
+    for (String item : items) {
+      decoded.add(dictionary.toItem(Integer.parseInt(item)));
+    }
+    return decoded;
+  }
+  
+  /**
+   * Prints the itemsets of every trie string a reader gives.
+   * 
+   * @param reader
+   *          reader of a file of trie strings
+   * @param printStream
+   *          stream the itemsets are printed to
+   * @param itemDictionary
+   *          dictionary to decode the items with, or null to print the items as they are
+   */
+  public static void printAsSets(BufferedReader reader, PrintStream printStream, ItemDictionary itemDictionary)
+      throws IOException {
+    out = printStream;
+    dictionary = itemDictionary;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      printAsSets(line);
+    }
+  }
+  
   public static void main(String[] args) throws IOException {
     if (args.length == 0) {
-      System.out.println("Usage: TriePrinter encoded-input-file [output-file]");
+      System.out.println("Usage: TriePrinter encoded-input-file [output-file [dictionary-file]]");
       System.out.println("\nIf the output file is not given, standart output will be used.");
+      System.out.println("If the dictionary file is given, the items are decoded with the dictionary.");
       return;
     }
     
-    if (args.length > 1) {
-      TrieDumper.out = new PrintStream(new File(args[1]));
+    PrintStream printStream = System.out;
+    if (args.length > 1 && !args[1].equals("-")) {
+      printStream = new PrintStream(new File(args[1]));
+    }
+    ItemDictionary itemDictionary = null;
+    if (args.length > 2) {
+      itemDictionary = ItemDictionary.read(new Configuration(), new Path(args[2]));
     }
     
     BufferedReader reader = new BufferedReader(new FileReader(args[0]));
-    String line;
-    while ((line = reader.readLine()) != null) {
-      TrieDumper.printAsSets(line);
-    }
+    TrieDumper.printAsSets(reader, printStream, itemDictionary);
     reader.close();
   }
 }
@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.hadoop.util;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+
+/**
+ * File split made of chunks of one or more files that are read one after the other. The split itself describes its
+ * first chunk, such that a split of a single chunk can be read as a plain file split.
+ */
+public class ChunkedSplit extends FileSplit {
+  
+  private List<FileSplit> chunks;
+  
+  public ChunkedSplit() {
+    super(null, 0, 0, null);
+    chunks = newArrayList();
+  }
+  
+  public ChunkedSplit(List<FileSplit> chunks) throws IOException {
+    super(chunks.get(0).getPath(), chunks.get(0).getStart(), chunks.get(0).getLength(), chunks.get(0).getLocations());
+    this.chunks = newArrayList(chunks);
+  }
+  
+  /**
+   * Gets the chunks of a split.
+   * 
+   * @param split
+   *          a chunked split or a plain file split
+   * @return the chunks of the split, a plain file split is its only chunk
+   */
+  public static List<FileSplit> getChunks(FileSplit split) {
+    if (split instanceof ChunkedSplit) {
+      return ((ChunkedSplit) split).chunks;
+    }
+    return Collections.singletonList(split);
+  }
+  
+  @Override
+  public long getLength() {
+    long length = 0;
+    for (FileSplit chunk : chunks) {
+      length += chunk.getLength();
+    }
+    return length;
+  }
+  
+  @Override
+  public void write(DataOutput out) throws IOException {
+    super.write(out);
+    out.writeInt(chunks.size() - 1);
+    for (FileSplit chunk : chunks.subList(1, chunks.size())) {
+      chunk.write(out);
+    }
+  }
+  
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    super.readFields(in);
+    chunks = newArrayList();
+    chunks.add(new FileSplit(getPath(), getStart(), super.getLength(), new String[] {}));
+    int numberOfChunks = in.readInt();
+    for (int i = 0; i < numberOfChunks; i++) {
+      FileSplit chunk = new FileSplit(null, 0, 0, null);
+      chunk.readFields(in);
+      chunks.add(chunk);
+    }
+  }
+  
+  @Override
+  public String toString() {
+    return chunks.size() == 1 ? super.toString() : super.toString() + " +" + (chunks.size() - 1) + " chunks";
+  }
+}
@@ -0,0 +1,145 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.hadoop.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Writable;
+
+/**
+ * Count-Min sketch over integer items. The estimated count of an item is never smaller than its real count, so every
+ * item with an estimate below a threshold is guaranteed to be below that threshold. Sketches with the same dimensions
+ * use the same hash functions and can be merged by adding them.
+ */
+public class CountMinSketch implements Writable {
+  
+  public static final String Extension = ".cms";
+  
+  private static final long PRIME = (1L << 31) - 1;
+  
+  private int width;
+  private int depth;
+  private int[] counts;
+  
+  public CountMinSketch() {
+    this(0, 0);
+  }
+  
+  public CountMinSketch(int width, int depth) {
+    this.width = width;
+    this.depth = depth;
+    this.counts = new int[width * depth];
+  }
+  
+  public CountMinSketch(CountMinSketch sketch) {
+    this.width = sketch.width;
+    this.depth = sketch.depth;
+    this.counts = sketch.counts.clone();
+  }
+  
+  public static boolean isSketchFile(String fileName) {
+    return fileName.endsWith(Extension);
+  }
+  
+  /**
+   * Reads the sketch stored as value in a sequence file.
+   * 
+   * @param conf
+   *          hadoop configuration object
+   * @param path
+   *          the path of the sequence file
+   * @return the sketch
+   * @throws IOException
+   */
+  public static CountMinSketch read(Configuration conf, Path path) throws IOException {
+    SequenceFile.Reader reader = new SequenceFile.Reader(FileSystem.getLocal(conf), path, conf);
+    try {
+      CountMinSketch sketch = new CountMinSketch();
+      reader.next(new IntWritable(), sketch);
+      return sketch;
+    } finally {
+      reader.close();
+    }
+  }
+  
+  public void add(int item) {
+    for (int row = 0; row < depth; row++) {
+      counts[row * width + hash(row, item)]++;
+    }
+  }
+  
+  public int estimate(int item) {
+    int estimate = Integer.MAX_VALUE;
+    for (int row = 0; row < depth; row++) {
+      estimate = Math.min(estimate, counts[row * width + hash(row, item)]);
+    }
+    return estimate;
+  }
+  
+  /**
+   * Adds the counts of another sketch to this sketch.
+   * 
+   * @param other
+   *          sketch with the same dimensions as this one
+   */
+  public void merge(CountMinSketch other) {
+    if (other.width != width || other.depth != depth) {
+      throw new IllegalArgumentException("Can not merge sketches with different dimensions: " + width + "x" + depth
+          + " and " + other.width + "x" + other.depth);
+    }
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] += other.counts[i];
+    }
+  }
+  
+  private int hash(int row, int item) {
+    long a = 0x5bd1e995L * (row + 1) % PRIME;
+    long b = 0x27d4eb2fL * (row + 7) % PRIME;
+    return (int) (((a * (item & 0xffffffffL) + b) % PRIME) % width);
+  }
+  
+  @Override
+  public void write(DataOutput out) throws IOException {
+    out.writeInt(width);
+    out.writeInt(depth);
+    for (int count : counts) {
+      out.writeInt(count);
+    }
+  }
+  
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    width = in.readInt();
+    depth = in.readInt();
+    counts = new int[width * depth];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = in.readInt();
+    }
+  }
+  
+  @Override
+  public String toString() {
+    return "CountMinSketch [width=" + width + ", depth=" + depth + "]";
+  }
+}
@@ -0,0 +1,293 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.hadoop.util;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.apache.hadoop.io.compress.SplittableCompressionCodec.READ_MODE.BYBLOCK;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CodecPool;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.io.compress.Decompressor;
+import org.apache.hadoop.io.compress.SplitCompressionInputStream;
+import org.apache.hadoop.io.compress.SplittableCompressionCodec;
+import org.apache.hadoop.util.LineReader;
+
+import com.google.common.primitives.Longs;
+
+/**
+ * Index of the lines of an input file, used to cut the file in chunks of a given number of lines without reading it.
+ * An entry is a position at which the file can be cut, together with the number of lines before the cut. A plain text
+ * file gets an entry every {@link #Stride} lines, the cuts in between are found by reading from the entry before them.
+ * A file compressed with a splittable codec gets an entry for every position its decompressor reports, a file
+ * compressed with another codec can not be cut and has no entries.
+ * 
+ * The index can be stored as a hidden file next to the input file, such that it is built once per dataset. It keeps
+ * the length and modification time of the file it indexes, the index of a changed file is built again.
+ * 
+ * <pre>
+ * {@code
+ * File: _<input file>.lines, all values are big endian longs
+ * 
+ * MAGIC  file-length  modification-time  number-of-lines  entry-count
+ *   lines  position                      | the first lines of the file end at position
+ *   ...
+ * }
+ * </pre>
+ */
+public class LineIndex {
+  
+  public static final String Extension = ".lines";
+  public static final int Stride = 4096;
+  
+  private static final long MAGIC = 0x42464c494e4553L;
+  
+  private final long fileLength;
+  private final long modificationTime;
+  private final long numberOfLines;
+  private final long[] lines;
+  private final long[] positions;
+  
+  private LineIndex(long fileLength, long modificationTime, long numberOfLines, long[] lines, long[] positions) {
+    this.fileLength = fileLength;
+    this.modificationTime = modificationTime;
+    this.numberOfLines = numberOfLines;
+    this.lines = lines;
+    this.positions = positions;
+  }
+  
+  public static Path getIndexFile(Path file) {
+    return new Path(file.getParent(), "_" + file.getName() + Extension);
+  }
+  
+  /**
+   * Gets the index of a file from its index file. If there is no index file or it belongs to an older version of the
+   * file, the index is built and written to the index file. An index file that can not be written is skipped.
+   * 
+   * @param conf
+   *          hadoop configuration object
+   * @param file
+   *          the file to index
+   * @return the index of the file
+   * @throws IOException
+   */
+  public static LineIndex get(Configuration conf, Path file) throws IOException {
+    FileSystem fs = file.getFileSystem(conf);
+    FileStatus status = fs.getFileStatus(file);
+    Path indexFile = getIndexFile(file);
+    if (fs.exists(indexFile)) {
+      LineIndex index = read(fs, indexFile);
+      if (index.fileLength == status.getLen() && index.modificationTime == status.getModificationTime()) {
+        return index;
+      }
+    }
+    LineIndex index = create(conf, file);
+    try {
+      index.write(fs, indexFile);
+    } catch (IOException e) {
+      System.out.println("[LineIndex]: Can not write " + indexFile + ": " + e.getMessage());
+    }
+    return index;
+  }
+  
+  /**
+   * Builds the index of a file by reading it once.
+   * 
+   * @param conf
+   *          hadoop configuration object
+   * @param file
+   *          the file to index
+   * @return the index of the file
+   * @throws IOException
+   */
+  public static LineIndex create(Configuration conf, Path file) throws IOException {
+    FileSystem fs = file.getFileSystem(conf);
+    FileStatus status = fs.getFileStatus(file);
+    CompressionCodec codec = new CompressionCodecFactory(conf).getCodec(file);
+    FSDataInputStream in = fs.open(file);
+    Decompressor decompressor = codec == null ? null : CodecPool.getDecompressor(codec);
+    try {
+      Builder builder = new Builder(status);
+      if (codec == null) {
+        builder.addTextLines(new LineReader(in, conf));
+      } else if (codec instanceof SplittableCompressionCodec) {
+        SplitCompressionInputStream stream = ((SplittableCompressionCodec) codec).createInputStream(in,
+            decompressor, 0, status.getLen(), BYBLOCK);
+        builder.addBlockCompressedLines(stream, new LineReader(stream, conf));
+      } else {
+        builder.addCompressedLines(new LineReader(codec.createInputStream(in, decompressor), conf));
+      }
+      return builder.build();
+    } finally {
+      in.close();
+      if (decompressor != null) {
+        CodecPool.returnDecompressor(decompressor);
+      }
+    }
+  }
+  
+  private static LineIndex read(FileSystem fs, Path indexFile) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(fs.open(indexFile)));
+    try {
+      if (in.readLong() != MAGIC) {
+        throw new IOException("Not a line index file: " + indexFile);
+      }
+      long fileLength = in.readLong();
+      long modificationTime = in.readLong();
+      long numberOfLines = in.readLong();
+      int entryCount = (int) in.readLong();
+      long[] lines = new long[entryCount];
+      long[] positions = new long[entryCount];
+      for (int i = 0; i < entryCount; i++) {
+        lines[i] = in.readLong();
+        positions[i] = in.readLong();
+      }
+      return new LineIndex(fileLength, modificationTime, numberOfLines, lines, positions);
+    } finally {
+      in.close();
+    }
+  }
+  
+  private void write(FileSystem fs, Path indexFile) throws IOException {
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fs.create(indexFile, true)));
+    try {
+      out.writeLong(MAGIC);
+      out.writeLong(fileLength);
+      out.writeLong(modificationTime);
+      out.writeLong(numberOfLines);
+      out.writeLong(lines.length);
+      for (int i = 0; i < lines.length; i++) {
+        out.writeLong(lines[i]);
+        out.writeLong(positions[i]);
+      }
+    } finally {
+      out.close();
+    }
+  }
+  
+  public long getFileLength() {
+    return fileLength;
+  }
+  
+  public long getNumberOfLines() {
+    return numberOfLines;
+  }
+  
+  /**
+   * @return the last entry with at most the given number of lines before it, or -1 if there is none
+   */
+  public int floorEntry(long line) {
+    int ix = Arrays.binarySearch(lines, line);
+    return ix >= 0 ? ix : -ix - 2;
+  }
+  
+  /**
+   * @return the first entry with at least the given number of lines before it, or -1 if there is none
+   */
+  public int ceilingEntry(long line) {
+    int ix = Arrays.binarySearch(lines, line);
+    if (ix >= 0) {
+      return ix;
+    }
+    return -ix - 1 < lines.length ? -ix - 1 : -1;
+  }
+  
+  public long getLines(int entry) {
+    return lines[entry];
+  }
+  
+  public long getPosition(int entry) {
+    return positions[entry];
+  }
+  
+  private static class Builder {
+    
+    private final FileStatus status;
+    private final Text line = new Text();
+    private final List<Long> lines = newArrayList();
+    private final List<Long> positions = newArrayList();
+    private long numberOfLines = 0;
+    
+    public Builder(FileStatus status) {
+      this.status = status;
+    }
+    
+    private void addEntry(long lines, long position) {
+      this.lines.add(lines);
+      this.positions.add(position);
+    }
+    
+    public void addTextLines(LineReader lr) throws IOException {
+      long position = 0;
+      int num;
+      while ((num = lr.readLine(line)) > 0) {
+        position += num;
+        if (++numberOfLines % Stride == 0) {
+          addEntry(numberOfLines, position);
+        }
+      }
+    }
+    
+    /**
+     * LineRecordReader reads the next line of a chunk as long as the position the decompressor reports before that line
+     * is at most the end of the chunk. The decompressor reports a new position only when it starts a new block, however
+     * often the line reader refills its buffer. An entry therefore holds the lines read before the position changed,
+     * including the line that crosses the block boundary, which the chunk after the entry skips as its first line.
+     */
+    public void addBlockCompressedLines(SplitCompressionInputStream stream, LineReader lr) throws IOException {
+      long position = stream.getPos();
+      while (true) {
+        // the position before reading a line decides the chunks that read it
+        if (stream.getPos() != position) {
+          if (numberOfLines != 0) {
+            addEntry(numberOfLines, position);
+          }
+          position = stream.getPos();
+        }
+        if (lr.readLine(line) <= 0) {
+          break;
+        }
+        numberOfLines++;
+      }
+    }
+    
+    public void addCompressedLines(LineReader lr) throws IOException {
+      while (lr.readLine(line) > 0) {
+        numberOfLines++;
+      }
+    }
+    
+    public LineIndex build() {
+      return new LineIndex(status.getLen(), status.getModificationTime(), numberOfLines, Longs.toArray(lines),
+          Longs.toArray(positions));
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.hadoop.util;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+
+/**
+ * Input format that hands every split of {@link SplitByKTextInputFormat} to a given number of mappers. Each copy of a
+ * split knows its replica number, such that the mappers reading the same data can divide other work, e.g., the
+ * candidates to count, among them.
+ */
+public class ReplicatedSplitInputFormat extends SplitByKTextInputFormat {
+  
+  public static final String NUMBER_OF_REPLICAS = "number_of_replicas";
+  
+  @Override
+  public List<InputSplit> getSplits(JobContext job) throws IOException {
+    int replicas = job.getConfiguration().getInt(NUMBER_OF_REPLICAS, 1);
+    List<InputSplit> splits = newArrayList();
+    for (InputSplit split : super.getSplits(job)) {
+      for (int replica = 0; replica < replicas; replica++) {
+        splits.add(new ReplicatedSplit((FileSplit) split, replica, replicas));
+      }
+    }
+    return splits;
+  }
+  
+  /**
+   * File split that is one of a number of copies of the same part of the input.
+   */
+  public static class ReplicatedSplit extends ChunkedSplit {
+    
+    private int replica;
+    private int replicas;
+    
+    public ReplicatedSplit() {
+      super();
+    }
+    
+    public ReplicatedSplit(FileSplit split, int replica, int replicas) throws IOException {
+      super(getChunks(split));
+      this.replica = replica;
+      this.replicas = replicas;
+    }
+    
+    public int getReplica() {
+      return replica;
+    }
+    
+    public int getReplicas() {
+      return replicas;
+    }
+    
+    @Override
+    public void write(DataOutput out) throws IOException {
+      super.write(out);
+      out.writeInt(replica);
+      out.writeInt(replicas);
+    }
+    
+    @Override
+    public void readFields(DataInput in) throws IOException {
+      super.readFields(in);
+      replica = in.readInt();
+      replicas = in.readInt();
+    }
+    
+    @Override
+    public String toString() {
+      return super.toString() + " replica " + replica + "/" + replicas;
+    }
+  }
+}
@@ -20,6 +20,8 @@ import static com.google.common.collect.Lists.newArrayList;
 import static be.uantwerpen.adrem.util.FIMOptions.NUMBER_OF_LINES_KEY;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 import org.apache.hadoop.conf.Configuration;
@@ -28,6 +30,7 @@ import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.RecordReader;
@@ -38,27 +41,68 @@ import org.apache.hadoop.mapreduce.lib.input.LineRecordReader;
 import org.apache.hadoop.util.LineReader;
 
 /**
- * Input format that splits a file in a number of chunks given by Config.NUMBER_OF_MAPPERS_KEY.
+ * Input format that splits its input in a number of chunks given by Config.NUMBER_OF_MAPPERS_KEY. All files of the
+ * input are one dataset that is split by line count, so a split can hold the end of one file and the start of the
+ * next. Files compressed with a splittable codec, e.g., bzip2, are cut at the blocks of the codec, files compressed
+ * with other codecs are never cut.
+ * 
+ * The line counts come from a {@link LineIndex} of every file. By default the indexes are built by reading the input
+ * in the client, if LINE_INDEX_KEY is set they are stored next to the input and only built by the first job. If
+ * SPLIT_MODE_KEY is {@link #ByBytes}, the input is split by byte count instead, which needs no reading at all.
  */
 public class SplitByKTextInputFormat extends FileInputFormat<LongWritable,Text> {
   
   public static final String NUMBER_OF_CHUNKS = "number_of_chunks";
+  public static final String SPLIT_MODE_KEY = "split_mode";
+  public static final String LINE_INDEX_KEY = "line_index";
+  
+  public static final String ByLines = "lines";
+  public static final String ByBytes = "bytes";
   
   @Override
   public RecordReader<LongWritable,Text> createRecordReader(InputSplit genericSplit, TaskAttemptContext context)
       throws IOException {
     context.setStatus(genericSplit.toString());
-    return new LineRecordReader();
+    return new ChunkedLineRecordReader();
   }
   
   @Override
   public List<InputSplit> getSplits(JobContext job) throws IOException {
-    List<InputSplit> splits = newArrayList();
-    int numberOfSplits = getNumberOfSplits(job);
-    for (FileStatus status : listStatus(job)) {
-      splits.addAll(getSplitsForFile(status, job.getConfiguration(), numberOfSplits));
+    Configuration conf = job.getConfiguration();
+    List<FileStatus> files = listStatus(job);
+    Collections.sort(files, new Comparator<FileStatus>() {
+      @Override
+      public int compare(FileStatus o1, FileStatus o2) {
+        return o1.getPath().compareTo(o2.getPath());
+      }
+    });
+    if (ByBytes.equals(conf.get(SPLIT_MODE_KEY, ByLines))) {
+      long totalNumberOfBytes = 0;
+      for (FileStatus status : files) {
+        totalNumberOfBytes += status.getLen();
+      }
+      SplitPlanner planner = new SplitPlanner(totalNumberOfBytes, getNumberOfSplits(job));
+      for (FileStatus status : files) {
+        planner.addFileByBytes(status.getPath(), status.getLen(), conf);
+      }
+      return planner.getSplits();
     }
-    return splits;
+    
+    boolean useIndexFiles = conf.getBoolean(LINE_INDEX_KEY, false);
+    List<LineIndex> indexes = newArrayList();
+    long totalNumberOfLines = 0;
+    for (FileStatus status : files) {
+      Path fileName = status.getPath();
+      LineIndex index = useIndexFiles ? LineIndex.get(conf, fileName) : LineIndex.create(conf, fileName);
+      indexes.add(index);
+      totalNumberOfLines += index.getNumberOfLines();
+    }
+    SplitPlanner planner = new SplitPlanner(conf.getLong(NUMBER_OF_LINES_KEY, totalNumberOfLines),
+        getNumberOfSplits(job));
+    for (int i = 0; i < files.size(); i++) {
+      planner.addFile(files.get(i).getPath(), indexes.get(i), conf);
+    }
+    return planner.getSplits();
   }
   
   /**
@@ -76,49 +120,24 @@ public class SplitByKTextInputFormat extends FileInputFormat<LongWritable,Text>
    */
   public static List<FileSplit> getSplitsForFile(FileStatus status, Configuration conf, int numberOfSplits)
       throws IOException {
-    List<FileSplit> splits = newArrayList();
     Path fileName = status.getPath();
     if (status.isDir()) {
       throw new IOException("Not a file: " + fileName);
     }
-    long totalNumberOfLines = getTotalNumberOfLines(conf, fileName);
-    int numLinesPerSplit = (int) Math.ceil(1.0 * totalNumberOfLines / numberOfSplits);
-    LineReader lr = null;
-    FSDataInputStream in = null;
-    try {
-      in = fileName.getFileSystem(conf).open(fileName);
-      lr = new LineReader(in, conf);
-      Text line = new Text();
-      int numLines = 0;
-      long begin = 0;
-      long length = 0;
-      int num = -1;
-      while ((num = lr.readLine(line)) > 0) {
-        numLines++;
-        length += num;
-        if (numLines == numLinesPerSplit) {
-          splits.add(createFileSplit(fileName, begin, length));
-          begin += length;
-          length = 0;
-          numLines = 0;
-        }
-      }
-      if (numLines != 0) {
-        splits.add(createFileSplit(fileName, begin, length));
-      }
-    } finally {
-      if (lr != null) {
-        lr.close();
-      }
-      if (in != null) {
-        in.close();
-      }
+    LineIndex index = LineIndex.create(conf, fileName);
+    SplitPlanner planner = new SplitPlanner(conf.getLong(NUMBER_OF_LINES_KEY, index.getNumberOfLines()),
+        numberOfSplits);
+    planner.addFile(fileName, index, conf);
+    List<FileSplit> splits = newArrayList();
+    for (InputSplit split : planner.getSplits()) {
+      splits.add((FileSplit) split);
     }
     return splits;
   }
   
   /**
    * Gets the total number of lines from the file. If Config.NUMBER_OF_LINES_KEY is set, this value is returned.
+   * Compressed files are decompressed while counting.
    * 
    * @param conf
    *          hadoop configuration object
@@ -134,15 +153,7 @@ public class SplitByKTextInputFormat extends FileInputFormat<LongWritable,Text>
     }
     
     try {
-      FSDataInputStream in = fileName.getFileSystem(conf).open(fileName);
-      LineReader lr = new LineReader(in, conf);
-      Text text = new Text();
-      nrLines = 0;
-      while (lr.readLine(text) > 0) {
-        nrLines++;
-      }
-      in.close();
-      return nrLines;
+      return LineIndex.create(conf, fileName).getNumberOfLines();
     } catch (IOException e) {
       e.printStackTrace();
     }
@@ -175,4 +186,204 @@ public class SplitByKTextInputFormat extends FileInputFormat<LongWritable,Text>
   public static int getNumberOfSplits(JobContext job) {
     return job.getConfiguration().getInt(NUMBER_OF_CHUNKS, 1);
   }
+  
+  /**
+   * Cuts the files of an input in splits of the same size, measured in lines or in bytes. The files are added in order
+   * and split i ends after ceil(total * (i + 1) / numberOfSplits), or at the first position after it where the file can
+   * be cut. The last split takes the rest of the input, so there are never more splits than asked for, even if the
+   * given total is too low.
+   */
+  private static class SplitPlanner {
+    
+    private final long total;
+    private final int numberOfSplits;
+    private final List<InputSplit> splits = newArrayList();
+    private final List<FileSplit> chunks = newArrayList();
+    
+    private long size = 0;
+    private int split = 0;
+    private long splitEnd;
+    
+    public SplitPlanner(long total, int numberOfSplits) {
+      this.total = total;
+      this.numberOfSplits = numberOfSplits;
+      this.splitEnd = getSplitEnd(0);
+    }
+    
+    private long getSplitEnd(int split) {
+      if (split >= numberOfSplits - 1) {
+        return Long.MAX_VALUE;
+      }
+      return (total * (split + 1) + numberOfSplits - 1) / numberOfSplits;
+    }
+    
+    private void closeSplit() throws IOException {
+      splits.add(chunks.size() == 1 ? chunks.get(0) : new ChunkedSplit(chunks));
+      chunks.clear();
+      while (splitEnd <= size) {
+        splitEnd = getSplitEnd(++split);
+      }
+    }
+    
+    private void addLastChunk(FileSplit chunk, long sizeAfter) throws IOException {
+      chunks.add(chunk);
+      size = sizeAfter;
+      if (size >= splitEnd) {
+        closeSplit();
+      }
+    }
+    
+    public List<InputSplit> getSplits() throws IOException {
+      if (!chunks.isEmpty()) {
+        closeSplit();
+      }
+      return splits;
+    }
+    
+    /**
+     * Adds a file measured in lines. A plain text file is cut at the exact line, starting from the entry of the index
+     * before it. Other files are cut at the first entry of the index at or after the line.
+     */
+    public void addFile(Path fileName, LineIndex index, Configuration conf) throws IOException {
+      long numberOfLines = index.getNumberOfLines();
+      if (numberOfLines == 0) {
+        return;
+      }
+      boolean compressed = new CompressionCodecFactory(conf).getCodec(fileName) != null;
+      long sizeBefore = size;
+      long begin = 0;
+      FSDataInputStream in = null;
+      try {
+        while (splitEnd - sizeBefore < numberOfLines) {
+          long lines = splitEnd - sizeBefore;
+          long position;
+          if (compressed) {
+            int entry = index.ceilingEntry(lines);
+            if (entry == -1 || index.getLines(entry) >= numberOfLines) {
+              break;
+            }
+            lines = index.getLines(entry);
+            position = index.getPosition(entry);
+            chunks.add(new FileSplit(fileName, begin, position - begin, new String[] {}));
+          } else {
+            if (in == null) {
+              in = fileName.getFileSystem(conf).open(fileName);
+            }
+            position = findLine(in, index, lines, conf);
+            chunks.add(createFileSplit(fileName, begin, position - begin));
+          }
+          size = sizeBefore + lines;
+          closeSplit();
+          begin = position;
+        }
+      } finally {
+        if (in != null) {
+          in.close();
+        }
+      }
+      long length = index.getFileLength() - begin;
+      addLastChunk(compressed ? new FileSplit(fileName, begin, length, new String[] {})
+          : createFileSplit(fileName, begin, length), sizeBefore + numberOfLines);
+    }
+    
+    /**
+     * Finds the position at which a given number of lines of a plain text file end.
+     */
+    private static long findLine(FSDataInputStream in, LineIndex index, long lines, Configuration conf)
+        throws IOException {
+      int entry = index.floorEntry(lines);
+      long position = entry == -1 ? 0 : index.getPosition(entry);
+      long linesToRead = entry == -1 ? lines : lines - index.getLines(entry);
+      in.seek(position);
+      LineReader lr = new LineReader(in, conf);
+      Text line = new Text();
+      for (long i = 0; i < linesToRead; i++) {
+        position += lr.readLine(line);
+      }
+      return position;
+    }
+    
+    /**
+     * Adds a file measured in bytes, without reading it. A plain text file is cut at any byte, LineRecordReader gives a
+     * line that crosses a cut to the chunk in which it starts. Compressed files are never cut.
+     */
+    public void addFileByBytes(Path fileName, long fileLength, Configuration conf) throws IOException {
+      if (fileLength == 0) {
+        return;
+      }
+      long sizeBefore = size;
+      long begin = 0;
+      if (new CompressionCodecFactory(conf).getCodec(fileName) == null) {
+        while (splitEnd - sizeBefore < fileLength) {
+          long end = splitEnd - sizeBefore;
+          chunks.add(new FileSplit(fileName, begin, end - begin, new String[] {}));
+          size = splitEnd;
+          closeSplit();
+          begin = end;
+        }
+      }
+      addLastChunk(new FileSplit(fileName, begin, fileLength - begin, new String[] {}), sizeBefore + fileLength);
+    }
+  }
+  
+  /**
+   * Reads the lines of the chunks of a split one after the other. The key of a line is its offset in its own file.
+   */
+  private static class ChunkedLineRecordReader extends RecordReader<LongWritable,Text> {
+    
+    private TaskAttemptContext context;
+    private List<FileSplit> chunks;
+    private int chunk;
+    private LineRecordReader reader;
+    
+    @Override
+    public void initialize(InputSplit split, TaskAttemptContext context) throws IOException {
+      this.context = context;
+      this.chunks = ChunkedSplit.getChunks((FileSplit) split);
+      this.chunk = 0;
+    }
+    
+    @Override
+    public boolean nextKeyValue() throws IOException {
+      while (true) {
+        if (reader == null) {
+          if (chunk == chunks.size()) {
+            return false;
+          }
+          reader = new LineRecordReader();
+          reader.initialize(chunks.get(chunk++), context);
+        }
+        if (reader.nextKeyValue()) {
+          return true;
+        }
+        reader.close();
+        reader = null;
+      }
+    }
+    
+    @Override
+    public LongWritable getCurrentKey() {
+      return reader.getCurrentKey();
+    }
+    
+    @Override
+    public Text getCurrentValue() {
+      return reader.getCurrentValue();
+    }
+    
+    @Override
+    public float getProgress() throws IOException {
+      if (reader == null) {
+        return chunk == chunks.size() ? 1 : (float) chunk / chunks.size();
+      }
+      return (chunk - 1 + reader.getProgress()) / chunks.size();
+    }
+    
+    @Override
+    public void close() throws IOException {
+      if (reader != null) {
+        reader.close();
+      }
+    }
+  }
 }
@@ -0,0 +1,119 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.hadoop.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.primitives.Ints;
+
+/**
+ * Cache for structures loaded from the local copies of distributed cache files, shared by all tasks that run in the
+ * same JVM. With JVM reuse enabled (mapred.job.reuse.jvm.num.tasks), later tasks of a job get the structures the first
+ * task loaded instead of parsing the files again. Entries are keyed by the names and modification times of the files
+ * they are loaded from and evicted when their estimated total size exceeds a maximum.
+ * 
+ * Tasks using the same entry run one after the other, but any state a task collects in a cached structure must be
+ * cleared before it is used again.
+ */
+public class TaskCache {
+  
+  /**
+   * Maximum estimated size of all cached entries in bytes, a quarter of the heap by default
+   */
+  public static final String MAX_SIZE_KEY = "task_cache_max_size";
+  
+  /**
+   * Loads a structure on a cache miss.
+   */
+  public interface Loader<T> {
+    
+    T load() throws IOException;
+    
+    /**
+     * @return the estimated size of a loaded structure in bytes
+     */
+    long estimateSize(T value);
+  }
+  
+  private static class Entry {
+    final Object value;
+    final int weight;
+    
+    Entry(Object value, long size) {
+      this.value = value;
+      this.weight = Ints.saturatedCast(size / 1024);
+    }
+  }
+  
+  private static Cache<String,Entry> cache;
+  
+  /**
+   * Gets a structure from the cache or loads it.
+   * 
+   * @param conf
+   *          hadoop configuration object
+   * @param kind
+   *          distinguishes the structures loaded from the same files
+   * @param fileNames
+   *          names of the local files the structure is loaded from
+   * @param loader
+   *          loads the structure if it is not in the cache
+   * @return the cached or loaded structure
+   * @throws IOException
+   */
+  @SuppressWarnings("unchecked")
+  public static synchronized <T> T get(Configuration conf, String kind, List<String> fileNames, Loader<T> loader)
+      throws IOException {
+    String key = createKey(kind, fileNames);
+    Entry entry = getCache(conf).getIfPresent(key);
+    if (entry != null) {
+      System.out.println("[TaskCache]: Reusing " + kind + " loaded by an earlier task");
+      return (T) entry.value;
+    }
+    T value = loader.load();
+    cache.put(key, new Entry(value, loader.estimateSize(value)));
+    return value;
+  }
+  
+  private static Cache<String,Entry> getCache(Configuration conf) {
+    if (cache == null) {
+      long maxSize = conf.getLong(MAX_SIZE_KEY, Runtime.getRuntime().maxMemory() / 4);
+      cache = CacheBuilder.newBuilder().maximumWeight(maxSize / 1024).weigher(new Weigher<String,Entry>() {
+        @Override
+        public int weigh(String key, Entry entry) {
+          return entry.weight;
+        }
+      }).build();
+    }
+    return cache;
+  }
+  
+  private static String createKey(String kind, List<String> fileNames) {
+    StringBuilder key = new StringBuilder(kind);
+    for (String fileName : fileNames) {
+      key.append('|').append(fileName).append('@').append(new File(fileName).lastModified());
+    }
+    return key.toString();
+  }
+}
@@ -0,0 +1,242 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.hadoop.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.apache.hadoop.io.Writable;
+
+/**
+ * Compressed list of ascending tids. The tids are stored as vints, the first tid followed by the gaps between the tids,
+ * which is the encoding of the tid lists in a {@link be.uantwerpen.adrem.util.VerticalDatabase}. A list remembers the
+ * chunk of the input its tids are numbered in, such that lists of different chunks can be concatenated into one list
+ * by shifting every list by the number of transactions in the chunks before it. Only the first gap of a list changes
+ * by the shift, the other bytes are copied as they are.
+ */
+public class TidListWritable implements Writable {
+  
+  /**
+   * Orders lists on their chunk and then on their first tid, which is the order to concatenate them in.
+   */
+  public static final Comparator<TidListWritable> ChunkOrder = new Comparator<TidListWritable>() {
+    @Override
+    public int compare(TidListWritable o1, TidListWritable o2) {
+      if (o1.chunk != o2.chunk) {
+        return o1.chunk < o2.chunk ? -1 : 1;
+      }
+      int first1 = o1.getFirstTid();
+      int first2 = o2.getFirstTid();
+      return first1 < first2 ? -1 : first1 == first2 ? 0 : 1;
+    }
+  };
+  
+  private int chunk;
+  private int size;
+  private int lastTid;
+  private byte[] bytes;
+  private int length;
+  
+  public TidListWritable() {
+    this(0);
+  }
+  
+  public TidListWritable(int chunk) {
+    this.chunk = chunk;
+    this.bytes = new byte[8];
+  }
+  
+  public TidListWritable(TidListWritable other) {
+    this.chunk = other.chunk;
+    this.size = other.size;
+    this.lastTid = other.lastTid;
+    this.bytes = Arrays.copyOf(other.bytes, other.length);
+    this.length = other.length;
+  }
+  
+  /**
+   * Adds a tid to the end of the list. A tid that equals the last tid is ignored, such that an item occurring twice in
+   * a transaction is added once.
+   * 
+   * @param tid
+   *          the tid, at least the last tid of the list
+   */
+  public void add(int tid) {
+    if (size != 0 && tid == lastTid) {
+      return;
+    }
+    if (size != 0 && tid < lastTid) {
+      throw new IllegalArgumentException("Tids not in ascending order: " + tid + " after " + lastTid);
+    }
+    writeGap(size == 0 ? tid : tid - lastTid);
+    lastTid = tid;
+    size++;
+  }
+  
+  /**
+   * Appends the tids of another list, shifted by an offset.
+   * 
+   * @param other
+   *          the list to append, its shifted tids are larger than the last tid of this list
+   * @param offset
+   *          the number added to every tid of the other list
+   */
+  public void append(TidListWritable other, int offset) {
+    if (other.size == 0) {
+      return;
+    }
+    int[] pos = {0};
+    int first = readVInt(other.bytes, pos) + offset;
+    if (size != 0 && first <= lastTid) {
+      throw new IllegalArgumentException("Tids not in ascending order: " + first + " after " + lastTid);
+    }
+    writeGap(size == 0 ? first : first - lastTid);
+    int rest = other.length - pos[0];
+    ensureCapacity(rest);
+    System.arraycopy(other.bytes, pos[0], bytes, length, rest);
+    length += rest;
+    lastTid = other.lastTid + offset;
+    size += other.size;
+  }
+  
+  public int getChunk() {
+    return chunk;
+  }
+  
+  public void setChunk(int chunk) {
+    this.chunk = chunk;
+  }
+  
+  /**
+   * @return the number of tids in the list
+   */
+  public int size() {
+    return size;
+  }
+  
+  public int getFirstTid() {
+    return size == 0 ? -1 : readVInt(bytes, new int[] {0});
+  }
+  
+  public int getLastTid() {
+    return size == 0 ? -1 : lastTid;
+  }
+  
+  /**
+   * @return the array holding the encoded tids, only the first {@link #getLength()} bytes are valid
+   */
+  public byte[] getBytes() {
+    return bytes;
+  }
+  
+  public int getLength() {
+    return length;
+  }
+  
+  /**
+   * @return an estimate of the number of bytes the list occupies in memory
+   */
+  public long estimateSize() {
+    return 48 + bytes.length;
+  }
+  
+  public int[] toArray() {
+    return decode(bytes, size);
+  }
+  
+  /**
+   * Decodes encoded tids.
+   * 
+   * @param bytes
+   *          the encoded tids
+   * @param size
+   *          the number of tids encoded
+   * @return the tids
+   */
+  public static int[] decode(byte[] bytes, int size) {
+    int[] tids = new int[size];
+    int[] pos = {0};
+    int tid = 0;
+    for (int i = 0; i < size; i++) {
+      tid += readVInt(bytes, pos);
+      tids[i] = tid;
+    }
+    return tids;
+  }
+  
+  public void clear() {
+    size = 0;
+    lastTid = 0;
+    length = 0;
+  }
+  
+  private void writeGap(int gap) {
+    ensureCapacity(5);
+    while ((gap & ~0x7F) != 0) {
+      bytes[length++] = (byte) ((gap & 0x7F) | 0x80);
+      gap >>>= 7;
+    }
+    bytes[length++] = (byte) gap;
+  }
+  
+  private void ensureCapacity(int extra) {
+    if (length + extra > bytes.length) {
+      bytes = Arrays.copyOf(bytes, Math.max(length + extra, bytes.length + (bytes.length >> 1)));
+    }
+  }
+  
+  private static int readVInt(byte[] bytes, int[] pos) {
+    int value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = bytes[pos[0]++];
+      value |= (b & 0x7F) << shift;
+      shift += 7;
+    } while (b < 0);
+    return value;
+  }
+  
+  @Override
+  public void write(DataOutput out) throws IOException {
+    out.writeInt(chunk);
+    out.writeInt(size);
+    out.writeInt(lastTid);
+    out.writeInt(length);
+    out.write(bytes, 0, length);
+  }
+  
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    chunk = in.readInt();
+    size = in.readInt();
+    lastTid = in.readInt();
+    length = in.readInt();
+    if (bytes.length < length) {
+      bytes = new byte[length];
+    }
+    in.readFully(bytes, 0, length);
+  }
+  
+  @Override
+  public String toString() {
+    return "TidListWritable [chunk=" + chunk + ", size=" + size + "]";
+  }
+}
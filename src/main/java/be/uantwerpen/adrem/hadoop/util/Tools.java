@@ -16,11 +16,15 @@
  */
 package be.uantwerpen.adrem.hadoop.util;
 
+import static be.uantwerpen.adrem.dictionary.DictionaryEncoder.ODecodedFis;
+import static be.uantwerpen.adrem.util.FIMOptions.MAPPER_HEAP_BUDGET_KEY;
 import static be.uantwerpen.adrem.util.FIMOptions.OUTPUT_DIR_KEY;
 import static com.google.common.collect.Sets.newHashSet;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
@@ -30,18 +34,24 @@ import org.apache.hadoop.fs.PathFilter;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapreduce.InputFormat;
 import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.OutputFormat;
 import org.apache.hadoop.mapreduce.Reducer;
-import org.apache.hadoop.mapreduce.Reducer.Context;
 
 import be.uantwerpen.adrem.util.FIMOptions;
+import be.uantwerpen.adrem.util.ItemDictionary;
 
 /**
  * Some extra utility functions for Hadoop.
  */
 public class Tools {
   
+  private static final long MB = 1024 * 1024;
+  private static final long DEFAULT_CHILD_HEAP = 200 * MB;
+  private static final double HEAP_BUDGET_FRACTION = 0.5;
+  private static final Pattern XMX = Pattern.compile("-Xmx(\\d+)([kKmMgG]?)");
+  
   /**
    * Cleans the Hadoop file system by deleting the specified files if they exist.
    * 
@@ -112,7 +122,7 @@ public class Tools {
     return job;
   }
   
-  public static String getJobAbsoluteOutputDir(@SuppressWarnings("rawtypes") Context context) {
+  public static String getJobAbsoluteOutputDir(JobContext context) {
     try {
       Path path = new Path(context.getConfiguration().get(OUTPUT_DIR_KEY));
       FileSystem fs = path.getFileSystem(context.getConfiguration());
@@ -132,7 +142,7 @@ public class Tools {
   
   public static void cleanupAfterJob(FIMOptions opt) {
     if (!opt.debug) {
-      cleanupSubdirsExcept(opt.outputDir, newHashSet("fis", "shortfis"));
+      cleanupSubdirsExcept(opt.outputDir, newHashSet("fis", "shortfis", ItemDictionary.FileName, ODecodedFis));
     }
   }
   
@@ -166,4 +176,35 @@ public class Tools {
       return path.getName().startsWith(prefix);
     }
   }
+  
+  /**
+   * Gets the number of bytes a mapper can spend on its data structures. If no budget is configured explicitly, it is
+   * derived from the maximum heap size of the child JVMs. The memory of the map output buffer is subtracted from the
+   * heap and only a fraction of the remainder is used, leaving room for the record readers, the input lines and the
+   * garbage collector.
+   * 
+   * @param conf
+   *          hadoop configuration object
+   * @return the heap budget in bytes
+   */
+  public static long getMapperHeapBudget(Configuration conf) {
+    long budget = conf.getLong(MAPPER_HEAP_BUDGET_KEY, -1);
+    if (budget > 0) {
+      return budget;
+    }
+    long heap = getMaxHeapSize(conf.get("mapred.map.child.java.opts", conf.get("mapred.child.java.opts", "")));
+    long available = heap - conf.getInt("io.sort.mb", 100) * MB;
+    return (long) (Math.max(available, heap / 4) * HEAP_BUDGET_FRACTION);
+  }
+  
+  private static long getMaxHeapSize(String javaOpts) {
+    Matcher matcher = XMX.matcher(javaOpts);
+    long heap = DEFAULT_CHILD_HEAP;
+    while (matcher.find()) {
+      String unit = matcher.group(2).toLowerCase();
+      int shift = unit.equals("g") ? 30 : unit.equals("m") ? 20 : unit.equals("k") ? 10 : 0;
+      heap = Long.parseLong(matcher.group(1)) << shift;
+    }
+    return heap;
+  }
 }
@@ -0,0 +1,68 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.hadoop.util;
+
+import static be.uantwerpen.adrem.hadoop.util.ReplicatedSplitInputFormat.NUMBER_OF_REPLICAS;
+import static com.google.common.collect.Lists.newArrayList;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.io.VIntWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+
+import be.uantwerpen.adrem.hadoop.util.ReplicatedSplitInputFormat.ReplicatedSplit;
+
+/**
+ * Input format for the sequence files of binary transactions keyed by their tid. The files are written per mapper, by
+ * the ingest job reading the chunks of {@link SplitByKTextInputFormat} or by a trimming Apriori phase, so every file is
+ * one chunk and becomes one split. The mappers reading them
+ * keep the ids of the mappers reading the text chunks. If {@link ReplicatedSplitInputFormat#NUMBER_OF_REPLICAS} is set,
+ * every split is handed to that number of mappers.
+ */
+public class TransactionInputFormat extends SequenceFileInputFormat<VIntWritable,TransactionWritable> {
+  
+  @Override
+  public List<InputSplit> getSplits(JobContext job) throws IOException {
+    int replicas = job.getConfiguration().getInt(NUMBER_OF_REPLICAS, 1);
+    List<FileStatus> files = listStatus(job);
+    Collections.sort(files, new Comparator<FileStatus>() {
+      @Override
+      public int compare(FileStatus o1, FileStatus o2) {
+        return o1.getPath().getName().compareTo(o2.getPath().getName());
+      }
+    });
+    List<InputSplit> splits = newArrayList();
+    for (FileStatus status : files) {
+      FileSplit split = new FileSplit(status.getPath(), 0, status.getLen(), new String[] {});
+      if (replicas == 1) {
+        splits.add(split);
+        continue;
+      }
+      for (int replica = 0; replica < replicas; replica++) {
+        splits.add(new ReplicatedSplit(split, replica, replicas));
+      }
+    }
+    return splits;
+  }
+}
@@ -0,0 +1,98 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.hadoop.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Transaction of item ids in ascending order. The ids are written as variable length gaps between consecutive ids,
+ * preceded by their number, so dense ids of frequent items mostly take a single byte each. The array is reused when
+ * reading, only the first {@link #getLength()} values are valid.
+ * 
+ * <pre>
+ * {@code
+ * Ids:    3 7 8 200
+ * Record: 4  3 4 1 192                     | all values are vints
+ * }
+ * </pre>
+ */
+public class TransactionWritable implements Writable {
+  
+  private int[] items;
+  private int length;
+  
+  public TransactionWritable() {
+    this(new int[16], 0);
+  }
+  
+  public TransactionWritable(int[] items, int length) {
+    set(items, length);
+  }
+  
+  /**
+   * @param items
+   *          the ids in ascending order, the array is not copied
+   * @param length
+   *          the number of ids used from the array
+   */
+  public void set(int[] items, int length) {
+    this.items = items;
+    this.length = length;
+  }
+  
+  public int[] getItems() {
+    return items;
+  }
+  
+  public int getLength() {
+    return length;
+  }
+  
+  @Override
+  public void write(DataOutput out) throws IOException {
+    WritableUtils.writeVInt(out, length);
+    int previous = 0;
+    for (int i = 0; i < length; i++) {
+      WritableUtils.writeVInt(out, items[i] - previous);
+      previous = items[i];
+    }
+  }
+  
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    length = WritableUtils.readVInt(in);
+    if (items.length < length) {
+      items = new int[Math.max(length, 2 * items.length)];
+    }
+    int previous = 0;
+    for (int i = 0; i < length; i++) {
+      previous += WritableUtils.readVInt(in);
+      items[i] = previous;
+    }
+  }
+  
+  @Override
+  public String toString() {
+    return Arrays.toString(Arrays.copyOf(items, length));
+  }
+}
@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.transpose;
+
+import static be.uantwerpen.adrem.hadoop.util.SplitByKTextInputFormat.NUMBER_OF_CHUNKS;
+import static be.uantwerpen.adrem.hadoop.util.Tools.cleanDirs;
+import static be.uantwerpen.adrem.hadoop.util.Tools.prepareJob;
+import static java.lang.Integer.parseInt;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+import be.uantwerpen.adrem.hadoop.util.SplitByKTextInputFormat;
+import be.uantwerpen.adrem.hadoop.util.TidListWritable;
+
+/**
+ * Transposes a database in horizontal format to a binary {@link be.uantwerpen.adrem.util.VerticalDatabase} with a
+ * MapReduce job, for inputs too large for {@link be.uantwerpen.adrem.util.DbTransposer}. The mappers build compressed
+ * tid lists of their chunks, the single reducer concatenates them per item and writes the vertical database to the
+ * output directory. The tids number the transactions chunk after chunk, in the order of the map tasks.
+ */
+public class TransposeDriver implements Tool {
+  
+  public static void main(String[] args) throws Exception {
+    ToolRunner.run(new TransposeDriver(), args);
+  }
+  
+  @Override
+  public int run(String[] args) throws Exception {
+    if (args.length < 2) {
+      System.out.println("Please specify: input outputDir [number-of-mappers]");
+      return -1;
+    }
+    String input = args[0];
+    String outputDir = args[1];
+    int numberOfMappers = args.length > 2 ? parseInt(args[2]) : 1;
+    
+    cleanDirs(outputDir);
+    System.out.println("[Transpose]: input: " + input + ", output: " + outputDir);
+    
+    Job job = prepareJob(new Path(input), new Path(outputDir), SplitByKTextInputFormat.class, TransposeMapper.class,
+        IntWritable.class, TidListWritable.class, TransposeReducer.class, IntWritable.class, TidListWritable.class,
+        SequenceFileOutputFormat.class);
+    job.setJobName("Transpose");
+    job.setJarByClass(TransposeDriver.class);
+    job.setNumReduceTasks(1);
+    job.getConfiguration().setInt(NUMBER_OF_CHUNKS, numberOfMappers);
+    
+    long start = System.currentTimeMillis();
+    boolean succeeded = job.waitForCompletion(true);
+    long end = System.currentTimeMillis();
+    System.out.println("Job Transpose took " + (end - start) / 1000 + "s");
+    if (succeeded) {
+      System.out.println("[Transpose]: vertical database: " + new Path(outputDir, TransposeReducer.FileName));
+    }
+    return succeeded ? 0 : 1;
+  }
+  
+  @Override
+  public Configuration getConf() {
+    return null;
+  }
+  
+  @Override
+  public void setConf(Configuration arg0) {
+  
+  }
+}
@@ -0,0 +1,109 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.transpose;
+
+import static be.uantwerpen.adrem.hadoop.util.Tools.getMapperHeapBudget;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Mapper;
+
+import be.uantwerpen.adrem.bigfim.TransactionTokenizer;
+import be.uantwerpen.adrem.hadoop.util.TidListWritable;
+import be.uantwerpen.adrem.util.DbTransposer.TidLists;
+
+/**
+ * Mapper of the job transposing a database to a vertical database. Every mapper collects the compressed tid lists of
+ * the items in its chunk, with the tids numbered from the first line of the chunk, and reports them when its heap
+ * budget is reached and at the end of the chunk. Finally it reports the number of transactions in its chunk under
+ * {@link #CountKey}, as a tid list with that number as only tid.
+ * 
+ * <pre>
+ * {@code
+ * Input:
+ * LongWritable   Text
+ * (Offset)       (Transaction)
+ * 0              "1 2"                     | Mapper 0
+ * 4              "1"                       | Mapper 0
+ * 
+ * 6              "1 2 3"                   | Mapper 1
+ * 
+ * Output:
+ * IntWritable    TidListWritable
+ * (Item)         (Chunk, tids)
+ * 1              0, [0,1]                  | Mapper 0
+ * 2              0, [0]                    | Mapper 0
+ * MIN_VALUE      0, [2]                    | Mapper 0
+ * 
+ * 1              1, [0]                    | Mapper 1
+ * 2              1, [0]                    | Mapper 1
+ * 3              1, [0]                    | Mapper 1
+ * MIN_VALUE      1, [1]                    | Mapper 1
+ * }
+ * </pre>
+ */
+public class TransposeMapper extends Mapper<LongWritable,Text,IntWritable,TidListWritable> {
+  
+  /**
+   * Key of the transaction counts, it sorts before every item
+   */
+  public static final IntWritable CountKey = new IntWritable(Integer.MIN_VALUE);
+  
+  private final TransactionTokenizer tokenizer = new TransactionTokenizer();
+  private final IntWritable key = new IntWritable();
+  
+  private TidLists tidLists;
+  private long budget;
+  private int chunk;
+  private int tid = 0;
+  
+  @Override
+  public void setup(Context context) {
+    chunk = context.getTaskAttemptID().getTaskID().getId();
+    budget = getMapperHeapBudget(context.getConfiguration());
+    tidLists = new TidLists(chunk);
+  }
+  
+  @Override
+  public void map(LongWritable offset, Text value, Context context) throws IOException, InterruptedException {
+    int length = tokenizer.tokenize(value);
+    tidLists.add(tokenizer.getItems(), length, tid++);
+    if (tidLists.estimateSize() > budget) {
+      context.setStatus("Heap budget reached, reporting tid lists up to transaction " + tid);
+      report(context);
+    }
+  }
+  
+  @Override
+  public void cleanup(Context context) throws IOException, InterruptedException {
+    report(context);
+    TidListWritable count = new TidListWritable(chunk);
+    count.add(tid);
+    context.write(CountKey, count);
+  }
+  
+  private void report(Context context) throws IOException, InterruptedException {
+    for (int item : tidLists.getSortedItems()) {
+      key.set(item);
+      context.write(key, tidLists.get(item));
+    }
+    tidLists.clear();
+  }
+}
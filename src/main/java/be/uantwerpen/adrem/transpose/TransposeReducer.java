@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.transpose;
+
+import static be.uantwerpen.adrem.transpose.TransposeMapper.CountKey;
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newTreeMap;
+import static java.util.Collections.sort;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+
+import be.uantwerpen.adrem.hadoop.util.TidListWritable;
+import be.uantwerpen.adrem.util.VerticalDatabase;
+
+/**
+ * Reducer of the job transposing a database to a vertical database. There is a single reducer, that receives the
+ * items in ascending order, such that the shuffle does the merge of the tid lists on item. The transaction counts of
+ * the chunks come first and give the tid of the first transaction of every chunk. The tid lists of an item are
+ * concatenated in the order of their chunks, shifted by these tids, and written to the vertical database
+ * {@link #FileName} in the output directory.
+ */
+public class TransposeReducer extends Reducer<IntWritable,TidListWritable,IntWritable,TidListWritable> {
+  
+  public static final String FileName = "vertical" + VerticalDatabase.Extension;
+  
+  private final SortedMap<Integer,Integer> chunkStarts = newTreeMap();
+  private final TidListWritable merged = new TidListWritable();
+  private VerticalDatabase.Writer writer;
+  private int numberOfTransactions = 0;
+  
+  @Override
+  public void setup(Context context) throws IOException, InterruptedException {
+    Path path = new Path(FileOutputFormat.getWorkOutputPath(context), FileName);
+    writer = new VerticalDatabase.Writer(context.getConfiguration(), path);
+  }
+  
+  @Override
+  public void reduce(IntWritable key, Iterable<TidListWritable> values, Context context) throws IOException {
+    if (key.equals(CountKey)) {
+      for (TidListWritable count : values) {
+        chunkStarts.put(count.getChunk(), count.getFirstTid());
+      }
+      for (Entry<Integer,Integer> entry : chunkStarts.entrySet()) {
+        int count = entry.getValue();
+        entry.setValue(numberOfTransactions);
+        numberOfTransactions += count;
+      }
+      return;
+    }
+    
+    List<TidListWritable> lists = newArrayList();
+    for (TidListWritable tids : values) {
+      lists.add(new TidListWritable(tids));
+    }
+    sort(lists, TidListWritable.ChunkOrder);
+    
+    merged.clear();
+    for (TidListWritable tids : lists) {
+      merged.append(tids, chunkStarts.get(tids.getChunk()));
+    }
+    writer.append(key.get(), merged);
+  }
+  
+  @Override
+  public void cleanup(Context context) throws IOException {
+    writer.setNumberOfTransactions(numberOfTransactions);
+    writer.close();
+  }
+}
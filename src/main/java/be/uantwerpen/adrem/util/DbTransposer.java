@@ -16,36 +16,100 @@
  */
 package be.uantwerpen.adrem.util;
 
+import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Maps.newHashMap;
-import static com.google.common.collect.Sets.newHashSet;
-import static com.google.common.collect.Sets.newTreeSet;
-import static java.lang.Integer.MAX_VALUE;
 import static java.lang.Integer.parseInt;
-import static java.lang.Long.valueOf;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.BitSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
-import java.util.Set;
-import java.util.StringTokenizer;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.lib.input.LineRecordReader;
+
+import be.uantwerpen.adrem.bigfim.TransactionTokenizer;
+import be.uantwerpen.adrem.hadoop.util.TidListWritable;
 
 /**
- * Converts a database in transactional format to a database in vertical database format.
+ * Converts a database in transactional format to a database in vertical database format, either as text or as a binary
+ * {@link VerticalDatabase} that DistEclat reads directly.
+ * 
+ * The input is cut in chunks that are transposed in parallel. A chunk collects a compressed tid list per item, with
+ * the tids numbered from the first line of the chunk. When the tid lists exceed the memory budget, they are sorted on
+ * item and spilled to disk as a run. Finally the runs of all chunks are merged on item, concatenating the tid lists of
+ * an item in the order of the chunks, which shifts the tids to the line numbers in the input. Tid lists are only held
+ * in memory in compressed form.
+ * 
+ * {@link be.uantwerpen.adrem.transpose.TransposeDriver} does the same as a MapReduce job.
  */
 public class DbTransposer {
   
   private static final String Delimiter = "\t";
   private static final String TidsFlag = "-tids";
   
-  // items in the database and their tids
-  private Map<Long,BitSet> items;
-  private int maxItems = MAX_VALUE;
-  private Set<Long> writtenItems;
+  private int numberOfThreads = Runtime.getRuntime().availableProcessors();
+  private long memoryBudget = 256L << 20;
+  private long chunkSize = 32L << 20;
+  private final AtomicInteger spilledRuns = new AtomicInteger();
+  
+  /**
+   * Receives the items with their tid lists in ascending order of the items.
+   */
+  private interface TidListSink {
+    public void write(int item, TidListWritable tids) throws IOException;
+  }
+  
+  public void setNumberOfThreads(int numberOfThreads) {
+    this.numberOfThreads = numberOfThreads;
+  }
+  
+  /**
+   * @param memoryBudget
+   *          number of bytes the tid lists may occupy in memory, half of it is shared by the chunks being transposed
+   *          and half of it by the runs kept in memory until the merge
+   */
+  public void setMemoryBudget(long memoryBudget) {
+    this.memoryBudget = memoryBudget;
+  }
+  
+  /**
+   * @param chunkSize
+   *          number of bytes of the input in a chunk, compressed input is a single chunk
+   */
+  public void setChunkSize(long chunkSize) {
+    this.chunkSize = chunkSize;
+  }
+  
+  /**
+   * @return the number of runs spilled to disk by the transposes so far
+   */
+  public int getNumberOfSpilledRuns() {
+    return spilledRuns.get();
+  }
   
   /**
    * Transposes the input file to vertical database (item) format, and write it to file
@@ -54,9 +118,9 @@ public class DbTransposer {
    * 
    * @param inputFileName
    *          a database in horizontal format
-   * @throws FileNotFoundException
+   * @throws IOException
    */
-  public void transpose(String inputFileName) throws FileNotFoundException {
+  public void transpose(String inputFileName) throws IOException {
     int dotIndex = inputFileName.lastIndexOf('.');
     String outputFileName;
     if (dotIndex < 1) {
@@ -70,94 +134,474 @@ public class DbTransposer {
       return;
     }
     
-    writtenItems = newHashSet();
-    do {
-      items = newHashMap();
-      readFile(inputFileName);
-      writeItemsToFile(outputFileName);
-      writtenItems.addAll(items.keySet());
-    } while (items.size() == maxItems);
+    final BufferedWriter w = new BufferedWriter(new FileWriter(outputFileName));
+    boolean succeeded = false;
+    try {
+      transpose(new Configuration(), toPath(inputFileName), spillDir(outputFileName), new TidListSink() {
+        private final StringBuilder buf = new StringBuilder();
+        
+        /**
+         * Writes an item together with its tid list as follows:
+         * 
+         * <pre>
+         * {@code<itemid><tab><tids>}
+         * </pre>
+         */
+        @Override
+        public void write(int item, TidListWritable tids) throws IOException {
+          buf.setLength(0);
+          buf.append(item).append(Delimiter);
+          for (int tid : tids.toArray()) {
+            buf.append(tid).append(' ');
+          }
+          buf.setLength(buf.length() - 1);
+          w.write(buf.toString());
+          w.newLine();
+        }
+      });
+      succeeded = true;
+    } finally {
+      w.close();
+      if (!succeeded) {
+        new File(outputFileName).delete();
+      }
+    }
   }
   
   /**
-   * Writes the individual items together with their tid lists to file as follows:
+   * Transposes the input file to a binary vertical database, see {@link VerticalDatabase}, and writes it to file
    * 
-   * <pre>
-   * {@code<itemid><tab><tids>}
-   * </pre>
+   * 'input'-tids.vdb
    * 
-   * @param outputFileName
-   *          name of file to write the vertical database to
+   * @param inputFileName
+   *          a database in horizontal format
+   * @throws IOException
    */
-  private void writeItemsToFile(String outputFileName) {
+  public void transposeToVerticalDatabase(String inputFileName) throws IOException {
+    int dotIndex = inputFileName.lastIndexOf('.');
+    String outputFileName = (dotIndex < 1 ? inputFileName : inputFileName.substring(0, dotIndex)) + TidsFlag
+        + VerticalDatabase.Extension;
+        
+    if (new File(outputFileName).exists()) {
+      System.out.println("File exists, aborting!");
+      return;
+    }
+    
+    Configuration conf = new Configuration();
+    final VerticalDatabase.Writer writer = new VerticalDatabase.Writer(conf, toPath(outputFileName));
+    boolean succeeded = false;
     try {
-      BufferedWriter w = new BufferedWriter(new FileWriter(outputFileName, true));
-      
-      for (Long item : newTreeSet(items.keySet())) {
-        StringBuffer buf = new StringBuffer();
-        buf.append(item + Delimiter);
-        BitSet set = items.get(item);
-        int ix = -1;
-        while ((ix = set.nextSetBit(ix + 1)) != -1) {
-          buf.append(ix + " ");
-        }
-        w.write(buf.toString().trim());
-        w.newLine();
+      int numberOfTransactions = transpose(conf, toPath(inputFileName), spillDir(outputFileName),
+          new TidListSink() {
+            @Override
+            public void write(int item, TidListWritable tids) throws IOException {
+              writer.append(item, tids);
+            }
+          });
+      writer.setNumberOfTransactions(numberOfTransactions);
+      succeeded = true;
+    } finally {
+      if (succeeded) {
+        writer.close();
+      } else {
+        writer.abort();
       }
-      w.flush();
-      w.close();
-    } catch (IOException e) {
-      e.printStackTrace();
     }
   }
   
+  private static Path toPath(String fileName) {
+    return new Path(new File(fileName).getAbsoluteFile().toURI());
+  }
+  
+  private static File spillDir(String outputFileName) {
+    return new File(outputFileName).getAbsoluteFile().getParentFile();
+  }
+  
   /**
-   * Reads the input file in transactional database format
+   * Transposes a database in horizontal format.
    * 
-   * @param inputFileName
-   *          name of the transaction database file
-   * @throws FileNotFoundException
+   * @param conf
+   *          hadoop configuration object
+   * @param input
+   *          the database in horizontal format
+   * @param spillDir
+   *          directory for the runs spilled to disk
+   * @param sink
+   *          receives the items with their tid lists
+   * @return the number of transactions
+   * @throws IOException
    */
-  private void readFile(String inputFileName) throws FileNotFoundException {
-    Scanner scanner = new Scanner(new File(inputFileName));
-    int rowIx = 0;
-    while (scanner.hasNext()) {
-      StringTokenizer tk = new StringTokenizer(scanner.nextLine());
-      while (tk.hasMoreTokens()) {
-        Long item = valueOf(tk.nextToken());
-        BitSet tids = items.get(item);
+  private int transpose(Configuration conf, Path input, File spillDir, TidListSink sink) throws IOException {
+    List<FileSplit> chunks = getChunks(conf, input);
+    AtomicLong keptRunsSize = new AtomicLong();
+    
+    ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+    List<Future<ChunkResult>> futures = newArrayList();
+    for (int chunk = 0; chunk < chunks.size(); chunk++) {
+      futures.add(executor.submit(new ChunkTransposer(conf, chunks.get(chunk), chunk, spillDir, keptRunsSize)));
+    }
+    executor.shutdown();
+    
+    List<Run> runs = newArrayList();
+    try {
+      int[] chunkStarts = new int[chunks.size()];
+      int numberOfTransactions = 0;
+      for (int chunk = 0; chunk < chunks.size(); chunk++) {
+        ChunkResult result = futures.get(chunk).get();
+        runs.addAll(result.runs);
+        chunkStarts[chunk] = numberOfTransactions;
+        numberOfTransactions += result.numberOfTransactions;
+      }
+      merge(runs, chunkStarts, sink);
+      return numberOfTransactions;
+    } catch (ExecutionException e) {
+      throw new IOException("Transposing a chunk failed", e.getCause());
+    } catch (InterruptedException e) {
+      throw new IOException("Transposing was interrupted", e);
+    } finally {
+      executor.shutdownNow();
+      for (Run run : runs) {
+        run.close();
+      }
+    }
+  }
+  
+  private List<FileSplit> getChunks(Configuration conf, Path input) throws IOException {
+    long length = input.getFileSystem(conf).getFileStatus(input).getLen();
+    List<FileSplit> chunks = newArrayList();
+    if (new CompressionCodecFactory(conf).getCodec(input) != null) {
+      chunks.add(new FileSplit(input, 0, length, null));
+      return chunks;
+    }
+    for (long start = 0; start < length || start == 0; start += chunkSize) {
+      chunks.add(new FileSplit(input, start, Math.min(chunkSize, length - start), null));
+    }
+    return chunks;
+  }
+  
+  /**
+   * Merges the runs on item. The tid lists of an item are concatenated in the order of their chunks, shifted by the
+   * number of transactions in the chunks before it.
+   */
+  private static void merge(List<Run> runs, int[] chunkStarts, TidListSink sink) throws IOException {
+    PriorityQueue<Run> queue = new PriorityQueue<Run>(Math.max(1, runs.size()), new Comparator<Run>() {
+      @Override
+      public int compare(Run o1, Run o2) {
+        if (o1.item != o2.item) {
+          return o1.item < o2.item ? -1 : 1;
+        }
+        return TidListWritable.ChunkOrder.compare(o1.tids, o2.tids);
+      }
+    });
+    for (Run run : runs) {
+      if (run.next()) {
+        queue.add(run);
+      }
+    }
+    
+    TidListWritable merged = new TidListWritable();
+    while (!queue.isEmpty()) {
+      int item = queue.peek().item;
+      merged.clear();
+      while (!queue.isEmpty() && queue.peek().item == item) {
+        Run run = queue.poll();
+        merged.append(run.tids, chunkStarts[run.tids.getChunk()]);
+        if (run.next()) {
+          queue.add(run);
+        }
+      }
+      sink.write(item, merged);
+    }
+  }
+  
+  /**
+   * The compressed tid lists of the items in a chunk of the input. The tids are numbered from the first line of the
+   * chunk.
+   */
+  public static class TidLists {
+    
+    /**
+     * Bytes the map takes per item on a 64-bit JVM with compressed references: a HashMap entry of 32 bytes, the boxed
+     * item of 16 bytes and 8 to 16 bytes of the table at the default load factor. The list itself is estimated by
+     * {@link TidListWritable#estimateSize()}.
+     */
+    static final int BYTES_PER_ITEM = 64;
+    
+    private final int chunk;
+    private final Map<Integer,TidListWritable> lists = newHashMap();
+    private long size = 0;
+    
+    public TidLists(int chunk) {
+      this.chunk = chunk;
+    }
+    
+    /**
+     * Adds a transaction to the tid lists of its items.
+     * 
+     * @param items
+     *          array with the items of the transaction
+     * @param length
+     *          the number of items used from the array
+     * @param tid
+     *          the tid of the transaction, larger than the tids added before
+     */
+    public void add(int[] items, int length, int tid) {
+      for (int i = 0; i < length; i++) {
+        TidListWritable tids = lists.get(items[i]);
         if (tids == null) {
-          if (items.size() >= maxItems) {
-            continue;
-          }
-          if (writtenItems.contains(item)) {
-            continue;
+          tids = new TidListWritable(chunk);
+          lists.put(items[i], tids);
+          size += BYTES_PER_ITEM + tids.estimateSize();
+        }
+        long before = tids.estimateSize();
+        tids.add(tid);
+        size += tids.estimateSize() - before;
+      }
+    }
+    
+    /**
+     * @return an estimate of the number of bytes the tid lists occupy in memory
+     */
+    public long estimateSize() {
+      return size;
+    }
+    
+    public boolean isEmpty() {
+      return lists.isEmpty();
+    }
+    
+    public int[] getSortedItems() {
+      int[] items = new int[lists.size()];
+      int i = 0;
+      for (Integer item : lists.keySet()) {
+        items[i++] = item;
+      }
+      Arrays.sort(items);
+      return items;
+    }
+    
+    public TidListWritable get(int item) {
+      return lists.get(item);
+    }
+    
+    public void clear() {
+      lists.clear();
+      size = 0;
+    }
+  }
+  
+  private static class ChunkResult {
+    
+    private final int numberOfTransactions;
+    private final List<Run> runs;
+    
+    private ChunkResult(int numberOfTransactions, List<Run> runs) {
+      this.numberOfTransactions = numberOfTransactions;
+      this.runs = runs;
+    }
+  }
+  
+  /**
+   * Transposes a chunk of the input into one or more runs. A run is spilled to disk when the tid lists of the chunk
+   * exceed their share of the memory budget, or when the runs kept in memory already fill their half of the budget.
+   */
+  private class ChunkTransposer implements Callable<ChunkResult> {
+    
+    private final Configuration conf;
+    private final FileSplit split;
+    private final int chunk;
+    private final File spillDir;
+    private final AtomicLong keptRunsSize;
+    
+    private ChunkTransposer(Configuration conf, FileSplit split, int chunk, File spillDir, AtomicLong keptRunsSize) {
+      this.conf = conf;
+      this.split = split;
+      this.chunk = chunk;
+      this.spillDir = spillDir;
+      this.keptRunsSize = keptRunsSize;
+    }
+    
+    @Override
+    public ChunkResult call() throws IOException, InterruptedException {
+      long chunkBudget = memoryBudget / (2 * numberOfThreads);
+      TidLists tidLists = new TidLists(chunk);
+      List<Run> runs = newArrayList();
+      TransactionTokenizer tokenizer = new TransactionTokenizer();
+      int tid = 0;
+      
+      LineRecordReader reader = new LineRecordReader();
+      try {
+        reader.initialize(split, new TaskAttemptContext(conf, new TaskAttemptID()));
+        while (reader.nextKeyValue()) {
+          int length = tokenizer.tokenize(reader.getCurrentValue());
+          tidLists.add(tokenizer.getItems(), length, tid++);
+          if (tidLists.estimateSize() > chunkBudget) {
+            runs.add(spill(tidLists));
+            tidLists.clear();
           }
-          tids = new BitSet();
-          items.put(item, tids);
         }
-        tids.set(rowIx);
+      } finally {
+        reader.close();
       }
-      rowIx++;
+      
+      if (!tidLists.isEmpty()) {
+        long size = tidLists.estimateSize();
+        if (keptRunsSize.addAndGet(size) <= memoryBudget / 2) {
+          runs.add(new MemoryRun(tidLists));
+        } else {
+          keptRunsSize.addAndGet(-size);
+          runs.add(spill(tidLists));
+        }
+      }
+      return new ChunkResult(tid, runs);
+    }
+    
+    private Run spill(TidLists tidLists) throws IOException {
+      spilledRuns.incrementAndGet();
+      return SpilledRun.spill(tidLists, spillDir);
+    }
+  }
+  
+  /**
+   * Tid lists sorted on item, read one item at a time.
+   */
+  private static abstract class Run {
+    
+    protected int item;
+    protected TidListWritable tids;
+    
+    /**
+     * Moves to the next item of the run.
+     * 
+     * @return false if there are no more items
+     * @throws IOException
+     */
+    public abstract boolean next() throws IOException;
+    
+    public void close() throws IOException {}
+  }
+  
+  private static class MemoryRun extends Run {
+    
+    private final int[] items;
+    private final TidListWritable[] lists;
+    private int ix = -1;
+    
+    private MemoryRun(TidLists tidLists) {
+      items = tidLists.getSortedItems();
+      lists = new TidListWritable[items.length];
+      for (int i = 0; i < items.length; i++) {
+        lists[i] = tidLists.get(items[i]);
+      }
+    }
+    
+    @Override
+    public boolean next() {
+      if (ix >= 0) {
+        lists[ix] = null;
+      }
+      if (++ix == items.length) {
+        return false;
+      }
+      item = items[ix];
+      tids = lists[ix];
+      return true;
+    }
+  }
+  
+  /**
+   * Run in a temporary file, holding the number of items followed by every item and its tid list.
+   */
+  private static class SpilledRun extends Run {
+    
+    private final File file;
+    private DataInputStream in;
+    private int remaining;
+    
+    private SpilledRun(File file) {
+      this.file = file;
+      this.tids = new TidListWritable();
+    }
+    
+    private static SpilledRun spill(TidLists tidLists, File spillDir) throws IOException {
+      File file = File.createTempFile("transpose", ".run", spillDir);
+      file.deleteOnExit();
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+      try {
+        int[] items = tidLists.getSortedItems();
+        out.writeInt(items.length);
+        for (int item : items) {
+          out.writeInt(item);
+          tidLists.get(item).write(out);
+        }
+      } finally {
+        out.close();
+      }
+      return new SpilledRun(file);
+    }
+    
+    @Override
+    public boolean next() throws IOException {
+      if (in == null) {
+        in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        remaining = in.readInt();
+      }
+      if (remaining == 0) {
+        return false;
+      }
+      remaining--;
+      item = in.readInt();
+      tids.readFields(in);
+      return true;
+    }
+    
+    @Override
+    public void close() throws IOException {
+      if (in != null) {
+        in.close();
+      }
+      file.delete();
     }
-    scanner.close();
   }
   
   public static void main(String[] args) {
+    String usage = "Please specify: inputFile [--binary true] [--threads n] [--memory MB] [--chunk MB]";
     if (args.length < 1) {
-      System.out.println("Please specify: inputFile [items-per-iteration]");
+      System.out.println(usage);
       return;
     }
     
     DbTransposer t = new DbTransposer();
-    
-    if (args.length == 2) {
-      t.maxItems = parseInt(args[1]);
+    boolean binary = false;
+    for (int i = 1; i < args.length; i += 2) {
+      if (i + 1 == args.length || !args[i].startsWith("--")) {
+        System.out.println("Unexpected argument " + args[i] + ", items-per-iteration is replaced by --memory");
+        System.out.println(usage);
+        return;
+      }
+      if (args[i].equals("--binary")) {
+        binary = args[i + 1].equals("true");
+      } else if (args[i].equals("--threads")) {
+        t.numberOfThreads = parseInt(args[i + 1]);
+      } else if (args[i].equals("--memory")) {
+        t.memoryBudget = parseInt(args[i + 1]) * (1L << 20);
+      } else if (args[i].equals("--chunk")) {
+        t.chunkSize = parseInt(args[i + 1]) * (1L << 20);
+      } else {
+        System.out.println("Unknown option " + args[i]);
+        System.out.println(usage);
+        return;
+      }
     }
     
     try {
-      t.transpose(args[0]);
-    } catch (FileNotFoundException e) {
+      if (binary) {
+        t.transposeToVerticalDatabase(args[0]);
+      } else {
+        t.transpose(args[0]);
+      }
+      System.out.println("[DbTransposer]: " + t.getNumberOfSpilledRuns() + " runs spilled to disk");
+    } catch (IOException e) {
       e.printStackTrace();
     }
   }
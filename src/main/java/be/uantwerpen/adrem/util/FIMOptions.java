@@ -11,6 +11,13 @@ public class FIMOptions {
   public static final String SUBDB_SIZE = "sub_db_size";
   public static final String DELIMITER_KEY = "delimiter";
   public static final String DEBUG_KEY = "debug";
+  public static final String DHP_BUCKETS_KEY = "dhp_buckets";
+  public static final String MAPPER_HEAP_BUDGET_KEY = "mapper_heap_budget";
+  public static final String SKETCH_WIDTH_KEY = "sketch_width";
+  public static final String SKETCH_DEPTH_KEY = "sketch_depth";
+  public static final String MAPPER_THREADS_KEY = "mapper_threads";
+  public static final String COUNT_ENGINE_KEY = "count_engine";
+  public static final String TRIM_TRANSACTIONS_KEY = "trim_transactions";
   
   public String inputFile = "";
   public String outputDir = "";
@@ -19,6 +26,22 @@ public class FIMOptions {
   public int nrMappers = -1;
   public String delimiter = " ";
   public boolean debug = false;
+  public int dhpBuckets = 0;
+  public int heapBudgetMB = -1;
+  public int sketchWidth = 0;
+  public int sketchDepth = 4;
+  public int mapperThreads = 1;
+  public String countEngine = "trie";
+  public int nrReducers = 1;
+  public int lookahead = 0;
+  public int candidatePartitions = 1;
+  public boolean binaryInput = false;
+  public boolean trimTransactions = false;
+  public boolean projectTrieGroups = false;
+  public boolean stringItems = false;
+  public String splitMode = "lines";
+  public boolean lineIndex = false;
+  public boolean verticalInput = false;
   
   public boolean parseOptions(String args[]) {
     if (args.length % 2 != 0) {
@@ -39,6 +62,38 @@ public class FIMOptions {
         delimiter = args[i + 1];
       } else if (args[i].equals("--debug")) {
         debug = args[i + 1].equals("true");
+      } else if (args[i].equals("--dhpbuckets")) {
+        dhpBuckets = Integer.parseInt(args[i + 1]);
+      } else if (args[i].equals("--heapbudget")) {
+        heapBudgetMB = Integer.parseInt(args[i + 1]);
+      } else if (args[i].equals("--sketchwidth")) {
+        sketchWidth = Integer.parseInt(args[i + 1]);
+      } else if (args[i].equals("--sketchdepth")) {
+        sketchDepth = Integer.parseInt(args[i + 1]);
+      } else if (args[i].equals("--mapperthreads")) {
+        mapperThreads = Integer.parseInt(args[i + 1]);
+      } else if (args[i].equals("--countengine")) {
+        countEngine = args[i + 1];
+      } else if (args[i].equals("--reducercount")) {
+        nrReducers = Integer.parseInt(args[i + 1]);
+      } else if (args[i].equals("--lookahead")) {
+        lookahead = Integer.parseInt(args[i + 1]);
+      } else if (args[i].equals("--candidatepartitions")) {
+        candidatePartitions = Integer.parseInt(args[i + 1]);
+      } else if (args[i].equals("--binaryinput")) {
+        binaryInput = args[i + 1].equals("true");
+      } else if (args[i].equals("--trimtransactions")) {
+        trimTransactions = args[i + 1].equals("true");
+      } else if (args[i].equals("--projecttriegroups")) {
+        projectTrieGroups = args[i + 1].equals("true");
+      } else if (args[i].equals("--stringitems")) {
+        stringItems = args[i + 1].equals("true");
+      } else if (args[i].equals("--splitmode")) {
+        splitMode = args[i + 1];
+      } else if (args[i].equals("--lineindex")) {
+        lineIndex = args[i + 1].equals("true");
+      } else if (args[i].equals("--verticalinput")) {
+        verticalInput = args[i + 1].equals("true");
       }
     }
     
@@ -52,7 +107,14 @@ public class FIMOptions {
   @Override
   public String toString() {
     return "FIMOptions [inputFile=" + inputFile + ", outputPath=" + outputDir + ", minSup=" + minSup + ", prefixLength="
-        + prefixLength + ", nrMappers=" + nrMappers + ", delimiter=" + delimiter + ", debug=" + debug + "]";
+        + prefixLength + ", nrMappers=" + nrMappers + ", delimiter=" + delimiter + ", debug=" + debug + ", dhpBuckets="
+        + dhpBuckets + ", heapBudgetMB=" + heapBudgetMB + ", sketchWidth="
+        + sketchWidth + ", sketchDepth=" + sketchDepth + ", mapperThreads=" + mapperThreads + ", countEngine="
+        + countEngine + ", nrReducers=" + nrReducers + ", lookahead=" + lookahead
+        + ", candidatePartitions=" + candidatePartitions + ", binaryInput=" + binaryInput
+        + ", trimTransactions=" + trimTransactions + ", projectTrieGroups=" + projectTrieGroups + ", stringItems="
+        + stringItems + ", splitMode=" + splitMode + ", lineIndex=" + lineIndex
+        + ", verticalInput=" + verticalInput + "]";
   }
   
   public void printHelp() {
@@ -75,6 +137,39 @@ public class FIMOptions {
     System.out.println("\t\tItem delimiter in the data file");
     System.out.println("\t--debug");
     System.out.println("\t\tEnables debug mode, keeping all intermediately created directories");
+    System.out.println("\t--dhpbuckets Number of Buckets");
+    System.out.println("\t\tNumber of hash buckets for pruning pairs in the second phase, 0 disables (default)");
+    System.out.println("\t--heapbudget Heap Budget");
+    System.out.println("\t\tMegabytes a mapper may use for candidates, derived from the child heap size by default");
+    System.out.println("\t--sketchwidth Sketch Width");
+    System.out.println("\t\tWidth of the Count-Min sketch used to skip infrequent items, 0 disables (default)");
+    System.out.println("\t--sketchdepth Sketch Depth");
+    System.out.println("\t\tNumber of hash functions of the Count-Min sketch, 4 by default");
+    System.out.println("\t--mapperthreads Number of Threads");
+    System.out.println("\t\tNumber of threads counting candidates with the trie engine, 1 by default");
+    System.out.println("\t--countengine Count Engine");
+    System.out.println("\t\tHow Apriori mappers count candidates: trie (default), sorted, prefixtree or bitmap");
+    System.out.println("\t--reducercount Number of Reducers");
+    System.out.println("\t\tNumber of reducers aggregating the candidate counts of the Apriori phases, 1 by default");
+    System.out.println("\t--lookahead Number of Candidates");
+    System.out.println("\t\tMax candidates of a phase to count the next level in the same scan, 0 disables (default)");
+    System.out.println("\t--candidatepartitions Number of Partitions");
+    System.out.println("\t\tNumber of mappers per split that each count a partition of the candidates, 1 by default");
+    System.out.println("\t--binaryinput");
+    System.out.println("\t\tConverts the input to binary recoded transactions after the first phase, false by default");
+    System.out.println("\t--trimtransactions");
+    System.out.println("\t\tWrites a trimmed copy of the transactions for every next phase, false by default");
+    System.out.println("\t--projecttriegroups");
+    System.out.println("\t\tPrefix group jobs read only the transactions of their trie group, false by default");
+    System.out.println("\t--stringitems");
+    System.out.println("\t\tEncodes string items with a dictionary, false by default. The fis and shortfis outputs");
+    System.out.println("\t\tkeep the ids, the decodedfis file lists the itemsets with their string items");
+    System.out.println("\t--splitmode Split Mode");
+    System.out.println("\t\tSplits the input in chunks of the same number of lines (default) or bytes");
+    System.out.println("\t--lineindex");
+    System.out.println("\t\tKeeps the line counts of the input next to it for the next jobs, false by default");
+    System.out.println("\t--verticalinput");
+    System.out.println("\t\tInput is a vertical database written by DbTransposer, DistEclat only, false by default");
     System.out.println("\t--help (-h)");
     System.out.println("\t\tPrint out help");
   }
@@ -0,0 +1,202 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.util;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.VIntWritable;
+
+import com.google.common.primitives.Ints;
+
+/**
+ * Dictionary of string items. The items get the ids 0..n-1 in descending order of support, such that the input can be
+ * encoded to the integer items the algorithms work with and the itemsets found can be decoded afterwards. Frequent
+ * items get the small ids, which keeps the encoded input short.
+ * 
+ * The dictionary is stored sorted on the items, such that it is read without sorting and an item is found by a binary
+ * search.
+ * 
+ * <pre>
+ * {@code
+ * File: sequence file with Text item, VIntWritable id records in the order of the items
+ * 
+ * apple   1
+ * milk    0
+ * pear    2
+ * }
+ * </pre>
+ */
+public class ItemDictionary {
+  
+  public static final String Extension = ".dict";
+  public static final String FileName = "items" + Extension;
+  
+  private final String[] items;
+  private final String[] sortedItems;
+  private final int[] sortedIds;
+  
+  private ItemDictionary(String[] items, String[] sortedItems, int[] sortedIds) {
+    this.items = items;
+    this.sortedItems = sortedItems;
+    this.sortedIds = sortedIds;
+  }
+  
+  /**
+   * @param items
+   *          the distinct items, the id of an item is its index
+   */
+  public ItemDictionary(final String[] items) {
+    this.items = items;
+    Integer[] order = new Integer[items.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer o1, Integer o2) {
+        return items[o1].compareTo(items[o2]);
+      }
+    });
+    sortedItems = new String[items.length];
+    sortedIds = new int[items.length];
+    for (int i = 0; i < order.length; i++) {
+      sortedItems[i] = items[order[i]];
+      sortedIds[i] = order[i];
+    }
+  }
+  
+  public static boolean isDictionaryFile(String fileName) {
+    return fileName.endsWith(Extension);
+  }
+  
+  /**
+   * Creates the dictionary that orders the items by descending support. Items with the same support are ordered by
+   * item.
+   * 
+   * @param items
+   *          the distinct items
+   * @param supports
+   *          the supports of the items
+   * @return the dictionary
+   */
+  public static ItemDictionary byDescendingSupport(final String[] items, final int[] supports) {
+    Integer[] order = new Integer[items.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer o1, Integer o2) {
+        if (supports[o1] != supports[o2]) {
+          return supports[o1] > supports[o2] ? -1 : 1;
+        }
+        return items[o1].compareTo(items[o2]);
+      }
+    });
+    String[] encoded = new String[items.length];
+    for (int id = 0; id < encoded.length; id++) {
+      encoded[id] = items[order[id]];
+    }
+    return new ItemDictionary(encoded);
+  }
+  
+  /**
+   * Reads a dictionary from a file.
+   * 
+   * @param conf
+   *          hadoop configuration object
+   * @param path
+   *          the file to read from
+   * @return the dictionary
+   * @throws IOException
+   */
+  public static ItemDictionary read(Configuration conf, Path path) throws IOException {
+    FileSystem fs = path.getFileSystem(conf);
+    SequenceFile.Reader reader = new SequenceFile.Reader(fs, path, conf);
+    try {
+      List<String> sortedItems = newArrayList();
+      List<Integer> sortedIds = newArrayList();
+      Text item = new Text();
+      VIntWritable id = new VIntWritable();
+      while (reader.next(item, id)) {
+        sortedItems.add(item.toString());
+        sortedIds.add(id.get());
+      }
+      String[] items = new String[sortedItems.size()];
+      for (int i = 0; i < items.length; i++) {
+        items[sortedIds.get(i)] = sortedItems.get(i);
+      }
+      return new ItemDictionary(items, sortedItems.toArray(new String[0]), Ints.toArray(sortedIds));
+    } finally {
+      reader.close();
+    }
+  }
+  
+  /**
+   * Writes the dictionary to a file.
+   * 
+   * @param conf
+   *          hadoop configuration object
+   * @param path
+   *          the file to write to
+   * @throws IOException
+   */
+  public void write(Configuration conf, Path path) throws IOException {
+    FileSystem fs = path.getFileSystem(conf);
+    SequenceFile.Writer writer = SequenceFile.createWriter(fs, conf, path, Text.class, VIntWritable.class);
+    try {
+      Text item = new Text();
+      VIntWritable id = new VIntWritable();
+      for (int i = 0; i < sortedItems.length; i++) {
+        item.set(sortedItems[i]);
+        id.set(sortedIds[i]);
+        writer.append(item, id);
+      }
+    } finally {
+      writer.close();
+    }
+  }
+  
+  /**
+   * @return the number of items
+   */
+  public int size() {
+    return items.length;
+  }
+  
+  /**
+   * @return the id of an item, or -1 if the item is not in the dictionary
+   */
+  public int toId(String item) {
+    int ix = Arrays.binarySearch(sortedItems, item);
+    return ix < 0 ? -1 : sortedIds[ix];
+  }
+  
+  public String toItem(int id) {
+    return items[id];
+  }
+}
@@ -0,0 +1,237 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.util;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * Dense recoding of the frequent items. Frequent items get the ids 0..n-1 in the order they are given, which is
+ * ascending support for the recodings created from the supports. Infrequent items have no id, so filtering and
+ * recoding an item is a single lookup.
+ * 
+ * If the largest item is small enough, the lookup is a bitset test followed by an array access indexed by the item.
+ * Recodings of sparse item ranges fall back to a binary search in the sorted items.
+ * 
+ * <pre>
+ * {@code
+ * File: one line with the frequent items in the order of their ids
+ * 
+ * 7 3 12                                   | ids: 7 -> 0, 3 -> 1, 12 -> 2
+ * }
+ * </pre>
+ */
+public class ItemRecoding {
+  
+  public static final String Extension = ".items";
+  
+  /**
+   * Items up to this value are recoded by direct indexing
+   */
+  private static final int MAX_DIRECT_ITEM = 1 << 22;
+  
+  private final int[] items;
+  
+  private final BitSet frequent;
+  private final int[] ids;
+  
+  private final int[] sortedItems;
+  private final int[] sortedIds;
+  
+  /**
+   * @param items
+   *          the frequent items, the id of an item is its index
+   */
+  public ItemRecoding(int[] items) {
+    this.items = items;
+    int maxItem = -1;
+    int minItem = 0;
+    for (int item : items) {
+      maxItem = Math.max(maxItem, item);
+      minItem = Math.min(minItem, item);
+    }
+    if (minItem >= 0 && maxItem <= MAX_DIRECT_ITEM) {
+      frequent = new BitSet(maxItem + 1);
+      ids = new int[maxItem + 1];
+      for (int id = 0; id < items.length; id++) {
+        frequent.set(items[id]);
+        ids[items[id]] = id;
+      }
+      sortedItems = null;
+      sortedIds = null;
+    } else {
+      frequent = null;
+      ids = null;
+      sortedItems = items.clone();
+      Arrays.sort(sortedItems);
+      sortedIds = new int[items.length];
+      for (int id = 0; id < items.length; id++) {
+        sortedIds[Arrays.binarySearch(sortedItems, items[id])] = id;
+      }
+    }
+  }
+  
+  public static boolean isRecodingFile(String fileName) {
+    return fileName.endsWith(Extension);
+  }
+  
+  /**
+   * Creates the recoding that orders the items by ascending support. Items with the same support are ordered by item.
+   * 
+   * @param items
+   *          the frequent items
+   * @param supports
+   *          the supports of the items
+   * @return the recoding
+   */
+  public static ItemRecoding byAscendingSupport(final int[] items, final int[] supports) {
+    Integer[] order = new Integer[items.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer o1, Integer o2) {
+        if (supports[o1] != supports[o2]) {
+          return supports[o1] < supports[o2] ? -1 : 1;
+        }
+        return items[o1] < items[o2] ? -1 : items[o1] == items[o2] ? 0 : 1;
+      }
+    });
+    int[] recoded = new int[items.length];
+    for (int id = 0; id < recoded.length; id++) {
+      recoded[id] = items[order[id]];
+    }
+    return new ItemRecoding(recoded);
+  }
+  
+  /**
+   * Reads a recoding from a local file.
+   * 
+   * @param fileName
+   *          name of the local file
+   * @return the recoding
+   * @throws IOException
+   */
+  public static ItemRecoding read(String fileName) throws IOException {
+    return read(new BufferedReader(new FileReader(fileName)));
+  }
+  
+  /**
+   * Reads a recoding from a file.
+   * 
+   * @param conf
+   *          hadoop configuration object
+   * @param path
+   *          the file to read
+   * @return the recoding
+   * @throws IOException
+   */
+  public static ItemRecoding read(Configuration conf, Path path) throws IOException {
+    return read(new BufferedReader(new InputStreamReader(path.getFileSystem(conf).open(path))));
+  }
+  
+  private static ItemRecoding read(BufferedReader reader) throws IOException {
+    try {
+      String line = reader.readLine();
+      if (line == null || line.trim().isEmpty()) {
+        return new ItemRecoding(new int[0]);
+      }
+      String[] split = line.trim().split(" ");
+      int[] items = new int[split.length];
+      for (int i = 0; i < split.length; i++) {
+        items[i] = Integer.parseInt(split[i]);
+      }
+      return new ItemRecoding(items);
+    } finally {
+      reader.close();
+    }
+  }
+  
+  /**
+   * Writes the recoding to a file.
+   * 
+   * @param conf
+   *          hadoop configuration object
+   * @param path
+   *          the file to write to
+   * @throws IOException
+   */
+  public void write(Configuration conf, Path path) throws IOException {
+    Writer writer = new OutputStreamWriter(path.getFileSystem(conf).create(path, true));
+    try {
+      StringBuilder builder = new StringBuilder();
+      for (int item : items) {
+        builder.append(item).append(' ');
+      }
+      writer.write(builder.toString().trim());
+      writer.write('\n');
+    } finally {
+      writer.close();
+    }
+  }
+  
+  /**
+   * @return the number of frequent items
+   */
+  public int size() {
+    return items.length;
+  }
+  
+  /**
+   * @return the id of an item, or -1 if the item is not frequent
+   */
+  public int toId(int item) {
+    if (ids != null) {
+      return item >= 0 && frequent.get(item) ? ids[item] : -1;
+    }
+    int ix = Arrays.binarySearch(sortedItems, item);
+    return ix < 0 ? -1 : sortedIds[ix];
+  }
+  
+  public int toItem(int id) {
+    return items[id];
+  }
+  
+  /**
+   * Translates ids back to items.
+   * 
+   * @param ids
+   *          array of ids
+   * @param length
+   *          the number of ids used from the array
+   * @return the items in ascending order
+   */
+  public int[] toItems(int[] ids, int length) {
+    int[] result = new int[length];
+    for (int i = 0; i < length; i++) {
+      result[i] = items[ids[i]];
+    }
+    Arrays.sort(result);
+    return result;
+  }
+}
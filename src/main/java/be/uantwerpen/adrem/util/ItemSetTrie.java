@@ -36,6 +36,18 @@ public abstract class ItemSetTrie {
   
   public abstract ItemSetTrie getChild(int id);
   
+  /**
+   * Removes the supports or tids collected in this node and all its descendants, keeping the structure of the trie.
+   */
+  public void clear() {
+    clearNode();
+    for (ItemSetTrie child : children.values()) {
+      child.clear();
+    }
+  }
+  
+  protected abstract void clearNode();
+  
   public static class SupportCountItemsetTrie extends ItemSetTrie {
     
     public int support;
@@ -60,6 +72,11 @@ public abstract class ItemSetTrie {
       support++;
     }
     
+    @Override
+    protected void clearNode() {
+      support = 0;
+    }
+    
     @Override
     public String toString() {
       return "[" + id + "(support: " + support + "):" + children + "]";
@@ -90,6 +107,11 @@ public abstract class ItemSetTrie {
       this.tids.add(tid);
     }
     
+    @Override
+    protected void clearNode() {
+      tids.clear();
+    }
+    
     @Override
     public String toString() {
       return "[" + id + "(current tid count: " + this.tids.size() + "):" + children + "]";
@@ -0,0 +1,294 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import be.uantwerpen.adrem.hadoop.util.TidListWritable;
+
+/**
+ * Binary vertical database. Every item is stored with its tid list, and an item index with the support of every item
+ * and the position of its tid list makes it possible to select the frequent items without reading a single tid list.
+ * The index is written after the tid lists, such that the file is written in one pass in ascending order of the items.
+ * 
+ * <pre>
+ * {@code
+ * Layout:
+ * 
+ * MAGIC (int)
+ * tids of item 0                               | see TidListWritable, the first tid and the gaps as 7-bit vints
+ * tids of item 1
+ * ...
+ * number-of-transactions (int)  number-of-items (int)
+ *   item (int)  support (int)  position (long) | the item index, ascending items
+ * index-position (long)  MAGIC (int)
+ * }
+ * </pre>
+ */
+public class VerticalDatabase implements Closeable {
+  
+  public static final String Extension = ".vdb";
+  
+  private static final int MAGIC = 0x42564442;
+  private static final int TrailerSize = 12;
+  
+  private final FSDataInputStream in;
+  private final int numberOfTransactions;
+  private final int[] items;
+  private final int[] supports;
+  private final long[] positions;
+  private final long indexPosition;
+  
+  private VerticalDatabase(FSDataInputStream in, int numberOfTransactions, int[] items, int[] supports,
+      long[] positions, long indexPosition) {
+    this.in = in;
+    this.numberOfTransactions = numberOfTransactions;
+    this.items = items;
+    this.supports = supports;
+    this.positions = positions;
+    this.indexPosition = indexPosition;
+  }
+  
+  public static boolean isVerticalDatabase(String fileName) {
+    return fileName.endsWith(Extension);
+  }
+  
+  /**
+   * Opens a vertical database and reads its item index. The tid lists are only read on request.
+   * 
+   * @param conf
+   *          hadoop configuration object
+   * @param path
+   *          the path of the vertical database
+   * @return the opened vertical database, that should be closed by the caller
+   * @throws IOException
+   */
+  public static VerticalDatabase open(Configuration conf, Path path) throws IOException {
+    FileSystem fs = path.getFileSystem(conf);
+    long length = fs.getFileStatus(path).getLen();
+    FSDataInputStream in = fs.open(path);
+    try {
+      if (length < 4 + TrailerSize || in.readInt() != MAGIC) {
+        throw new IOException("Not a vertical database: " + path);
+      }
+      in.seek(length - TrailerSize);
+      long indexPosition = in.readLong();
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Vertical database without item index: " + path);
+      }
+      in.seek(indexPosition);
+      int numberOfTransactions = in.readInt();
+      int numberOfItems = in.readInt();
+      int[] items = new int[numberOfItems];
+      int[] supports = new int[numberOfItems];
+      long[] positions = new long[numberOfItems];
+      for (int i = 0; i < numberOfItems; i++) {
+        items[i] = in.readInt();
+        supports[i] = in.readInt();
+        positions[i] = in.readLong();
+      }
+      return new VerticalDatabase(in, numberOfTransactions, items, supports, positions, indexPosition);
+    } catch (IOException e) {
+      in.close();
+      throw e;
+    }
+  }
+  
+  public int getNumberOfTransactions() {
+    return numberOfTransactions;
+  }
+  
+  public int getNumberOfItems() {
+    return items.length;
+  }
+  
+  public int getItem(int ix) {
+    return items[ix];
+  }
+  
+  public int getSupport(int ix) {
+    return supports[ix];
+  }
+  
+  /**
+   * Reads the tid list of an item.
+   * 
+   * @param ix
+   *          the index of the item in the item index
+   * @return the ascending tids of the item
+   * @throws IOException
+   */
+  public int[] readTids(int ix) throws IOException {
+    long end = ix + 1 < positions.length ? positions[ix + 1] : indexPosition;
+    byte[] bytes = new byte[(int) (end - positions[ix])];
+    in.readFully(positions[ix], bytes);
+    return TidListWritable.decode(bytes, supports[ix]);
+  }
+  
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+  
+  /**
+   * Writes a vertical database. The items have to be appended in ascending order, each with its complete tid list.
+   */
+  public static class Writer implements Closeable {
+    
+    private final FileSystem fs;
+    private final Path path;
+    private final FSDataOutputStream out;
+    private final TidListWritable tids = new TidListWritable();
+    private int[] items = new int[16];
+    private int[] supports = new int[16];
+    private long[] positions = new long[16];
+    private int numberOfItems = 0;
+    private int numberOfTransactions = 0;
+    
+    public Writer(Configuration conf, Path path) throws IOException {
+      this.fs = path.getFileSystem(conf);
+      this.path = path;
+      out = fs.create(path, true);
+      out.writeInt(MAGIC);
+    }
+    
+    /**
+     * Appends an item with its complete tid list.
+     * 
+     * @param item
+     *          the item, larger than the previously appended item
+     * @param tids
+     *          array with the ascending tids of the item
+     * @param length
+     *          the number of tids used from the array
+     * @throws IOException
+     */
+    public void append(int item, int[] tids, int length) throws IOException {
+      startItem(item);
+      for (int i = 0; i < length; i++) {
+        addTid(tids[i]);
+      }
+    }
+    
+    /**
+     * Appends an item with its complete tid list, the encoded tids are written as they are.
+     * 
+     * @param item
+     *          the item, larger than the previously appended item
+     * @param tidList
+     *          the tids of the item
+     * @throws IOException
+     */
+    public void append(int item, TidListWritable tidList) throws IOException {
+      startItem(item);
+      out.write(tidList.getBytes(), 0, tidList.getLength());
+      supports[numberOfItems - 1] = tidList.size();
+      numberOfTransactions = Math.max(numberOfTransactions, tidList.getLastTid() + 1);
+    }
+    
+    /**
+     * Starts the tid list of the next item, the tids are added with {@link #addTid(int)}.
+     * 
+     * @param item
+     *          the item, larger than the previously appended item
+     * @throws IOException
+     */
+    public void startItem(int item) throws IOException {
+      flushTids();
+      if (numberOfItems != 0 && item <= items[numberOfItems - 1]) {
+        throw new IllegalArgumentException("Items not in ascending order: " + item + " after "
+            + items[numberOfItems - 1]);
+      }
+      if (numberOfItems == items.length) {
+        items = Arrays.copyOf(items, 2 * numberOfItems);
+        supports = Arrays.copyOf(supports, 2 * numberOfItems);
+        positions = Arrays.copyOf(positions, 2 * numberOfItems);
+      }
+      items[numberOfItems] = item;
+      positions[numberOfItems] = out.getPos();
+      numberOfItems++;
+    }
+    
+    /**
+     * Adds a tid to the item started last.
+     * 
+     * @param tid
+     *          the tid, larger than the previously added tid of the item
+     */
+    public void addTid(int tid) {
+      tids.add(tid);
+    }
+    
+    /**
+     * Sets the number of transactions in the database, by default the largest tid plus one.
+     */
+    public void setNumberOfTransactions(int numberOfTransactions) {
+      this.numberOfTransactions = numberOfTransactions;
+    }
+    
+    private void flushTids() throws IOException {
+      if (tids.size() != 0) {
+        out.write(tids.getBytes(), 0, tids.getLength());
+        supports[numberOfItems - 1] = tids.size();
+        numberOfTransactions = Math.max(numberOfTransactions, tids.getLastTid() + 1);
+        tids.clear();
+      }
+    }
+    
+    /**
+     * Closes the file without writing the item index and deletes it, for when the database could not be completed. A
+     * file without an item index is never opened as a vertical database.
+     */
+    public void abort() throws IOException {
+      try {
+        out.close();
+      } finally {
+        fs.delete(path, false);
+      }
+    }
+    
+    /**
+     * Writes the item index and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+      try {
+        flushTids();
+        long indexPosition = out.getPos();
+        out.writeInt(numberOfTransactions);
+        out.writeInt(numberOfItems);
+        for (int i = 0; i < numberOfItems; i++) {
+          out.writeInt(items[i]);
+          out.writeInt(supports[i]);
+          out.writeLong(positions[i]);
+        }
+        out.writeLong(indexPosition);
+        out.writeInt(MAGIC);
+      } finally {
+        out.close();
+      }
+    }
+  }
+}
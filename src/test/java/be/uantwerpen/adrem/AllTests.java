@@ -22,26 +22,50 @@ import org.junit.runners.Suite.SuiteClasses;
 
 import be.uantwerpen.adrem.bigfim.AprioriPhaseMapperTest;
 import be.uantwerpen.adrem.bigfim.AprioriPhaseReducerTest;
+import be.uantwerpen.adrem.bigfim.CandidateTrieFileTest;
 import be.uantwerpen.adrem.bigfim.ComputeTidListMapperTest;
 import be.uantwerpen.adrem.bigfim.ComputeTidListReducerTest;
+import be.uantwerpen.adrem.bigfim.FlatCandidateTrieTest;
+import be.uantwerpen.adrem.bigfim.PrefixPartitionerTest;
+import be.uantwerpen.adrem.bigfim.TransactionTokenizerTest;
 import be.uantwerpen.adrem.eclat.EclatMinerTest;
 import be.uantwerpen.adrem.eclat.util.ItemTest;
 import be.uantwerpen.adrem.eclat.util.SplitByKTextInputFormatTest;
 import be.uantwerpen.adrem.eclat.util.TrieDumperTest;
+import be.uantwerpen.adrem.hadoop.util.CountMinSketchTest;
+import be.uantwerpen.adrem.hadoop.util.LineIndexTest;
+import be.uantwerpen.adrem.hadoop.util.TaskCacheTest;
+import be.uantwerpen.adrem.hadoop.util.TidListWritableTest;
+import be.uantwerpen.adrem.hadoop.util.TransactionWritableTest;
 import be.uantwerpen.adrem.util.DbTransposerTest;
+import be.uantwerpen.adrem.util.ItemDictionaryTest;
+import be.uantwerpen.adrem.util.ItemRecodingTest;
 import be.uantwerpen.adrem.util.ToolsTest;
+import be.uantwerpen.adrem.util.VerticalDatabaseTest;
 
 @RunWith(Suite.class)
 @SuiteClasses({
 	FPMDriversTest.class, 
 	AprioriPhaseMapperTest.class, 
 	AprioriPhaseReducerTest.class,
+	CandidateTrieFileTest.class,
 	ComputeTidListMapperTest.class, 
 	ComputeTidListReducerTest.class, 
+	FlatCandidateTrieTest.class,
+	PrefixPartitionerTest.class,
+	TransactionTokenizerTest.class,
 	EclatMinerTest.class, 
 	ItemTest.class,
 	SplitByKTextInputFormatTest.class, 
 	TrieDumperTest.class, 
+	CountMinSketchTest.class,
+	LineIndexTest.class,
+	TaskCacheTest.class,
+	TidListWritableTest.class,
+	TransactionWritableTest.class,
 	DbTransposerTest.class, 
-	ToolsTest.class})
+	ItemDictionaryTest.class,
+	ItemRecodingTest.class,
+	ToolsTest.class,
+	VerticalDatabaseTest.class})
 public class AllTests {}
@@ -16,11 +16,20 @@
  */
 package be.uantwerpen.adrem.bigfim;
 
+import static be.uantwerpen.adrem.hadoop.util.Tools.getMapperHeapBudget;
+import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Sets.newHashSet;
 import static org.easymock.EasyMock.createMock;
+import static org.junit.Assert.assertEquals;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.List;
 import java.util.Set;
 
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Mapper;
@@ -173,13 +182,83 @@ public class AprioriPhaseMapperTest extends FIMTestCase {
     EasyMock.verify(ctx);
   }
   
+  /**
+   * Writes the phase 2 candidates of one trie group, which takes every groups-th item as prefix.
+   */
+  private String createCandidateFile(int group, int groups, int items) throws Exception {
+    ItemSetTrie trie = new ItemSetTrie.SupportCountItemsetTrie(-1);
+    for (int prefix = group; prefix < items - 1; prefix += groups) {
+      for (int item = prefix + 1; item < items; item++) {
+        trie.getChild(prefix).getChild(item);
+      }
+    }
+    File file = getTestTempFile("trieGroup-" + group + CandidateTrieFile.Extension);
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    try {
+      CandidateTrieFile.write(trie, 1, true, out);
+    } finally {
+      out.close();
+    }
+    return file.getAbsolutePath();
+  }
+  
+  private List<String> createCandidateFiles(int groups, int items) throws Exception {
+    List<String> filenames = newArrayList();
+    for (int group = 0; group < groups; group++) {
+      filenames.add(createCandidateFile(group, groups, items));
+    }
+    return filenames;
+  }
+  
+  @Test
+  public void candidate_Files_Are_Estimated_As_Flat_Tries() throws Exception {
+    // prefixes 0 and 3 with 6 and 3 extensions: the root, 2 prefix nodes and 9 candidates
+    String filename = createCandidateFiles(3, 7).get(0);
+    
+    assertEquals(FlatCandidateTrie.estimateSize(3, 9), CandidateTrieFile.estimateSize(filename));
+  }
+  
+  @Test
+  public void candidate_Files_Within_Budget_Share_A_Pass() throws Exception {
+    List<String> filenames = createCandidateFiles(3, 7);
+    long budget = CandidateTrieFile.estimateSize(filenames.get(0)) + CandidateTrieFile.estimateSize(filenames.get(1));
+    
+    List<List<String>> passes = AprioriPhaseMapper.getPasses(filenames, budget);
+    
+    assertEquals(2, passes.size());
+    assertEquals(filenames.subList(0, 2), passes.get(0));
+    assertEquals(filenames.subList(2, 3), passes.get(1));
+  }
+  
+  @Test
+  public void candidate_Files_Larger_Than_Budget_Get_Own_Pass() throws Exception {
+    List<String> filenames = createCandidateFiles(3, 7);
+    
+    List<List<String>> passes = AprioriPhaseMapper.getPasses(filenames, 1);
+    
+    assertEquals(3, passes.size());
+    for (int i = 0; i < 3; i++) {
+      assertEquals(filenames.subList(i, i + 1), passes.get(i));
+    }
+  }
+  
+  @Test
+  public void phase_2_Candidates_Of_1000_Items_Take_One_Pass_With_Default_Budget() throws Exception {
+    // nearly 500,000 candidates in 4 trie groups, which took two passes when estimated as boxed trie nodes
+    List<String> filenames = createCandidateFiles(4, 1000);
+    
+    List<List<String>> passes = AprioriPhaseMapper.getPasses(filenames, getMapperHeapBudget(new Configuration(false)));
+    
+    assertEquals(1, passes.size());
+    assertEquals(filenames, passes.get(0));
+  }
+  
   public static AprioriPhaseMapper createMapper(int phase, final ItemSetTrie.SupportCountItemsetTrie trie)
       throws Exception {
     AprioriPhaseMapper mapper = new AprioriPhaseMapper();
     setField(mapper, "singletons", create_Set_1());
     setField(mapper, "phase", phase);
     setField(mapper, "countTrie", trie);
-    setField(mapper, "delimiter", " ");
     return mapper;
   }
 }
@@ -19,13 +19,22 @@ package be.uantwerpen.adrem.bigfim;
 import static be.uantwerpen.adrem.bigfim.AprioriPhaseReducer.COUNTER_GROUPNAME;
 import static be.uantwerpen.adrem.bigfim.AprioriPhaseReducer.COUNTER_NRLARGEPREFIXGROUPS;
 import static be.uantwerpen.adrem.bigfim.AprioriPhaseReducer.COUNTER_NRPREFIXGROUPS;
+import static be.uantwerpen.adrem.hadoop.util.Tools.getMapperHeapBudget;
+import static be.uantwerpen.adrem.util.FIMOptions.MAPPER_HEAP_BUDGET_KEY;
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Lists.newArrayListWithCapacity;
 import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.junit.Assert.assertEquals;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 
+import org.apache.commons.lang.mutable.MutableInt;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapred.Counters.Counter;
@@ -37,6 +46,8 @@ import org.junit.Test;
 
 import be.uantwerpen.adrem.FIMTestCase;
 
+import com.google.common.collect.Maps;
+
 public class AprioriPhaseReducerTest extends FIMTestCase {
   
   // @formatter:off
@@ -300,4 +311,115 @@ public class AprioriPhaseReducerTest extends FIMTestCase {
     
     ComputeTidListReducer.MAX_NUMBER_OF_TIDS = tmp;
   }
+  
+  private static Map<String,int[]> createFrequents(String... itemsets) {
+    Map<String,List<String>> groups = Maps.newHashMap();
+    for (String itemset : itemsets) {
+      int end = itemset.lastIndexOf(' ');
+      String prefix = itemset.substring(0, end);
+      if (!groups.containsKey(prefix)) {
+        groups.put(prefix, new ArrayList<String>());
+      }
+      groups.get(prefix).add(itemset.substring(end + 1));
+    }
+    Map<String,int[]> frequents = Maps.newHashMap();
+    for (Entry<String,List<String>> group : groups.entrySet()) {
+      AprioriPhaseReducer.addFrequents(group.getKey(), createSupports(group.getValue().toArray(new String[0])),
+          frequents);
+    }
+    return frequents;
+  }
+  
+  private static Map<String,MutableInt> createSupports(String... extensions) {
+    Map<String,MutableInt> supports = Maps.newHashMap();
+    for (String extension : extensions) {
+      supports.put(extension, new MutableInt(5));
+    }
+    return supports;
+  }
+  
+  @Test
+  public void trie_Size_Estimate_Counts_All_Nodes() {
+    assertEquals(3 * FlatCandidateTrie.BYTES_PER_NODE + FlatCandidateTrie.BYTES_PER_CANDIDATE,
+        AprioriPhaseReducer.estimateTrieSize(1, 2, 1));
+    assertEquals(FlatCandidateTrie.estimateSize(2 + 100, 4950), AprioriPhaseReducer.estimateTrieSize(2, 100, 4950));
+  }
+  
+  @Test
+  public void group_Without_Pruned_Candidates_Is_Estimated_Whole() {
+    AprioriPhaseReducer reducer = new AprioriPhaseReducer();
+    Map<String,int[]> frequents = createFrequents("1 2", "1 3", "1 4", "2 3", "2 4", "3 4");
+    assertEquals(FlatCandidateTrie.estimateSize(1 + 3, 3),
+        reducer.estimateTrieSize("1", new int[] {2, 3, 4}, frequents));
+  }
+  
+  @Test
+  public void trie_Size_Estimate_Counts_Candidates_Surviving_Pruning() {
+    AprioriPhaseReducer reducer = new AprioriPhaseReducer();
+    Map<String,int[]> frequents = createFrequents("1 2", "1 3", "1 4", "2 3", "3 4");
+    assertEquals(FlatCandidateTrie.estimateSize(1 + 3, 2),
+        reducer.estimateTrieSize("1", new int[] {2, 3, 4}, frequents));
+    
+    frequents = createFrequents("1 2 3", "1 2 4", "1 2 5", "1 3 4", "1 3 5", "2 3 4");
+    assertEquals(FlatCandidateTrie.estimateSize(2 + 3, 1),
+        reducer.estimateTrieSize("1 2", new int[] {3, 4, 5}, frequents));
+  }
+  
+  @Test
+  public void subsets_Of_Other_Reducers_Are_Assumed_Frequent() throws Exception {
+    // the prefix groups of items 1 and 3 go to reducer 1, the one of item 2 to reducer 0
+    AprioriPhaseReducer reducer = new AprioriPhaseReducer();
+    setField(reducer, "reducer", 1);
+    setField(reducer, "numberOfReducers", 2);
+    Map<String,int[]> frequents = createFrequents("1 2", "1 3", "1 4", "3 4");
+    assertEquals(FlatCandidateTrie.estimateSize(1 + 3, 3),
+        reducer.estimateTrieSize("1", new int[] {2, 3, 4}, frequents));
+    
+    frequents = createFrequents("1 2", "1 3", "1 4");
+    assertEquals(FlatCandidateTrie.estimateSize(1 + 3, 2),
+        reducer.estimateTrieSize("1", new int[] {2, 3, 4}, frequents));
+  }
+  
+  @Test
+  public void pruning_Keeps_Prefix_Groups_In_One_Trie_Group() throws Exception {
+    AprioriPhaseReducer.Context ctx = createMock(Reducer.Context.class);
+    EasyMock.expect(ctx.getCounter(COUNTER_GROUPNAME, COUNTER_NRPREFIXGROUPS))
+        .andReturn(new Counters().findCounter(COUNTER_GROUPNAME, COUNTER_NRPREFIXGROUPS)).anyTimes();
+    EasyMock.expect(ctx.getCounter(COUNTER_GROUPNAME, COUNTER_NRLARGEPREFIXGROUPS))
+        .andReturn(new Counters().findCounter(COUNTER_GROUPNAME, COUNTER_NRLARGEPREFIXGROUPS)).anyTimes();
+    
+    // without pruning the groups take 4 + 2 + 2 nodes and 3 candidates, 1 2 4 is pruned since 2 4 is infrequent
+    MultipleOutputs<Text,Text> mos = createNiceMock(MultipleOutputs.class);
+    for (String itemset : new String[] {"1 2", "1 3", "1 4", "2 3", "3 4"}) {
+      mos.write(new Text(itemset), new Text("5"), "base/tg2/trieGroup-0");
+    }
+    EasyMock.replay(ctx, mos);
+    
+    AprioriPhaseReducer reducer = createAprioriPhaseReducer(1, mos);
+    setField(reducer, "aprioriPhase", "2");
+    setField(reducer, "heapBudget", FlatCandidateTrie.estimateSize(4 + 2 + 2, 2));
+    // the prefixes arrive in descending order, such that the subsets are known before the candidates are estimated
+    reducer.reduce(new Text("3"), createList("4 5"), ctx);
+    reducer.reduce(new Text("2"), createList("3 5"), ctx);
+    reducer.reduce(new Text("1"), createList("2 5", "3 5", "4 5"), ctx);
+    reducer.cleanup(ctx);
+    
+    EasyMock.verify(ctx, mos);
+  }
+  
+  @Test
+  public void heap_Budget_Is_Derived_From_Child_Heap() {
+    Configuration conf = new Configuration(false);
+    assertEquals(50L << 20, getMapperHeapBudget(conf));
+    
+    conf.set("mapred.child.java.opts", "-server -Xmx1g");
+    conf.setInt("io.sort.mb", 200);
+    assertEquals(412L << 20, getMapperHeapBudget(conf));
+    
+    conf.set("mapred.map.child.java.opts", "-Xmx4096m");
+    assertEquals(1948L << 20, getMapperHeapBudget(conf));
+    
+    conf.setLong(MAPPER_HEAP_BUDGET_KEY, 12345);
+    assertEquals(12345, getMapperHeapBudget(conf));
+  }
 }
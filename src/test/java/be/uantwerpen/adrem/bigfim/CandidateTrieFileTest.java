@@ -0,0 +1,249 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.bigfim;
+
+import static org.junit.Assert.assertEquals;
+import static com.google.common.collect.Lists.newArrayList;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.BitSet;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+
+import be.uantwerpen.adrem.FIMTestCase;
+import be.uantwerpen.adrem.util.ItemRecoding;
+import be.uantwerpen.adrem.util.ItemSetTrie;
+
+public class CandidateTrieFileTest extends FIMTestCase {
+  
+  private static String[] trieGroup = new String[] {"1 2\t5", "1 3\t4", "1 4\t6", "2 3\t4", "2 5\t7", "4 5\t5"};
+  
+  private ItemSetTrie createAndRead(String... lines) throws Exception {
+    File in = getTestTempFile("trieGroup-0");
+    File out = getTestTempFile("trieGroup-0" + CandidateTrieFile.Extension);
+    writeLines(in, lines);
+    
+    CandidateTrieFile.create(new Configuration(), new Path(in.getAbsolutePath()), new Path(out.getAbsolutePath()),
+        null, null, null, 0);
+    
+    ItemSetTrie trie = new ItemSetTrie.SupportCountItemsetTrie(-1);
+    assertEquals(2, Tools.readCandidates(out.getAbsolutePath(), trie));
+    return trie;
+  }
+  
+  @Test
+  public void candidates_Are_Equal_To_Generated_Candidates() throws Exception {
+    ItemSetTrie trie = createAndRead(trieGroup);
+    
+    File in = getTestTempFile("trieGroup-text");
+    writeLines(in, trieGroup);
+    ItemSetTrie expected = new ItemSetTrie.SupportCountItemsetTrie(-1);
+    Tools.readCandidates(in.getAbsolutePath(), expected);
+    
+    assertEquals(expected.toString(), trie.toString());
+  }
+  
+  @Test
+  public void candidates_Are_Read() throws Exception {
+    ItemSetTrie trie = createAndRead(trieGroup);
+    
+    assertEquals(2, trie.children.size());
+    assertEquals(2, trie.children.get(1).children.size());
+    assertTrue(trie.children.get(1).children.get(2).children.containsKey(3));
+    assertTrue(trie.children.get(1).children.get(2).children.containsKey(4));
+    assertTrue(trie.children.get(1).children.get(3).children.containsKey(4));
+    assertTrue(trie.children.get(2).children.get(3).children.containsKey(5));
+  }
+  
+  @Test
+  public void no_Candidates_Keeps_Itemset_Size() throws Exception {
+    ItemSetTrie trie = createAndRead("1 2\t5", "2 3\t4");
+    
+    assertTrue(trie.children.isEmpty());
+  }
+  
+  @Test
+  public void candidates_With_Infrequent_Subsets_Are_Pruned() throws Exception {
+    String[] trieGroup = new String[] {"1 2 3\t5", "1 2 4\t4", "1 2 5\t6", "1 3 4\t4", "1 3 5\t4"};
+    String[] level = new String[] {"1 2 3\t5", "1 2 4\t4", "1 2 5\t6", "1 3 4\t4", "1 3 5\t4", "2 3 4\t3",
+        "2 3 5\t3"};
+    
+    File in = getTestTempFile("trieGroup-0");
+    File levelDir = getTestTempDir("tg3");
+    File out = getTestTempFile("trieGroup-0" + CandidateTrieFile.Extension);
+    writeLines(in, trieGroup);
+    writeLines(new File(levelDir, "trieGroup-0"), level);
+    
+    Configuration conf = new Configuration();
+    ItemSetTrie frequents = Tools.readItemSetsTrie(conf, new Path(levelDir.getAbsolutePath()));
+    assertEquals(2, CandidateTrieFile.create(conf, new Path(in.getAbsolutePath()), new Path(out.getAbsolutePath()),
+        frequents, null, null, 0));
+    
+    ItemSetTrie trie = new ItemSetTrie.SupportCountItemsetTrie(-1);
+    assertEquals(3, Tools.readCandidates(out.getAbsolutePath(), trie));
+    
+    ItemSetTrie prefix = trie.children.get(1).children.get(2);
+    assertTrue(prefix.children.get(3).children.containsKey(4));
+    assertTrue(prefix.children.get(3).children.containsKey(5));
+    assertFalse(prefix.children.containsKey(4));
+  }
+  
+  @Test
+  public void candidate_Pairs_In_Infrequent_Buckets_Are_Pruned() throws Exception {
+    File in = getTestTempFile("trieGroup-0");
+    File out = getTestTempFile("trieGroup-0" + CandidateTrieFile.Extension);
+    writeLines(in, "1\t5", "2\t4", "3\t6");
+    
+    int numberOfBuckets = 1000;
+    BitSet frequentBuckets = new BitSet(numberOfBuckets);
+    frequentBuckets.set(DhpBuckets.bucket(1, 2, numberOfBuckets));
+    DhpBuckets buckets = new DhpBuckets(numberOfBuckets, frequentBuckets);
+    assertEquals(1, CandidateTrieFile.create(new Configuration(), new Path(in.getAbsolutePath()),
+        new Path(out.getAbsolutePath()), null, buckets, null, 0));
+    
+    ItemSetTrie trie = new ItemSetTrie.SupportCountItemsetTrie(-1);
+    assertEquals(1, Tools.readCandidates(out.getAbsolutePath(), trie));
+    assertEquals(1, trie.children.size());
+    assertTrue(trie.children.get(1).children.containsKey(2));
+  }
+  
+  private int createWithLookahead(int lookaheadLimit, ItemSetTrie trie, ItemSetTrie lookahead) throws Exception {
+    File in = getTestTempFile("trieGroup-0");
+    File out = getTestTempFile("trieGroup-0" + CandidateTrieFile.Extension);
+    writeLines(in, "1 2\t5", "1 3\t4", "1 4\t6", "2 3\t4", "2 4\t7", "3 4\t5");
+    
+    assertEquals(4, CandidateTrieFile.create(new Configuration(), new Path(in.getAbsolutePath()),
+        new Path(out.getAbsolutePath()), null, null, null, lookaheadLimit));
+    assertEquals(2, Tools.readCandidates(out.getAbsolutePath(), trie));
+    return CandidateTrieFile.readLookahead(out.getAbsolutePath(), lookahead);
+  }
+  
+  @Test
+  public void lookahead_Candidates_Are_Appended_For_Small_Candidate_Sets() throws Exception {
+    ItemSetTrie trie = new ItemSetTrie.SupportCountItemsetTrie(-1);
+    ItemSetTrie lookahead = new ItemSetTrie.SupportCountItemsetTrie(-1);
+    
+    assertEquals(1, createWithLookahead(4, trie, lookahead));
+    
+    assertEquals(2, trie.children.size());
+    assertTrue(lookahead.children.get(1).children.get(2).children.get(3).children.containsKey(4));
+  }
+  
+  @Test
+  public void no_Lookahead_Candidates_For_Large_Candidate_Sets() throws Exception {
+    ItemSetTrie trie = new ItemSetTrie.SupportCountItemsetTrie(-1);
+    ItemSetTrie lookahead = new ItemSetTrie.SupportCountItemsetTrie(-1);
+    
+    assertEquals(0, createWithLookahead(3, trie, lookahead));
+    
+    assertEquals(2, trie.children.size());
+    assertTrue(lookahead.children.isEmpty());
+  }
+  
+  @Test
+  public void size_Estimate_Equals_Size_Of_Arrays_Read() throws Exception {
+    ItemSetTrie trie = new ItemSetTrie.SupportCountItemsetTrie(-1);
+    ItemSetTrie lookahead = new ItemSetTrie.SupportCountItemsetTrie(-1);
+    String out = getTestTempFile("trieGroup-0" + CandidateTrieFile.Extension).getAbsolutePath();
+    
+    createWithLookahead(3, trie, lookahead);
+    CandidateTrieFile file = CandidateTrieFile.open(out);
+    assertEquals(file.candidates.estimateSize(), CandidateTrieFile.estimateSize(out));
+    
+    createWithLookahead(4, trie, lookahead);
+    file = CandidateTrieFile.open(out);
+    assertEquals(file.candidates.estimateSize() + file.lookahead.estimateSize(), CandidateTrieFile.estimateSize(out));
+  }
+  
+  @Test
+  public void partitions_Divide_Candidates_Per_Prefix() throws Exception {
+    createAndRead(trieGroup);
+    String out = getTestTempFile("trieGroup-0" + CandidateTrieFile.Extension).getAbsolutePath();
+    
+    ItemSetTrie partition0 = new ItemSetTrie.SupportCountItemsetTrie(-1);
+    ItemSetTrie partition1 = new ItemSetTrie.SupportCountItemsetTrie(-1);
+    assertEquals(2, CandidateTrieFile.read(out, partition0, 0, 2));
+    assertEquals(2, CandidateTrieFile.read(out, partition1, 1, 2));
+    
+    assertEquals(2, partition0.children.size());
+    assertEquals(1, partition0.children.get(1).children.size());
+    assertTrue(partition0.children.get(1).children.get(2).children.containsKey(3));
+    assertTrue(partition0.children.get(1).children.get(2).children.containsKey(4));
+    assertTrue(partition0.children.get(2).children.get(3).children.containsKey(5));
+    
+    assertEquals(1, partition1.children.size());
+    assertEquals(1, partition1.children.get(1).children.size());
+    assertEquals(1, partition1.children.get(1).children.get(3).children.size());
+    assertTrue(partition1.children.get(1).children.get(3).children.containsKey(4));
+  }
+  
+  private List<String> createRecoded(ItemRecoding recoding) throws Exception {
+    File in = getTestTempFile("trieGroup-0");
+    File out = getTestTempFile("trieGroup-0" + CandidateTrieFile.Extension);
+    writeLines(in, trieGroup);
+    CandidateTrieFile.create(new Configuration(), new Path(in.getAbsolutePath()), new Path(out.getAbsolutePath()),
+        null, null, recoding, 0);
+    return newArrayList(out.getAbsolutePath());
+  }
+  
+  @Test
+  public void recoded_Candidates_Are_Written_With_Ids() throws Exception {
+    // ids 0..4 for items 4, 1, 2, 3, 5
+    ItemRecoding recoding = new ItemRecoding(new int[] {4, 1, 2, 3, 5});
+    CandidateTrieFile file = CandidateTrieFile.open(createRecoded(recoding).get(0));
+    
+    assertTrue(file.recoded);
+    assertEquals(2, file.itemsetSize);
+    assertNull(file.lookahead);
+    assertEquals(4, file.candidates.numberOfLeaves());
+    int[] hits = new int[4];
+    // 1 2 3, 1 2 4 and 1 3 4 become 1 2 3, 0 1 2 and 0 1 3
+    assertEquals(3, file.candidates.findCandidates(new int[] {0, 1, 2, 3}, 4, hits));
+    assertEquals(1, file.candidates.findCandidates(new int[] {2, 3, 4}, 3, hits));
+  }
+  
+  @Test
+  public void recoded_Candidates_Are_Counted_Without_Trie() throws Exception {
+    ItemRecoding recoding = new ItemRecoding(new int[] {4, 1, 2, 3, 5});
+    List<String> files = createRecoded(recoding);
+    File recodingFile = getTestTempFile("frequent" + ItemRecoding.Extension);
+    recoding.write(new Configuration(), new Path(recodingFile.getAbsolutePath()));
+    
+    Candidates candidates = Candidates.get(new Configuration(), files, recodingFile.getAbsolutePath(), false, 0, 1);
+    assertNull(candidates.countTrie);
+    assertEquals(3, candidates.phase);
+    assertEquals(4, candidates.candidateTrie.numberOfLeaves());
+    
+    // a partition gets arrays of its own, prefixes 0 1 and 2 3 are in partition 0 and prefix 1 2 in partition 1
+    Candidates partition = Candidates.get(new Configuration(), files, recodingFile.getAbsolutePath(), false, 0, 2);
+    assertNull(partition.countTrie);
+    assertEquals(3, partition.candidateTrie.numberOfLeaves());
+    assertEquals(2, partition.candidateTrie.findCandidates(new int[] {0, 1, 2, 3}, 4, new int[3]));
+    partition = Candidates.get(new Configuration(), files, recodingFile.getAbsolutePath(), false, 1, 2);
+    assertEquals(1, partition.candidateTrie.numberOfLeaves());
+    
+    // tid lists are still read into a trie, without recoding the ids again
+    Candidates tidLists = Candidates.get(new Configuration(), files, recodingFile.getAbsolutePath(), true, 0, 1);
+    assertTrue(tidLists.countTrie.children.get(2).children.get(3).children.containsKey(4));
+  }
+}
@@ -111,7 +111,6 @@ public class ComputeTidListMapperTest extends FIMTestCase {
     EasyMock.replay(ctx);
     
     ComputeTidListMapper mapper = new ComputeTidListMapper();
-    setField(mapper, "delimiter", " ");
     
     for (int i = 0; i < data.length; i++) {
       mapper.map(new LongWritable(i), new Text(data[i]), ctx);
@@ -214,7 +213,6 @@ public class ComputeTidListMapperTest extends FIMTestCase {
     setField(mapper, "singletons", create_Set_1());
     setField(mapper, "phase", phase);
     setField(mapper, "countTrie", trie);
-    setField(mapper, "delimiter", " ");
     return mapper;
   }
 }
@@ -0,0 +1,306 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.bigfim;
+
+import static com.google.common.collect.Sets.newTreeSet;
+import static com.google.common.collect.Lists.newArrayList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedSet;
+
+import org.junit.Test;
+
+import be.uantwerpen.adrem.util.ItemSetTrie;
+import be.uantwerpen.adrem.util.ItemSetTrie.SupportCountItemsetTrie;
+
+import com.google.common.primitives.Ints;
+
+public class FlatCandidateTrieTest {
+  
+  private static ItemSetTrie createTrie(int[]... candidates) {
+    ItemSetTrie trie = new SupportCountItemsetTrie(-1);
+    for (int[] candidate : candidates) {
+      ItemSetTrie node = trie;
+      for (int item : candidate) {
+        node = node.getChild(item);
+      }
+    }
+    return trie;
+  }
+  
+  private static ItemSetTrie createCandidates() {
+    return createTrie(new int[] {1, 2, 3}, new int[] {1, 2, 5}, new int[] {1, 3, 4}, new int[] {2, 3, 5},
+        new int[] {4, 5, 6});
+  }
+  
+  private static int[] find(FlatCandidateTrie flat, int... items) {
+    int[] hits = new int[flat.numberOfLeaves()];
+    int found = flat.findCandidates(items, items.length, hits);
+    int[] candidates = new int[found];
+    for (int i = 0; i < found; i++) {
+      ItemSetTrie leaf = flat.leaves[hits[i]];
+      candidates[i] = leaf.id;
+    }
+    return candidates;
+  }
+  
+  @Test
+  public void all_Candidates_Are_Leaves() {
+    FlatCandidateTrie flat = new FlatCandidateTrie(createCandidates());
+    
+    assertEquals(5, flat.numberOfLeaves());
+  }
+  
+  @Test
+  public void candidates_In_Transaction_Are_Found() {
+    FlatCandidateTrie flat = new FlatCandidateTrie(createCandidates());
+    
+    assertEquals(4, find(flat, 1, 2, 3, 4, 5).length);
+    assertEquals(3, find(flat, 1, 2, 3, 5).length);
+    assertEquals(1, find(flat, 4, 5, 6, 7).length);
+    assertEquals(0, find(flat, 1, 2, 4, 6).length);
+    assertEquals(0, find(flat).length);
+  }
+  
+  @Test
+  public void empty_Trie_Has_No_Candidates() {
+    FlatCandidateTrie flat = new FlatCandidateTrie(new SupportCountItemsetTrie(-1));
+    
+    assertEquals(0, flat.numberOfLeaves());
+    assertEquals(0, find(flat, 1, 2, 3).length);
+  }
+  
+  private static FlatCandidateTrie writeAndRead(FlatCandidateTrie flat) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    flat.write(out);
+    out.close();
+    return FlatCandidateTrie.read(ByteBuffer.wrap(bytes.toByteArray()).asIntBuffer());
+  }
+  
+  private static int[] count(FlatCandidateTrie flat, int[]... transactions) throws Exception {
+    CandidateCounter counter = new TrieCandidateCounter(flat);
+    for (int[] transaction : transactions) {
+      counter.add(transaction, transaction.length);
+    }
+    counter.finish();
+    int[] supports = new int[flat.numberOfLeaves()];
+    for (int leaf = 0; leaf < supports.length; leaf++) {
+      supports[leaf] = flat.getSupport(leaf);
+    }
+    return supports;
+  }
+  
+  @Test
+  public void trie_Read_From_Its_Arrays_Counts_The_Same() throws Exception {
+    int[][] transactions = new int[][] {{1, 2, 3, 4, 5}, {1, 2, 3, 5}, {4, 5, 6, 7}, {2, 3, 5}};
+    FlatCandidateTrie flat = new FlatCandidateTrie(createCandidates());
+    FlatCandidateTrie read = writeAndRead(flat);
+    
+    assertEquals(flat.numberOfLeaves(), read.numberOfLeaves());
+    assertEquals(flat.getLeafDepth(), read.getLeafDepth());
+    assertTrue(read.leaves == null);
+    assertArrayEquals(count(flat, transactions), count(read, transactions));
+    
+    read.clearSupports();
+    assertArrayEquals(new int[read.numberOfLeaves()], count(read));
+  }
+  
+  @Test
+  public void merged_Tries_Share_Prefixes() throws Exception {
+    FlatCandidateTrie first = writeAndRead(
+        new FlatCandidateTrie(createTrie(new int[] {1, 2, 3}, new int[] {1, 2, 5}, new int[] {4, 5, 6})));
+    FlatCandidateTrie second = writeAndRead(
+        new FlatCandidateTrie(createTrie(new int[] {1, 2, 4}, new int[] {1, 3, 4}, new int[] {2, 3, 5})));
+    FlatCandidateTrie merged = FlatCandidateTrie.merge(newArrayList(first, second));
+    
+    assertEquals(6, merged.numberOfLeaves());
+    assertEquals(3, merged.getLeafDepth());
+    // root, 1, 2, 4, 1 2, 1 3, 2 3, 4 5
+    assertEquals(8, merged.numberOfNodes());
+    assertEquals(3, merged.childrenEnd(0) - merged.childrenBegin(0));
+    
+    int[] hits = new int[merged.numberOfLeaves()];
+    assertEquals(5, merged.findCandidates(new int[] {1, 2, 3, 4, 5}, 5, hits));
+    assertEquals(3, merged.findCandidates(new int[] {1, 2, 3, 5}, 4, hits));
+    assertEquals(1, merged.findCandidates(new int[] {4, 5, 6}, 3, hits));
+    assertEquals(first, FlatCandidateTrie.merge(newArrayList(first)));
+  }
+  
+  @Test
+  public void parallel_Counts_Equal_Sequential_Counts() throws Exception {
+    ItemSetTrie trie = createCandidates();
+    FlatCandidateTrie flat = new FlatCandidateTrie(trie);
+    ParallelCandidateCounter counter = new ParallelCandidateCounter(flat, 3);
+    
+    int[] expected = new int[flat.numberOfLeaves()];
+    int[] hits = new int[flat.numberOfLeaves()];
+    for (int t = 0; t < 5000; t++) {
+      int[] items = new int[] {1 + t % 2, 2 + t % 3, 3 + t % 4, 5, 6 + t % 2};
+      Arrays.sort(items);
+      int found = flat.findCandidates(items, items.length, hits);
+      for (int i = 0; i < found; i++) {
+        expected[hits[i]]++;
+      }
+      counter.add(items, items.length);
+    }
+    counter.finish();
+    
+    for (int leaf = 0; leaf < expected.length; leaf++) {
+      assertEquals(expected[leaf], ((SupportCountItemsetTrie) flat.leaves[leaf]).support);
+    }
+    assertTrue(expected[0] + expected[1] + expected[2] > 0);
+  }
+  
+  @Test
+  public void failing_Worker_Is_Rethrown_Instead_Of_Blocking() throws Exception {
+    FlatCandidateTrie flat = new FlatCandidateTrie(createCandidates()) {
+      @Override
+      public int findCandidates(int[] items, int length, int[] hits) {
+        throw new StackOverflowError();
+      }
+    };
+    ParallelCandidateCounter counter = new ParallelCandidateCounter(flat, 2);
+    
+    int[] items = new int[] {1, 2, 3, 5};
+    try {
+      for (int t = 0; t < 100000; t++) {
+        counter.add(items, items.length);
+      }
+      counter.finish();
+      fail("Expected the failure of the workers");
+    } catch (IOException e) {
+      assertTrue(e.getCause() instanceof StackOverflowError);
+    }
+  }
+  
+  @Test
+  public void long_And_Short_Transactions_Find_All_Contained_Candidates() {
+    Random random = new Random(42);
+    int[][] candidates = new int[300][];
+    for (int c = 0; c < candidates.length; c++) {
+      SortedSet<Integer> candidate = newTreeSet();
+      while (candidate.size() < 3) {
+        candidate.add(random.nextInt(c < 10 ? 2000 : 40));
+      }
+      candidates[c] = Ints.toArray(candidate);
+    }
+    FlatCandidateTrie flat = new FlatCandidateTrie(createTrie(candidates));
+    int[] hits = new int[flat.numberOfLeaves()];
+    
+    for (int t = 0; t < 200; t++) {
+      SortedSet<Integer> transaction = newTreeSet();
+      int length = random.nextInt(t % 2 == 0 ? 10 : 1500);
+      while (transaction.size() < length) {
+        transaction.add(random.nextInt(2000));
+      }
+      
+      int expected = 0;
+      for (ItemSetTrie leaf : createTrie(candidates).children.values()) {
+        expected += countContained(leaf, transaction);
+      }
+      assertEquals(expected, flat.findCandidates(Ints.toArray(transaction), transaction.size(), hits));
+    }
+  }
+  
+  private static int countContained(ItemSetTrie node, SortedSet<Integer> transaction) {
+    if (!transaction.contains(node.id)) {
+      return 0;
+    }
+    if (node.children.isEmpty()) {
+      return 1;
+    }
+    int count = 0;
+    for (ItemSetTrie child : node.children.values()) {
+      count += countContained(child, transaction);
+    }
+    return count;
+  }
+  
+  private static int[] countWith(CandidateCounter counter, FlatCandidateTrie flat, List<int[]> transactions)
+      throws Exception {
+    for (int[] transaction : transactions) {
+      counter.add(transaction, transaction.length);
+    }
+    counter.finish();
+    int[] supports = new int[flat.numberOfLeaves()];
+    for (int leaf = 0; leaf < supports.length; leaf++) {
+      supports[leaf] = ((SupportCountItemsetTrie) flat.leaves[leaf]).support;
+    }
+    return supports;
+  }
+  
+  private static List<int[]> createTransactions(Random random, int count) {
+    List<int[]> transactions = newArrayList();
+    for (int t = 0; t < count; t++) {
+      SortedSet<Integer> transaction = newTreeSet();
+      int length = random.nextInt(12);
+      while (transaction.size() < length) {
+        transaction.add(random.nextInt(15));
+      }
+      transactions.add(Ints.toArray(transaction));
+      if (t % 5 == 0) {
+        transactions.add(Ints.toArray(transaction));
+      }
+    }
+    return transactions;
+  }
+  
+  @Test
+  public void sorted_Counts_Equal_Trie_Counts() throws Exception {
+    List<int[]> transactions = createTransactions(new Random(7), 2000);
+    
+    FlatCandidateTrie expected = new FlatCandidateTrie(createCandidates());
+    FlatCandidateTrie actual = new FlatCandidateTrie(createCandidates());
+    
+    assertArrayEquals(countWith(new TrieCandidateCounter(expected), expected, transactions),
+        countWith(new SortedCandidateCounter(actual), actual, transactions));
+  }
+  
+  @Test
+  public void prefixTree_Counts_Equal_Trie_Counts() throws Exception {
+    List<int[]> transactions = createTransactions(new Random(11), 2000);
+    
+    FlatCandidateTrie expected = new FlatCandidateTrie(createCandidates());
+    FlatCandidateTrie actual = new FlatCandidateTrie(createCandidates());
+    
+    assertArrayEquals(countWith(new TrieCandidateCounter(expected), expected, transactions),
+        countWith(new PrefixTreeCandidateCounter(actual), actual, transactions));
+  }
+  
+  @Test
+  public void bitmap_Counts_Equal_Trie_Counts() throws Exception {
+    // more transactions than fit in one block of bitmaps
+    List<int[]> transactions = createTransactions(new Random(13), 20000);
+    
+    FlatCandidateTrie expected = new FlatCandidateTrie(createCandidates());
+    FlatCandidateTrie actual = new FlatCandidateTrie(createCandidates());
+    
+    assertArrayEquals(countWith(new TrieCandidateCounter(expected), expected, transactions),
+        countWith(new BitmapCandidateCounter(actual), actual, transactions));
+  }
+}
@@ -0,0 +1,65 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.bigfim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+public class PrefixComparatorTest {
+  
+  private static int compare(String prefix1, String prefix2) throws IOException {
+    DataOutputBuffer out1 = new DataOutputBuffer();
+    DataOutputBuffer out2 = new DataOutputBuffer();
+    new Text(prefix1).write(out1);
+    new Text(prefix2).write(out2);
+    int raw = new PrefixComparator().compare(out1.getData(), 0, out1.getLength(), out2.getData(), 0,
+        out2.getLength());
+    assertEquals(Integer.signum(raw), Integer.signum(new PrefixComparator().compare(new Text(prefix1),
+        new Text(prefix2))));
+    return raw;
+  }
+  
+  @Test
+  public void prefixes_Are_Sorted_In_Descending_Order_Of_Items() throws IOException {
+    assertTrue(compare("2", "1") < 0);
+    assertTrue(compare("10", "9") < 0);
+    assertTrue(compare("1 10", "1 9") < 0);
+    assertTrue(compare("2 3", "1 10 11") < 0);
+    assertTrue(compare("1 2", "1") < 0);
+    assertEquals(0, compare("12 34", "12 34"));
+  }
+  
+  @Test
+  public void subsets_Come_Before_The_Prefix_Of_Their_Candidate() throws IOException {
+    // candidate 1 5 9 12 of prefix 1 5 has the subsets 5 9 12 and 1 9 12 in other prefix groups
+    assertTrue(compare("5 9", "1 5") < 0);
+    assertTrue(compare("1 9", "1 5") < 0);
+  }
+  
+  @Test
+  public void other_Keys_Are_Ordered() throws IOException {
+    assertTrue(compare("1", "") < 0);
+    assertTrue(compare("1", DhpBuckets.Key) < 0);
+    assertEquals(0, compare(DhpBuckets.Key, DhpBuckets.Key));
+  }
+}
@@ -0,0 +1,57 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.bigfim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+public class PrefixPartitionerTest {
+  
+  private static int partition(String prefix, int numPartitions) {
+    return new PrefixPartitioner().getPartition(new Text(prefix), new Text("1 1"), numPartitions);
+  }
+  
+  @Test
+  public void prefixes_With_Same_First_Item_Share_Partition() {
+    for (int item = 0; item < 100; item++) {
+      int partition = partition("" + item, 7);
+      assertEquals(partition, partition(item + " 101", 7));
+      assertEquals(partition, partition(item + " 102 103", 7));
+    }
+  }
+  
+  @Test
+  public void partitions_Are_In_Range() {
+    boolean[] used = new boolean[5];
+    for (int item = 0; item < 100; item++) {
+      int partition = partition(item + " " + (item + 1), 5);
+      assertTrue(partition >= 0 && partition < 5);
+      used[partition] = true;
+    }
+    for (boolean partitionUsed : used) {
+      assertTrue(partitionUsed);
+    }
+  }
+  
+  @Test
+  public void empty_Prefix_Has_A_Partition() {
+    assertEquals(partition("", 3), partition("", 3));
+  }
+}
@@ -0,0 +1,116 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.bigfim;
+
+import static com.google.common.collect.Sets.newHashSet;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+import be.uantwerpen.adrem.util.ItemRecoding;
+
+public class TransactionTokenizerTest {
+  
+  @Test
+  public void items_Are_Parsed_In_Ascending_Order() {
+    TransactionTokenizer tokenizer = new TransactionTokenizer();
+    
+    assertEquals(4, tokenizer.tokenize(new Text("12 3 7 100")));
+    assertArrayEquals(new int[] {3, 7, 12, 100}, tokenizer.toArray());
+  }
+  
+  @Test
+  public void whitespace_And_Punctuation_Separate_Items() {
+    TransactionTokenizer tokenizer = new TransactionTokenizer();
+    
+    tokenizer.tokenize(new Text("1,2\t3  4;5|6\r"));
+    assertArrayEquals(new int[] {1, 2, 3, 4, 5, 6}, tokenizer.toArray());
+    assertEquals(0, tokenizer.tokenize(new Text("")));
+  }
+  
+  @Test
+  public void largest_Int_Is_Parsed() {
+    TransactionTokenizer tokenizer = new TransactionTokenizer();
+    
+    tokenizer.tokenize(new Text("2147483647 0"));
+    assertArrayEquals(new int[] {0, Integer.MAX_VALUE}, tokenizer.toArray());
+  }
+  
+  @Test(expected = NumberFormatException.class)
+  public void item_Above_Int_Range_Throws() {
+    new TransactionTokenizer().tokenize(new Text("1 2147483648"));
+  }
+  
+  @Test(expected = NumberFormatException.class)
+  public void long_Item_Throws() {
+    new TransactionTokenizer().tokenize(new Text("3000000000 1"));
+  }
+  
+  @Test(expected = NumberFormatException.class)
+  public void letters_Throw() {
+    new TransactionTokenizer().tokenize(new Text("1 item12"));
+  }
+  
+  @Test(expected = NumberFormatException.class)
+  public void decimal_Point_Throws() {
+    new TransactionTokenizer().tokenize(new Text("1.5 2"));
+  }
+  
+  @Test(expected = NumberFormatException.class)
+  public void sign_Throws() {
+    new TransactionTokenizer().tokenize(new Text("2 -3"));
+  }
+  
+  @Test(expected = NumberFormatException.class)
+  public void malformed_Line_Throws_With_Singletons() {
+    new TransactionTokenizer().tokenize(new Text("4 x"), newHashSet(4));
+  }
+  
+  @Test
+  public void buffer_Grows_And_Is_Reused() {
+    TransactionTokenizer tokenizer = new TransactionTokenizer();
+    StringBuilder line = new StringBuilder();
+    for (int item = 0; item < 100; item++) {
+      line.append(item).append(' ');
+    }
+    
+    assertEquals(100, tokenizer.tokenize(new Text(line.toString())));
+    assertEquals(99, tokenizer.getItems()[99]);
+    assertEquals(2, tokenizer.tokenize(new Text("5 6")));
+    assertArrayEquals(new int[] {5, 6}, tokenizer.toArray());
+  }
+  
+  @Test
+  public void items_Are_Filtered_By_Singletons() {
+    TransactionTokenizer tokenizer = new TransactionTokenizer();
+    
+    assertEquals(2, tokenizer.tokenize(new Text("4 1 3 2"), newHashSet(1, 4)));
+    assertArrayEquals(new int[] {1, 4}, tokenizer.toArray());
+  }
+  
+  @Test
+  public void items_Are_Filtered_And_Recoded() {
+    TransactionTokenizer tokenizer = new TransactionTokenizer();
+    ItemRecoding recoding = new ItemRecoding(new int[] {7, 3, 12});
+    
+    assertEquals(3, tokenizer.tokenize(new Text("12 4 3 7 9"), recoding));
+    assertArrayEquals(new int[] {0, 1, 2}, tokenizer.toArray());
+    assertEquals(0, tokenizer.tokenize(new Text("4 9"), recoding));
+  }
+}
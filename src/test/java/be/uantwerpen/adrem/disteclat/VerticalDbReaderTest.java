@@ -0,0 +1,160 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.disteclat;
+
+import static be.uantwerpen.adrem.disteclat.DistEclatDriver.OShortFIs;
+import static be.uantwerpen.adrem.disteclat.DistEclatDriver.OSingletonsDistribution;
+import static be.uantwerpen.adrem.disteclat.DistEclatDriver.OSingletonsOrder;
+import static be.uantwerpen.adrem.disteclat.DistEclatDriver.OSingletonsTids;
+import static be.uantwerpen.adrem.disteclat.DistEclatDriver.rExt;
+import static be.uantwerpen.adrem.util.FIMOptions.MIN_SUP_KEY;
+import static be.uantwerpen.adrem.util.FIMOptions.NUMBER_OF_MAPPERS_KEY;
+import static be.uantwerpen.adrem.util.FIMOptions.OUTPUT_DIR_KEY;
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newTreeMap;
+import static java.io.File.separator;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.junit.Test;
+
+import be.uantwerpen.adrem.FIMTestCase;
+import be.uantwerpen.adrem.hadoop.util.IntMatrixWritable;
+import be.uantwerpen.adrem.util.DbTransposer;
+import be.uantwerpen.adrem.util.ItemRecoding;
+import be.uantwerpen.adrem.util.VerticalDatabase;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.google.common.primitives.Ints;
+
+public class VerticalDbReaderTest extends FIMTestCase {
+  
+  private static final int MinSup = 80;
+  private static final int NumberOfMappers = 4;
+  
+  private static String[] createTransactions() {
+    String[] transactions = new String[300];
+    for (int tid = 0; tid < transactions.length; tid++) {
+      StringBuilder transaction = new StringBuilder();
+      for (int item = 0; item < 30; item++) {
+        if ((tid * 7 + item * 13) % (item % 5 + 3) == 0 || (tid + item) % 11 == 0) {
+          transaction.append(item).append(' ');
+        }
+      }
+      transactions[tid] = transaction.toString().trim();
+    }
+    return transactions;
+  }
+  
+  private static List<String> readSortedLines(File file) throws IOException {
+    List<String> lines = newArrayList(Files.readLines(file, Charsets.UTF_8));
+    Collections.sort(lines);
+    return lines;
+  }
+  
+  private static int[] readOrder(File file) throws IOException {
+    ItemRecoding order = ItemRecoding.read(file.getAbsolutePath());
+    int[] items = new int[order.size()];
+    for (int id = 0; id < items.length; id++) {
+      items[id] = order.toItem(id);
+    }
+    return items;
+  }
+  
+  private static Map<Integer,int[][]> readTids(File file) throws IOException {
+    Configuration conf = new Configuration();
+    SequenceFile.Reader reader = new SequenceFile.Reader(FileSystem.getLocal(conf), new Path(file.getAbsolutePath()),
+        conf);
+    Map<Integer,int[][]> tids = newTreeMap();
+    try {
+      IntWritable key = new IntWritable();
+      IntMatrixWritable value = new IntMatrixWritable();
+      while (reader.next(key, value)) {
+        tids.put(key.get(), value.toIntMatrix());
+      }
+    } finally {
+      reader.close();
+    }
+    return tids;
+  }
+  
+  private static int support(int[][] tids) {
+    int support = 0;
+    for (int[] partition : tids) {
+      support += partition == null ? 0 : partition.length;
+    }
+    return support;
+  }
+  
+  @Test
+  public void vertical_Database_Gives_The_Same_Singletons_As_Item_Reading() throws Exception {
+    String[] transactions = createTransactions();
+    File input = getTestTempFile("input.txt");
+    writeLines(input, transactions);
+    
+    File horizontal = getTestTempDir("horizontal");
+    DistEclatDriver.main(new String[] {"-i", input.getAbsolutePath(), "-o", horizontal.getAbsolutePath(), "-s",
+        MinSup + "", "-p", "2", "-m", NumberOfMappers + "", "--debug", "true"});
+    File horizontalSingletons = new File(horizontal, "tmp1");
+    
+    new DbTransposer().transposeToVerticalDatabase(input.getAbsolutePath());
+    File vertical = getTestTempDir("vertical");
+    File verticalSingletons = new File(vertical, "tmp1");
+    Configuration conf = new Configuration();
+    conf.setInt(MIN_SUP_KEY, MinSup);
+    conf.setInt(NUMBER_OF_MAPPERS_KEY, NumberOfMappers);
+    conf.set(OUTPUT_DIR_KEY, vertical.getAbsolutePath());
+    int numberOfSingletons = VerticalDbReader.read(conf, new Path(getTestTempDir().getAbsolutePath() + separator
+        + "input-tids" + VerticalDatabase.Extension), new Path(verticalSingletons.getAbsolutePath()));
+    
+    int[] order = readOrder(new File(horizontalSingletons, OSingletonsOrder + rExt));
+    assertEquals(order.length, numberOfSingletons);
+    assertArrayEquals(order, readOrder(new File(verticalSingletons, OSingletonsOrder + rExt)));
+    assertEquals(readSortedLines(new File(horizontalSingletons, OSingletonsDistribution + rExt)),
+        readSortedLines(new File(verticalSingletons, OSingletonsDistribution + rExt)));
+    String shortFis = OShortFIs + separator + OShortFIs + "-1" + rExt;
+    assertEquals(readSortedLines(new File(horizontal, shortFis)), readSortedLines(new File(vertical, shortFis)));
+    
+    Map<Integer,int[][]> horizontalTids = readTids(new File(horizontalSingletons, OSingletonsTids + rExt));
+    Map<Integer,int[][]> verticalTids = readTids(new File(verticalSingletons, OSingletonsTids + rExt));
+    assertEquals(horizontalTids.keySet(), verticalTids.keySet());
+    for (int item : verticalTids.keySet()) {
+      assertEquals(NumberOfMappers, horizontalTids.get(item).length);
+      assertEquals(1, verticalTids.get(item).length);
+      assertEquals(support(horizontalTids.get(item)), support(verticalTids.get(item)));
+      List<Integer> expecteds = newArrayList();
+      for (int tid = 0; tid < transactions.length; tid++) {
+        if ((" " + transactions[tid] + " ").contains(" " + item + " ")) {
+          expecteds.add(tid);
+        }
+      }
+      assertEquals(expecteds, Ints.asList(verticalTids.get(item)[0]));
+    }
+  }
+}
@@ -20,24 +20,39 @@ import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Lists.newArrayListWithCapacity;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static be.uantwerpen.adrem.util.FIMOptions.NUMBER_OF_LINES_KEY;
 
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.apache.hadoop.io.compress.bzip2.CBZip2OutputStream;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.mapreduce.lib.input.FileSplit;
 import org.easymock.EasyMock;
 import org.junit.Test;
 
+import be.uantwerpen.adrem.hadoop.util.ChunkedSplit;
+import be.uantwerpen.adrem.hadoop.util.LineIndex;
 import be.uantwerpen.adrem.hadoop.util.SplitByKTextInputFormat;
 
 public class SplitByKTextInputFormatTest {
@@ -61,6 +76,61 @@ public class SplitByKTextInputFormatTest {
     return in;
   }
   
+  private static File createTmpDir(String dirName) throws IOException {
+    File dir = File.createTempFile(dirName, "");
+    dir.delete();
+    dir.mkdir();
+    dir.deleteOnExit();
+    return dir;
+  }
+  
+  /**
+   * Writes the numbers from begin to end as lines to a file in a directory, compressed if the extension asks for it.
+   */
+  private static void writeNumbers(File dir, String fileName, int begin, int end) throws IOException {
+    File file = new File(dir, fileName);
+    file.deleteOnExit();
+    OutputStream out = new FileOutputStream(file);
+    if (fileName.endsWith(".gz")) {
+      out = new GZIPOutputStream(out);
+    } else if (fileName.endsWith(".bz2")) {
+      out.write("BZ".getBytes());
+      out = new CBZip2OutputStream(out, 1);
+    }
+    BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out));
+    for (int i = begin; i < end; i++) {
+      writer.write(i + "\n");
+    }
+    writer.close();
+  }
+  
+  private static List<InputSplit> getSplits(Configuration conf, File dir, int numberOfSplits) throws IOException {
+    conf.setInt(SplitByKTextInputFormat.NUMBER_OF_CHUNKS, numberOfSplits);
+    Job job = new Job(conf);
+    FileInputFormat.setInputPaths(job, new Path(dir.getAbsolutePath()));
+    return new SplitByKTextInputFormat().getSplits(job);
+  }
+  
+  /**
+   * Reads the numbers of a split and marks them as read, a number that is read twice fails the test.
+   * 
+   * @return the number of lines read
+   */
+  private static int readNumbers(Configuration conf, InputSplit split, BitSet read) throws Exception {
+    TaskAttemptContext context = new TaskAttemptContext(conf, new TaskAttemptID());
+    RecordReader<?,?> reader = new SplitByKTextInputFormat().createRecordReader(split, context);
+    reader.initialize(split, context);
+    int lines = 0;
+    while (reader.nextKeyValue()) {
+      int number = Integer.parseInt(reader.getCurrentValue().toString());
+      assertTrue("Number <" + number + "> read twice.", !read.get(number));
+      read.set(number);
+      lines++;
+    }
+    reader.close();
+    return lines;
+  }
+  
   private Configuration createConfiguration(int... numberOfLines) {
     Configuration conf = new Configuration();
     if (numberOfLines.length > 0) {
@@ -214,4 +284,126 @@ public class SplitByKTextInputFormatTest {
     
     checkSplits(expected, splits);
   }
+  
+  @Test
+  public void splits_Are_Balanced_Over_Files() throws Exception {
+    File dir = createTmpDir("in_Splits_Are_Balanced_Over_Files");
+    writeNumbers(dir, "a.txt", 0, 3);
+    writeNumbers(dir, "b.txt", 3, 8);
+    Configuration conf = createConfiguration();
+    
+    List<InputSplit> splits = getSplits(conf, dir, 2);
+    
+    assertEquals(2, splits.size());
+    assertEquals(2, ChunkedSplit.getChunks((FileSplit) splits.get(0)).size());
+    assertEquals(1, ChunkedSplit.getChunks((FileSplit) splits.get(1)).size());
+    BitSet read = new BitSet();
+    assertEquals(4, readNumbers(conf, splits.get(0), read));
+    assertEquals(4, readNumbers(conf, splits.get(1), read));
+    assertEquals(8, read.cardinality());
+  }
+  
+  @Test
+  public void splits_Never_Exceed_Number_Of_Splits() throws Exception {
+    File dir = createTmpDir("in_Splits_Never_Exceed_Number_Of_Splits");
+    writeNumbers(dir, "a.txt", 0, 10);
+    writeNumbers(dir, "b.txt", 10, 20);
+    writeNumbers(dir, "c.txt", 20, 30);
+    Configuration conf = createConfiguration(5);
+    
+    List<InputSplit> splits = getSplits(conf, dir, 3);
+    
+    assertEquals(3, splits.size());
+    BitSet read = new BitSet();
+    for (InputSplit split : splits) {
+      readNumbers(conf, split, read);
+    }
+    assertEquals(30, read.cardinality());
+  }
+  
+  @Test
+  public void gzip_Files_Are_Not_Cut() throws Exception {
+    File dir = createTmpDir("in_Gzip_Files_Are_Not_Cut");
+    writeNumbers(dir, "a.txt.gz", 0, 6);
+    writeNumbers(dir, "b.txt.gz", 6, 12);
+    Configuration conf = createConfiguration();
+    
+    List<InputSplit> splits = getSplits(conf, dir, 4);
+    
+    assertEquals(2, splits.size());
+    BitSet read = new BitSet();
+    assertEquals(6, readNumbers(conf, splits.get(0), read));
+    assertEquals(6, readNumbers(conf, splits.get(1), read));
+    assertEquals(12, read.cardinality());
+  }
+  
+  @Test
+  public void bzip2_Files_Are_Cut_At_Blocks() throws Exception {
+    File dir = createTmpDir("in_Bzip2_Files_Are_Cut_At_Blocks");
+    writeNumbers(dir, "a.txt.bz2", 0, 60000);
+    Configuration conf = createConfiguration();
+    
+    List<InputSplit> splits = getSplits(conf, dir, 2);
+    
+    assertEquals(2, splits.size());
+    BitSet read = new BitSet();
+    int lines = readNumbers(conf, splits.get(0), read);
+    assertTrue("Expected a cut near the middle, but got <" + lines + "> lines.", lines >= 30000 && lines < 60000);
+    readNumbers(conf, splits.get(1), read);
+    assertEquals(60000, read.cardinality());
+  }
+  
+  @Test
+  public void splits_Are_Cut_Between_Index_Entries() throws Exception {
+    File dir = createTmpDir("in_Splits_Are_Cut_Between_Index_Entries");
+    writeNumbers(dir, "a.txt", 0, 10000);
+    Configuration conf = createConfiguration();
+    
+    List<InputSplit> splits = getSplits(conf, dir, 3);
+    
+    assertEquals(3, splits.size());
+    BitSet read = new BitSet();
+    assertEquals(3334, readNumbers(conf, splits.get(0), read));
+    assertEquals(3333, readNumbers(conf, splits.get(1), read));
+    assertEquals(3333, readNumbers(conf, splits.get(2), read));
+  }
+  
+  @Test
+  public void line_Index_Is_Kept_Next_To_Input() throws Exception {
+    File dir = createTmpDir("in_Line_Index_Is_Kept_Next_To_Input");
+    writeNumbers(dir, "a.txt", 0, 5000);
+    Configuration conf = createConfiguration();
+    conf.setBoolean(SplitByKTextInputFormat.LINE_INDEX_KEY, true);
+    
+    List<InputSplit> splits = getSplits(conf, dir, 2);
+    File indexFile = new File(LineIndex.getIndexFile(new Path(new File(dir, "a.txt").getAbsolutePath())).toString());
+    indexFile.deleteOnExit();
+    assertTrue(indexFile.exists());
+    List<InputSplit> indexedSplits = getSplits(conf, dir, 2);
+    
+    assertEquals(2, indexedSplits.size());
+    for (int i = 0; i < splits.size(); i++) {
+      assertEquals(((FileSplit) splits.get(i)).getStart(), ((FileSplit) indexedSplits.get(i)).getStart());
+      assertEquals(splits.get(i).getLength(), indexedSplits.get(i).getLength());
+    }
+  }
+  
+  @Test
+  public void splits_By_Bytes_Read_Every_Line_Once() throws Exception {
+    File dir = createTmpDir("in_Splits_By_Bytes_Read_Every_Line_Once");
+    writeNumbers(dir, "a.txt", 0, 1000);
+    writeNumbers(dir, "b.txt", 1000, 1500);
+    writeNumbers(dir, "c.txt.gz", 1500, 1600);
+    Configuration conf = createConfiguration();
+    conf.set(SplitByKTextInputFormat.SPLIT_MODE_KEY, SplitByKTextInputFormat.ByBytes);
+    
+    List<InputSplit> splits = getSplits(conf, dir, 3);
+    
+    assertEquals(3, splits.size());
+    BitSet read = new BitSet();
+    for (InputSplit split : splits) {
+      readNumbers(conf, split, read);
+    }
+    assertEquals(1600, read.cardinality());
+  }
 }
@@ -18,13 +18,18 @@ package be.uantwerpen.adrem.eclat.util;
 
 import static org.junit.Assert.assertArrayEquals;
 
+import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.StringReader;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import be.uantwerpen.adrem.util.ItemDictionary;
+
 public class TrieDumperTest {
   
   private OutputStream out;
@@ -33,6 +38,7 @@ public class TrieDumperTest {
   public void setUp() {
     out = new ByteArrayOutputStream();
     TrieDumper.out = new PrintStream(out, true);
+    TrieDumper.dictionary = null;
   }
   
   @Test
@@ -65,6 +71,18 @@ public class TrieDumperTest {
     assertArrayEquals(expecteds, actuals);
   }
   
+  @Test
+  public void items_Are_Decoded_With_The_Dictionary() throws IOException {
+    ItemDictionary dictionary = ItemDictionary.byDescendingSupport(new String[] {"b", "a|x", "c"},
+        new int[] {5, 7, 3});
+    BufferedReader reader = new BufferedReader(new StringReader("1\t0|1(5)$2(3)\n1\t2(3)"));
+    TrieDumper.printAsSets(reader, new PrintStream(out, true), dictionary);
+    
+    final String[] expecteds = new String[] {"a|x b (5)", "a|x c (3)", "c (3)"};
+    
+    assertArrayEquals(expecteds, out.toString().split("\n"));
+  }
+  
   private String[] getPrintOut(String str) {
     TrieDumper.printAsSets(str);
     
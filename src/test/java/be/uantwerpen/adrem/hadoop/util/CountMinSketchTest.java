@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.hadoop.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+import org.junit.Test;
+
+public class CountMinSketchTest {
+  
+  private static CountMinSketch createSketch(int width, int... items) {
+    CountMinSketch sketch = new CountMinSketch(width, 4);
+    for (int item : items) {
+      sketch.add(item);
+    }
+    return sketch;
+  }
+  
+  @Test
+  public void estimates_Are_Never_Below_Counts() {
+    CountMinSketch sketch = new CountMinSketch(16, 4);
+    for (int item = 0; item < 200; item++) {
+      for (int i = 0; i < item % 7; i++) {
+        sketch.add(item);
+      }
+    }
+    for (int item = 0; item < 200; item++) {
+      assertTrue(sketch.estimate(item) >= item % 7);
+    }
+  }
+  
+  @Test
+  public void estimates_Are_Exact_Without_Collisions() {
+    CountMinSketch sketch = createSketch(100000, 1, 2, 2, 3, 3, 3);
+    
+    assertEquals(1, sketch.estimate(1));
+    assertEquals(2, sketch.estimate(2));
+    assertEquals(3, sketch.estimate(3));
+    assertEquals(0, sketch.estimate(4));
+  }
+  
+  @Test
+  public void merged_Sketch_Adds_Counts() {
+    CountMinSketch sketch = createSketch(100000, 1, 2);
+    sketch.merge(createSketch(100000, 2, 3));
+    
+    assertEquals(1, sketch.estimate(1));
+    assertEquals(2, sketch.estimate(2));
+    assertEquals(1, sketch.estimate(3));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void merge_Different_Dimensions_Fails() {
+    createSketch(10, 1).merge(createSketch(20, 1));
+  }
+  
+  @Test
+  public void sketch_Survives_Serialization() throws Exception {
+    CountMinSketch sketch = createSketch(1000, 5, 5, 7);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    sketch.write(new DataOutputStream(bytes));
+    
+    CountMinSketch read = new CountMinSketch();
+    read.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    
+    assertEquals(2, read.estimate(5));
+    assertEquals(1, read.estimate(7));
+  }
+}
@@ -0,0 +1,141 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.hadoop.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.bzip2.CBZip2OutputStream;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.lib.input.LineRecordReader;
+import org.junit.Test;
+
+public class LineIndexTest {
+  
+  private static File createTmpFile(int numberOfLines) throws IOException {
+    File file = File.createTempFile("in_LineIndex", ".txt");
+    file.deleteOnExit();
+    BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+    for (int i = 0; i < numberOfLines; i++) {
+      writer.write("1 2 3\n");
+    }
+    writer.close();
+    return file;
+  }
+  
+  @Test
+  public void text_Files_Have_An_Entry_Every_Stride() throws IOException {
+    File file = createTmpFile(2 * LineIndex.Stride + 5);
+    
+    LineIndex index = LineIndex.create(new Configuration(), new Path(file.getAbsolutePath()));
+    
+    assertEquals(2 * LineIndex.Stride + 5, index.getNumberOfLines());
+    assertEquals(file.length(), index.getFileLength());
+    assertEquals(LineIndex.Stride, index.getLines(0));
+    assertEquals(6L * LineIndex.Stride, index.getPosition(0));
+    assertEquals(2L * LineIndex.Stride, index.getLines(1));
+  }
+  
+  @Test
+  public void entries_Are_Found_Around_A_Line() throws IOException {
+    File file = createTmpFile(2 * LineIndex.Stride + 5);
+    
+    LineIndex index = LineIndex.create(new Configuration(), new Path(file.getAbsolutePath()));
+    
+    assertEquals(-1, index.floorEntry(LineIndex.Stride - 1));
+    assertEquals(0, index.floorEntry(LineIndex.Stride));
+    assertEquals(0, index.floorEntry(LineIndex.Stride + 1));
+    assertEquals(0, index.ceilingEntry(1));
+    assertEquals(1, index.ceilingEntry(LineIndex.Stride + 1));
+    assertEquals(-1, index.ceilingEntry(2 * LineIndex.Stride + 1));
+  }
+  
+  /**
+   * Writes a bzip2 file with blocks of 100k, such that it spans several blocks.
+   */
+  private static File createBzip2File(int numberOfLines) throws IOException {
+    File file = File.createTempFile("in_LineIndex", ".bz2");
+    file.deleteOnExit();
+    FileOutputStream out = new FileOutputStream(file);
+    out.write(new byte[] {'B', 'Z'});
+    BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new CBZip2OutputStream(out, 1)));
+    for (int i = 0; i < numberOfLines; i++) {
+      writer.write(i + " " + (i * 7919 % 10007) + " " + (i * 104729 % 1000003) + "\n");
+    }
+    writer.close();
+    return file;
+  }
+  
+  private static long countLines(Configuration conf, Path path, long start, long end) throws Exception {
+    LineRecordReader reader = new LineRecordReader();
+    reader.initialize(new FileSplit(path, start, end - start, new String[] {}),
+        new TaskAttemptContext(conf, new TaskAttemptID()));
+    long lines = 0;
+    while (reader.nextKeyValue()) {
+      lines++;
+    }
+    reader.close();
+    return lines;
+  }
+  
+  @Test
+  public void block_Compressed_Entries_Give_The_Lines_Of_The_Chunks_Before_Them() throws Exception {
+    // blocks of 100k hold about 5500 lines, the line reader refills its buffer several times per block
+    File file = createBzip2File(60000);
+    Path path = new Path(file.getAbsolutePath());
+    Configuration conf = new Configuration();
+    
+    LineIndex index = LineIndex.create(conf, path);
+    
+    assertEquals(60000, index.getNumberOfLines());
+    assertTrue(index.floorEntry(60000) >= 8);
+    long begin = 0;
+    long lines = 0;
+    for (int entry = 0; entry <= index.floorEntry(60000); entry++) {
+      lines += countLines(conf, path, begin, index.getPosition(entry));
+      assertEquals(index.getLines(entry), lines);
+      begin = index.getPosition(entry);
+    }
+    assertEquals(60000 - lines, countLines(conf, path, begin, file.length()));
+  }
+  
+  @Test
+  public void index_Of_Changed_File_Is_Built_Again() throws IOException {
+    File file = createTmpFile(10);
+    Path path = new Path(file.getAbsolutePath());
+    new File(LineIndex.getIndexFile(path).toString()).deleteOnExit();
+    Configuration conf = new Configuration();
+    
+    assertEquals(10, LineIndex.get(conf, path).getNumberOfLines());
+    assertEquals(10, LineIndex.get(conf, path).getNumberOfLines());
+    BufferedWriter writer = new BufferedWriter(new FileWriter(file, true));
+    writer.write("4 5\n");
+    writer.close();
+    assertEquals(11, LineIndex.get(conf, path).getNumberOfLines());
+  }
+}
@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.hadoop.util;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Test;
+
+public class TaskCacheTest {
+  
+  private static class CountingLoader implements TaskCache.Loader<Object> {
+    int loads = 0;
+    
+    @Override
+    public Object load() {
+      loads++;
+      return new Object();
+    }
+    
+    @Override
+    public long estimateSize(Object value) {
+      return 1024;
+    }
+  }
+  
+  private static List<String> createFile() throws IOException {
+    File file = File.createTempFile("taskcache", ".txt");
+    file.deleteOnExit();
+    return singletonList(file.getAbsolutePath());
+  }
+  
+  @Test
+  public void same_Files_Are_Loaded_Once() throws IOException {
+    Configuration conf = new Configuration();
+    List<String> files = createFile();
+    CountingLoader loader = new CountingLoader();
+    
+    Object value = TaskCache.get(conf, "test", files, loader);
+    assertTrue(value == TaskCache.get(conf, "test", files, loader));
+    assertEquals(1, loader.loads);
+  }
+  
+  @Test
+  public void different_Kinds_Are_Loaded_Separately() throws IOException {
+    Configuration conf = new Configuration();
+    List<String> files = createFile();
+    CountingLoader loader = new CountingLoader();
+    
+    Object value = TaskCache.get(conf, "test", files, loader);
+    assertTrue(value != TaskCache.get(conf, "other", files, loader));
+    assertEquals(2, loader.loads);
+  }
+  
+  @Test
+  public void modified_Files_Are_Reloaded() throws IOException {
+    Configuration conf = new Configuration();
+    List<String> files = createFile();
+    CountingLoader loader = new CountingLoader();
+    
+    Object value = TaskCache.get(conf, "test", files, loader);
+    File file = new File(files.get(0));
+    file.setLastModified(file.lastModified() - 10000);
+    assertTrue(value != TaskCache.get(conf, "test", files, loader));
+    assertEquals(2, loader.loads);
+  }
+}
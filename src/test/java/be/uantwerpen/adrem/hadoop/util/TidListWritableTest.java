@@ -0,0 +1,81 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.hadoop.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class TidListWritableTest {
+  
+  private static TidListWritable of(int chunk, int... tids) {
+    TidListWritable list = new TidListWritable(chunk);
+    for (int tid : tids) {
+      list.add(tid);
+    }
+    return list;
+  }
+  
+  @Test
+  public void duplicate_Tids_Are_Added_Once() {
+    TidListWritable list = of(0, 0, 3, 3, 200, 70000, 70000);
+    
+    assertEquals(4, list.size());
+    assertEquals(0, list.getFirstTid());
+    assertEquals(70000, list.getLastTid());
+    assertArrayEquals(new int[] {0, 3, 200, 70000}, list.toArray());
+  }
+  
+  @Test
+  public void appended_Lists_Are_Shifted() {
+    TidListWritable list = of(0, 1, 4);
+    list.append(of(1, 0, 2, 300), 10);
+    list.append(of(2), 20);
+    list.append(of(3, 5), 320);
+    
+    assertEquals(6, list.size());
+    assertEquals(325, list.getLastTid());
+    assertArrayEquals(new int[] {1, 4, 10, 12, 310, 325}, list.toArray());
+  }
+  
+  @Test
+  public void list_Survives_Serialization() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    of(7, 2, 130, 131).write(out);
+    out.close();
+    
+    TidListWritable list = of(0, 1, 2, 3, 4, 5, 6);
+    list.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    assertEquals(7, list.getChunk());
+    assertArrayEquals(new int[] {2, 130, 131}, list.toArray());
+  }
+  
+  @Test
+  public void lists_Are_Ordered_On_Chunk_And_First_Tid() {
+    assertEquals(-1, TidListWritable.ChunkOrder.compare(of(0, 50), of(1, 0)));
+    assertEquals(1, TidListWritable.ChunkOrder.compare(of(1, 50), of(1, 10, 20)));
+    assertEquals(0, TidListWritable.ChunkOrder.compare(of(2, 5), of(2, 5, 6)));
+  }
+}
@@ -0,0 +1,82 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.hadoop.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class TransactionWritableTest {
+  
+  private static byte[] write(TransactionWritable... transactions) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    for (TransactionWritable transaction : transactions) {
+      transaction.write(out);
+    }
+    out.close();
+    return bytes.toByteArray();
+  }
+  
+  @Test
+  public void transaction_Survives_Serialization() throws IOException {
+    byte[] bytes = write(new TransactionWritable(new int[] {0, 3, 4, 200, 70000, 9}, 5));
+    
+    TransactionWritable transaction = new TransactionWritable();
+    transaction.readFields(new DataInputStream(new ByteArrayInputStream(bytes)));
+    assertEquals(5, transaction.getLength());
+    assertArrayEquals(new int[] {0, 3, 4, 200, 70000}, Arrays.copyOf(transaction.getItems(), 5));
+  }
+  
+  @Test
+  public void dense_Ids_Take_One_Byte() throws IOException {
+    byte[] bytes = write(new TransactionWritable(new int[] {1, 2, 5, 9, 100}, 5));
+    
+    assertEquals(6, bytes.length);
+  }
+  
+  @Test
+  public void buffer_Is_Reused_And_Grown() throws IOException {
+    int[] large = new int[40];
+    for (int i = 0; i < large.length; i++) {
+      large[i] = 3 * i;
+    }
+    byte[] bytes = write(new TransactionWritable(new int[] {4, 8}, 2), new TransactionWritable(large, 40),
+        new TransactionWritable(new int[0], 0));
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+    
+    TransactionWritable transaction = new TransactionWritable();
+    transaction.readFields(in);
+    assertArrayEquals(new int[] {4, 8}, Arrays.copyOf(transaction.getItems(), 2));
+    transaction.readFields(in);
+    assertEquals(40, transaction.getLength());
+    assertArrayEquals(large, Arrays.copyOf(transaction.getItems(), 40));
+    int[] items = transaction.getItems();
+    transaction.readFields(in);
+    assertEquals(0, transaction.getLength());
+    assertTrue(items == transaction.getItems());
+  }
+}
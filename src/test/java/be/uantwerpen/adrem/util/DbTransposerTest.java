@@ -16,20 +16,29 @@
  */
 package be.uantwerpen.adrem.util;
 
+import static com.google.common.collect.Lists.newArrayList;
+
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.List;
 
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
 import org.easymock.EasyMock;
 import org.junit.Assert;
 import org.junit.Test;
 
 import be.uantwerpen.adrem.util.DbTransposer;
 
+import com.google.common.base.Joiner;
+import com.google.common.primitives.Ints;
+
 public class DbTransposerTest {
   
   private static String[] empty = new String[] {};
@@ -64,6 +73,18 @@ public class DbTransposerTest {
       Assert.assertEquals(output[i++], line);
     }
     reader.close();
+    Assert.assertEquals(output.length, i);
+  }
+  
+  private String[] readLines(File file) throws IOException {
+    List<String> lines = newArrayList();
+    BufferedReader reader = new BufferedReader(new FileReader(file));
+    String line;
+    while ((line = reader.readLine()) != null) {
+      lines.add(line);
+    }
+    reader.close();
+    return lines.toArray(new String[lines.size()]);
   }
   
   @Test
@@ -111,6 +132,151 @@ public class DbTransposerTest {
     checkResult(out, outputNonEmpty);
   }
   
+  @Test
+  public void spilled_Chunks_Write_The_Same() throws IOException {
+    File in = File.createTempFile("in_Spilled_Chunks_Write_The_Same", ".txt");
+    File out = new File(getTidsFileName(in.getAbsolutePath()));
+    in.deleteOnExit();
+    out.deleteOnExit();
+    
+    writeToFile(in, nonEmptyWithDuplicates);
+    
+    DbTransposer transposer = new DbTransposer();
+    transposer.setNumberOfThreads(3);
+    transposer.setChunkSize(7);
+    transposer.setMemoryBudget(1);
+    transposer.transpose(in.getAbsolutePath());
+    
+    checkResult(out, outputNonEmpty);
+    Assert.assertEquals(0, in.getParentFile().listFiles(new FilenameFilter() {
+      @Override
+      public boolean accept(File dir, String name) {
+        return name.startsWith("transpose") && name.endsWith(".run");
+      }
+    }).length);
+  }
+  
+  @Test
+  public void tiny_Memory_Budget_Spills_And_Writes_The_Same() throws IOException {
+    File in = File.createTempFile("in_Tiny_Memory_Budget_Spills_And_Writes_The_Same", ".txt");
+    File out = new File(getTidsFileName(in.getAbsolutePath()));
+    in.deleteOnExit();
+    out.deleteOnExit();
+    
+    String[] lines = new String[2000];
+    for (int tid = 0; tid < lines.length; tid++) {
+      StringBuilder line = new StringBuilder();
+      for (int item = 0; item < 50; item++) {
+        if ((tid * 31 + item * 17) % (item % 7 + 2) == 0) {
+          line.append(item).append(' ');
+        }
+      }
+      lines[tid] = line.toString().trim();
+    }
+    writeToFile(in, lines);
+    
+    DbTransposer transposer = new DbTransposer();
+    transposer.transpose(in.getAbsolutePath());
+    Assert.assertEquals(0, transposer.getNumberOfSpilledRuns());
+    String[] expecteds = readLines(out);
+    out.delete();
+    
+    transposer = new DbTransposer();
+    transposer.setNumberOfThreads(2);
+    transposer.setChunkSize(in.length() / 4);
+    // every chunk can hold the tid lists of a few items only
+    transposer.setMemoryBudget(4096);
+    transposer.transpose(in.getAbsolutePath());
+    Assert.assertTrue(transposer.getNumberOfSpilledRuns() > 100);
+    
+    checkResult(out, expecteds);
+  }
+  
+  @Test
+  public void main_Rejects_Items_Per_Iteration() throws IOException {
+    File in = File.createTempFile("in_Main_Rejects_Items_Per_Iteration", ".txt");
+    File out = new File(getTidsFileName(in.getAbsolutePath()));
+    in.deleteOnExit();
+    out.deleteOnExit();
+    
+    writeToFile(in, nonEmptyNoDuplicates);
+    
+    DbTransposer.main(new String[] {in.getAbsolutePath(), "1000"});
+    Assert.assertFalse(out.exists());
+    DbTransposer.main(new String[] {in.getAbsolutePath(), "--memory", "1", "--chunks", "1"});
+    Assert.assertFalse(out.exists());
+    
+    DbTransposer.main(new String[] {in.getAbsolutePath(), "--memory", "1", "--chunk", "1"});
+    checkResult(out, outputNonEmpty);
+  }
+  
+  @Test
+  public void binary_Output_Has_Item_Index() throws IOException {
+    File in = File.createTempFile("in_Binary_Output_Has_Item_Index", ".txt");
+    String name = in.getAbsolutePath();
+    File out = new File(name.substring(0, name.lastIndexOf('.')) + "-tids" + VerticalDatabase.Extension);
+    in.deleteOnExit();
+    out.deleteOnExit();
+    
+    writeToFile(in, nonEmptyWithDuplicates);
+    
+    DbTransposer transposer = new DbTransposer();
+    transposer.transposeToVerticalDatabase(name);
+    
+    VerticalDatabase db = VerticalDatabase.open(new Configuration(), new Path(out.getAbsolutePath()));
+    try {
+      Assert.assertEquals(4, db.getNumberOfTransactions());
+      Assert.assertEquals(outputNonEmpty.length, db.getNumberOfItems());
+      for (int ix = 0; ix < outputNonEmpty.length; ix++) {
+        String[] split = outputNonEmpty[ix].split("\t");
+        Assert.assertEquals(Integer.parseInt(split[0]), db.getItem(ix));
+        Assert.assertEquals(split[1], Joiner.on(' ').join(Ints.asList(db.readTids(ix))));
+      }
+    } finally {
+      db.close();
+    }
+  }
+  
+  @Test
+  public void item_Above_Int_Range_Fails_Without_Output() throws IOException {
+    File in = File.createTempFile("in_Item_Above_Int_Range_Fails_Without_Output", ".txt");
+    File out = new File(getTidsFileName(in.getAbsolutePath()));
+    in.deleteOnExit();
+    out.deleteOnExit();
+    
+    writeToFile(in, new String[] {"1 2", "3000000000 1"});
+    
+    DbTransposer transposer = new DbTransposer();
+    try {
+      transposer.transpose(in.getAbsolutePath());
+      Assert.fail("Item 3000000000 does not fit in an int");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getCause() instanceof NumberFormatException);
+    }
+    Assert.assertFalse(out.exists());
+  }
+  
+  @Test
+  public void failed_Binary_Transpose_Leaves_No_Vertical_Database() throws IOException {
+    File in = File.createTempFile("in_Failed_Binary_Transpose_Leaves_No_Vertical_Database", ".txt");
+    String name = in.getAbsolutePath();
+    File out = new File(name.substring(0, name.lastIndexOf('.')) + "-tids" + VerticalDatabase.Extension);
+    in.deleteOnExit();
+    out.deleteOnExit();
+    
+    writeToFile(in, new String[] {"1 2", "3000000000 1", "2 4"});
+    
+    DbTransposer transposer = new DbTransposer();
+    transposer.setChunkSize(4);
+    try {
+      transposer.transposeToVerticalDatabase(name);
+      Assert.fail("Item 3000000000 does not fit in an int");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getCause() instanceof NumberFormatException);
+    }
+    Assert.assertFalse(out.exists());
+  }
+  
   @Test
   public void existing_Output_File_Prints_Error() throws IOException {
     PrintStream ps = EasyMock.createMock(PrintStream.class);
@@ -0,0 +1,64 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+
+public class ItemDictionaryTest {
+  
+  @Test
+  public void ids_Are_In_Descending_Support() {
+    ItemDictionary dictionary = ItemDictionary.byDescendingSupport(new String[] {"pear", "milk", "apple", "bread"},
+        new int[] {2, 9, 4, 4});
+    
+    assertEquals(0, dictionary.toId("milk"));
+    assertEquals(1, dictionary.toId("apple"));
+    assertEquals(2, dictionary.toId("bread"));
+    assertEquals(3, dictionary.toId("pear"));
+    assertEquals("bread", dictionary.toItem(2));
+  }
+  
+  @Test
+  public void unknown_Items_Have_No_Id() {
+    ItemDictionary dictionary = new ItemDictionary(new String[] {"milk", "apple"});
+    
+    assertEquals(-1, dictionary.toId("pear"));
+    assertEquals(-1, dictionary.toId(""));
+    assertEquals(-1, dictionary.toId("Milk"));
+  }
+  
+  @Test
+  public void dictionary_Survives_File() throws IOException {
+    File file = File.createTempFile("items", ItemDictionary.Extension);
+    file.deleteOnExit();
+    new ItemDictionary(new String[] {"milk", "apple", "pear"}).write(new Configuration(),
+        new Path(file.getAbsolutePath()));
+    
+    ItemDictionary dictionary = ItemDictionary.read(new Configuration(), new Path(file.getAbsolutePath()));
+    assertEquals(3, dictionary.size());
+    assertEquals("milk", dictionary.toItem(0));
+    assertEquals("pear", dictionary.toItem(2));
+    assertEquals(1, dictionary.toId("apple"));
+  }
+}
@@ -0,0 +1,80 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+
+public class ItemRecodingTest {
+  
+  @Test
+  public void ids_Are_In_Ascending_Support() {
+    ItemRecoding recoding = ItemRecoding.byAscendingSupport(new int[] {7, 3, 12, 5}, new int[] {9, 4, 4, 6});
+    
+    assertEquals(0, recoding.toId(3));
+    assertEquals(1, recoding.toId(12));
+    assertEquals(2, recoding.toId(5));
+    assertEquals(3, recoding.toId(7));
+    assertEquals(12, recoding.toItem(1));
+  }
+  
+  @Test
+  public void infrequent_Items_Have_No_Id() {
+    ItemRecoding recoding = new ItemRecoding(new int[] {7, 3});
+    
+    assertEquals(-1, recoding.toId(4));
+    assertEquals(-1, recoding.toId(100));
+    assertEquals(-1, recoding.toId(-1));
+  }
+  
+  @Test
+  public void sparse_Items_Are_Recoded() {
+    ItemRecoding recoding = new ItemRecoding(new int[] {Integer.MAX_VALUE, 3, -8});
+    
+    assertEquals(0, recoding.toId(Integer.MAX_VALUE));
+    assertEquals(1, recoding.toId(3));
+    assertEquals(2, recoding.toId(-8));
+    assertEquals(-1, recoding.toId(4));
+  }
+  
+  @Test
+  public void ids_Are_Translated_To_Sorted_Items() {
+    ItemRecoding recoding = new ItemRecoding(new int[] {7, 3, 12});
+    
+    assertArrayEquals(new int[] {3, 7, 12}, recoding.toItems(new int[] {0, 1, 2}, 3));
+    assertArrayEquals(new int[] {7, 12}, recoding.toItems(new int[] {2, 0, 1}, 2));
+  }
+  
+  @Test
+  public void recoding_Survives_File() throws IOException {
+    File file = File.createTempFile("recoding", ItemRecoding.Extension);
+    file.deleteOnExit();
+    new ItemRecoding(new int[] {7, 3, 12}).write(new Configuration(), new Path(file.getAbsolutePath()));
+    
+    ItemRecoding recoding = ItemRecoding.read(file.getAbsolutePath());
+    assertEquals(3, recoding.size());
+    assertEquals(7, recoding.toItem(0));
+    assertEquals(2, recoding.toId(12));
+  }
+}
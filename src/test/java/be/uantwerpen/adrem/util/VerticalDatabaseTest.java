@@ -0,0 +1,101 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.uantwerpen.adrem.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+
+public class VerticalDatabaseTest {
+  
+  private static Path createTmpFile() throws IOException {
+    File file = File.createTempFile("vertical", VerticalDatabase.Extension);
+    file.deleteOnExit();
+    return new Path(file.getAbsolutePath());
+  }
+  
+  @Test
+  public void index_Holds_Items_And_Supports() throws IOException {
+    Path path = createTmpFile();
+    VerticalDatabase.Writer writer = new VerticalDatabase.Writer(new Configuration(), path);
+    writer.append(1, new int[] {0, 1, 3}, 3);
+    writer.append(4, new int[] {2, 9}, 1);
+    writer.append(7, new int[] {1, 2, 3, 4}, 4);
+    writer.setNumberOfTransactions(6);
+    writer.close();
+    
+    VerticalDatabase db = VerticalDatabase.open(new Configuration(), path);
+    try {
+      assertEquals(6, db.getNumberOfTransactions());
+      assertEquals(3, db.getNumberOfItems());
+      assertEquals(4, db.getItem(1));
+      assertEquals(1, db.getSupport(1));
+      assertEquals(7, db.getItem(2));
+      assertEquals(4, db.getSupport(2));
+    } finally {
+      db.close();
+    }
+  }
+  
+  @Test
+  public void tids_Are_Read_In_Any_Order() throws IOException {
+    Path path = createTmpFile();
+    VerticalDatabase.Writer writer = new VerticalDatabase.Writer(new Configuration(), path);
+    writer.append(2, new int[] {5, 300, 70000}, 3);
+    writer.startItem(3);
+    writer.append(8, new int[] {0}, 1);
+    writer.close();
+    
+    VerticalDatabase db = VerticalDatabase.open(new Configuration(), path);
+    try {
+      assertEquals(70001, db.getNumberOfTransactions());
+      assertArrayEquals(new int[] {0}, db.readTids(2));
+      assertArrayEquals(new int[0], db.readTids(1));
+      assertArrayEquals(new int[] {5, 300, 70000}, db.readTids(0));
+    } finally {
+      db.close();
+    }
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void items_Must_Be_Ascending() throws IOException {
+    VerticalDatabase.Writer writer = new VerticalDatabase.Writer(new Configuration(), createTmpFile());
+    try {
+      writer.append(5, new int[] {0}, 1);
+      writer.append(5, new int[] {1}, 1);
+    } finally {
+      writer.close();
+    }
+  }
+  
+  @Test
+  public void aborted_Writer_Leaves_No_File() throws IOException {
+    Path path = createTmpFile();
+    VerticalDatabase.Writer writer = new VerticalDatabase.Writer(new Configuration(), path);
+    writer.append(1, new int[] {0, 1}, 2);
+    writer.abort();
+    
+    assertFalse(new File(path.toString()).exists());
+  }
+}